@@ -0,0 +1,127 @@
+package com.ticketbooking.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Ticket;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.entities.User;
+import com.ticketbooking.utils.Constants;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Generated trains and users for the benchmarks, and the data files the services load them
+ * from. Everything is seeded, so every fork of every run benchmarks the same data.
+ */
+final class BenchmarkData {
+
+    static final int STATIONS = 500;
+    static final int ROWS = 8;
+    static final int COLS = 6;
+    static final String PASSWORD = "password";
+
+    private BenchmarkData() {
+    }
+
+    static String station(int index) {
+        return String.format("station %03d", index);
+    }
+
+    /** Trains of 2 to 8 stops among {@link #STATIONS} stations, with every seat free. */
+    static List<Train> trains(int count, long seed) {
+        Random random = new Random(seed);
+        List<Train> trains = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            List<String> stations = random.ints(0, STATIONS).distinct().limit(2 + random.nextInt(7))
+                    .mapToObj(BenchmarkData::station).collect(Collectors.toList());
+            Map<String, String> stationTimes = new LinkedHashMap<>();
+            int minutes = random.nextInt(24 * 60);
+            for (String station : stations) {
+                stationTimes.put(station, String.format("%02d:%02d", minutes / 60 % 24, minutes % 60));
+                minutes += 30 + random.nextInt(240);
+            }
+            Train train = new Train(String.format("T%06d", i), String.valueOf(10000 + i),
+                    new SeatMap(ROWS, COLS), stationTimes, stations);
+            train.setTrainName("Express " + i);
+            trains.add(train);
+        }
+        return trains;
+    }
+
+    /** Source and destination pairs that some train serves, in its direction of travel. */
+    static String[][] queries(List<Train> trains, int count, long seed) {
+        Random random = new Random(seed);
+        String[][] queries = new String[count][];
+        for (int i = 0; i < count; i++) {
+            List<String> stations = trains.get(random.nextInt(trains.size())).getStations();
+            int from = random.nextInt(stations.size() - 1);
+            int to = from + 1 + random.nextInt(stations.size() - from - 1);
+            queries[i] = new String[]{stations.get(from), stations.get(to)};
+        }
+        return queries;
+    }
+
+    static String username(int index) {
+        return String.format("user%07d", index);
+    }
+
+    static String userId(int index) {
+        return String.format("U%07d", index);
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(username(i), PASSWORD, null, new ArrayList<>(), userId(i)));
+        }
+        return users;
+    }
+
+    /** A user holding one ticket on each of the first {@code tickets} days from today. */
+    static User userWithTickets(Train train, int tickets) {
+        User user = users(1).get(0);
+        List<String> stations = train.getStations();
+        for (int i = 0; i < tickets; i++) {
+            Ticket ticket = new Ticket("TK" + i, user.getUserId(), stations.get(0), stations.get(stations.size() - 1),
+                    LocalDate.now().plusDays(i).toString(), train);
+            ticket.setRow(i % ROWS);
+            ticket.setCol(i % COLS);
+            user.getTicketsBooked().add(ticket);
+        }
+        return user;
+    }
+
+    /**
+     * Writes the trains and users as the JSON snapshots the services load at startup, and
+     * deletes the journal and binary snapshots an earlier run left, which would otherwise be
+     * applied on top of them. Refuses to touch the default data directory.
+     */
+    static void writeDataFiles(List<Train> trains, List<User> users) throws IOException {
+        if (System.getProperty(Constants.DATA_DIR_PROPERTY) == null) {
+            throw new IllegalStateException("Set -D" + Constants.DATA_DIR_PROPERTY
+                    + " (./gradlew jmh does) so the benchmarks do not overwrite " + Constants.DATA_DIR);
+        }
+        Path dir = Paths.get(Constants.DATA_DIR);
+        Files.createDirectories(dir);
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(dir, "{bookings.journal*,*.bin,*.tmp}")) {
+            for (Path leftover : leftovers) {
+                Files.delete(leftover);
+            }
+        }
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.writeValue(new File(Constants.BACKUP_TRAINS_PATH), trains);
+        mapper.writeValue(new File(Constants.BACKUP_USERS_PATH), users);
+    }
+}
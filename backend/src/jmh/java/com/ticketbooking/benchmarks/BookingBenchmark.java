@@ -0,0 +1,92 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.services.TrainService;
+import com.ticketbooking.services.UserBookingService;
+import com.ticketbooking.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link UserBookingService#bookSeat} from 16 threads at once, journal included, with the
+ * journal forced on every batch and never.
+ *
+ * The threads take consecutive seats, so they race on the same seat map and share journal
+ * batches. Each seat of each train and date is sold once; the generated trains hold about 5.7
+ * million seats, well past what a run books.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(16)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class BookingBenchmark {
+
+    private static final int TRAINS = 1000;
+    private static final int USERS = 1000;
+    private static final int SEATS = BenchmarkData.ROWS * BenchmarkData.COLS;
+    // Stops short of the last day of the window, which closes at midnight
+    private static final int DATES = Constants.ADVANCE_BOOKING_DAYS - 1;
+
+    @Param({"ALWAYS", "NEVER"})
+    public String fsync;
+
+    private TrainService trainService;
+    private UserBookingService bookings;
+    private final AtomicLong nextSeat = new AtomicLong();
+    private final String[] trainIds = new String[TRAINS];
+    private final String[] userIds = new String[USERS];
+    private final String[] dates = new String[DATES];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        System.setProperty(Constants.JOURNAL_FSYNC_PROPERTY, fsync);
+        BenchmarkData.writeDataFiles(BenchmarkData.trains(TRAINS, 1), BenchmarkData.users(USERS));
+        trainService = new TrainService();
+        bookings = new UserBookingService(trainService);
+        for (int i = 0; i < TRAINS; i++) {
+            trainIds[i] = String.format("T%06d", i);
+        }
+        for (int i = 0; i < USERS; i++) {
+            userIds[i] = BenchmarkData.userId(i);
+        }
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < DATES; i++) {
+            dates[i] = today.plusDays(i).toString();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        bookings.close();
+        trainService.close();
+    }
+
+    @Benchmark
+    public Map<String, Object> bookSeat() throws IOException {
+        long n = nextSeat.getAndIncrement();
+        int seat = (int) (n % SEATS);
+        long trainDate = n / SEATS;
+        return bookings.bookSeat(trainIds[(int) (trainDate / DATES % TRAINS)], userIds[(int) (n % USERS)],
+                seat / BenchmarkData.COLS, seat % BenchmarkData.COLS, null, null, dates[(int) (trainDate % DATES)]);
+    }
+}
@@ -0,0 +1,16 @@
+package com.ticketbooking.benchmarks;
+
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Walks a benchmark's inputs round-robin, separately in each thread. */
+@State(Scope.Thread)
+public class Cursor {
+
+    private int next;
+
+    /** The next index into inputs of {@code size}, a power of two. */
+    int next(int size) {
+        return next++ & (size - 1);
+    }
+}
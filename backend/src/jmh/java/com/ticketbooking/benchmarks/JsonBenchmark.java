@@ -0,0 +1,65 @@
+package com.ticketbooking.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.entities.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson round trips of a {@link Train} and a {@link User}, as the JSON snapshots write and
+ * read them. The train has {@code days} dated seat maps with some seats sold, the user one
+ * ticket per day.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"0", "30"})
+    public int days;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private Train train;
+    private User user;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        train = BenchmarkData.trains(1, 4).get(0);
+        for (int day = 0; day < days; day++) {
+            train.getDatedSeats().put(LocalDate.now().plusDays(day).toString(), train.getSeats().copy());
+            for (int seat = day % 3; seat < BenchmarkData.ROWS * BenchmarkData.COLS; seat += 3) {
+                train.seatsOn(LocalDate.now().plusDays(day).toString())
+                        .book(seat / BenchmarkData.COLS, seat % BenchmarkData.COLS);
+            }
+        }
+        user = BenchmarkData.userWithTickets(train, days);
+    }
+
+    @Benchmark
+    public Train trainRoundTrip() throws IOException {
+        return mapper.readValue(mapper.writeValueAsBytes(train), Train.class);
+    }
+
+    @Benchmark
+    public User userRoundTrip() throws IOException {
+        return mapper.readValue(mapper.writeValueAsBytes(user), User.class);
+    }
+}
@@ -0,0 +1,76 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.services.TrainService;
+import com.ticketbooking.utils.Constants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrainService#searchTrains(String, String, LocalDate)} over catalogs of 1k, 10k and
+ * 100k generated trains, for routes some train serves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SearchBenchmark {
+
+    // Half the search cache, so the cached benchmark measures hits rather than evictions
+    private static final int QUERIES = Integer.highestOneBit(Constants.SEARCH_CACHE_SIZE / 2);
+
+    @Param({"1000", "10000", "100000"})
+    public int trains;
+
+    private TrainService trainService;
+    private String[][] queries;
+    private LocalDate today;
+    private LocalDate pastWindow;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Train> generated = BenchmarkData.trains(trains, 1);
+        BenchmarkData.writeDataFiles(generated, BenchmarkData.users(1));
+        trainService = new TrainService();
+        queries = BenchmarkData.queries(generated, QUERIES, 2);
+        today = LocalDate.now();
+        pastWindow = today.plusDays(Constants.ADVANCE_BOOKING_DAYS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        trainService.close();
+    }
+
+    /** Repeated routes on a bookable date, answered from the search cache once warm. */
+    @Benchmark
+    public TrainService.SearchResult cached(Cursor cursor) {
+        String[] query = queries[cursor.next(QUERIES)];
+        return trainService.searchTrains(query[0], query[1], today);
+    }
+
+    /** Dates past the booking window are never cached, so every call runs the whole search. */
+    @Benchmark
+    public TrainService.SearchResult uncached(Cursor cursor) {
+        String[] query = queries[cursor.next(QUERIES)];
+        return trainService.searchTrains(query[0], query[1], pastWindow);
+    }
+}
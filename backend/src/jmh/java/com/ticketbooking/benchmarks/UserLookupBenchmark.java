@@ -0,0 +1,72 @@
+package com.ticketbooking.benchmarks;
+
+import com.ticketbooking.entities.User;
+import com.ticketbooking.services.TrainService;
+import com.ticketbooking.services.UserBookingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Username lookups and logins against a million generated users. One name in eight asked for
+ * does not exist, as with mistyped logins.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx3g")
+public class UserLookupBenchmark {
+
+    private static final int NAMES = 4096;
+
+    @Param({"1000000"})
+    public int users;
+
+    private TrainService trainService;
+    private UserBookingService userService;
+    private final String[] names = new String[NAMES];
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        BenchmarkData.writeDataFiles(BenchmarkData.trains(10, 1), BenchmarkData.users(users));
+        trainService = new TrainService();
+        userService = new UserBookingService(trainService);
+        Random random = new Random(3);
+        for (int i = 0; i < NAMES; i++) {
+            names[i] = i % 8 == 0 ? "nobody" + i : BenchmarkData.username(random.nextInt(users));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        userService.close();
+        trainService.close();
+    }
+
+    @Benchmark
+    public Optional<User> getUserByUsername(Cursor cursor) {
+        return userService.getUserByUsername(names[cursor.next(NAMES)]);
+    }
+
+    @Benchmark
+    public User authenticateUser(Cursor cursor) {
+        return userService.authenticateUser(names[cursor.next(NAMES)], BenchmarkData.PASSWORD);
+    }
+}
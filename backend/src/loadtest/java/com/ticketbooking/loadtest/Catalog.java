@@ -0,0 +1,90 @@
+package com.ticketbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/** The trains a run books, found by searching its routes, with their seat layouts. */
+final class Catalog {
+
+    static final class TrainInfo {
+        final String trainId;
+        final List<String> stations;
+        // rowStart[r] is the index of the first seat of row r; the last entry is the capacity
+        final int[] rowStart;
+
+        TrainInfo(String trainId, List<String> stations, int[] rowStart) {
+            this.trainId = trainId;
+            this.stations = stations;
+            this.rowStart = rowStart;
+        }
+
+        int capacity() {
+            return rowStart[rowStart.length - 1];
+        }
+
+        int rows() {
+            return rowStart.length - 1;
+        }
+
+        int seat(int row, int col) {
+            return rowStart[row] + col;
+        }
+
+        int rowOf(int seat) {
+            int row = 0;
+            while (rowStart[row + 1] <= seat) {
+                row++;
+            }
+            return row;
+        }
+
+        int colOf(int seat) {
+            return seat - rowStart[rowOf(seat)];
+        }
+    }
+
+    private Catalog() {
+    }
+
+    /** Trains in the order the routes' searches first return them; the first is the hot one. */
+    static List<TrainInfo> discover(HttpClient client, ObjectMapper mapper, String url, List<String[]> routes) throws Exception {
+        Map<String, TrainInfo> trains = new LinkedHashMap<>();
+        for (String[] route : routes) {
+            JsonNode search = get(client, mapper, url + "/api/trains/search?source=" + LoadGenerator.encode(route[0])
+                    + "&destination=" + LoadGenerator.encode(route[1]));
+            for (JsonNode summary : search.path("trains")) {
+                String trainId = summary.path("trainId").asText();
+                if (trains.containsKey(trainId)) {
+                    continue;
+                }
+                List<String> stations = new ArrayList<>();
+                summary.path("stations").forEach(station -> stations.add(station.asText()));
+                JsonNode seats = get(client, mapper, url + "/api/trains/seats?trainId=" + LoadGenerator.encode(trainId)).path("seats");
+                int[] rowStart = new int[seats.size() + 1];
+                for (int row = 0; row < seats.size(); row++) {
+                    rowStart[row + 1] = rowStart[row] + seats.get(row).size();
+                }
+                trains.put(trainId, new TrainInfo(trainId, stations, rowStart));
+            }
+        }
+        return new ArrayList<>(trains.values());
+    }
+
+    static JsonNode get(HttpClient client, ObjectMapper mapper, String uri) throws Exception {
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + uri + " answered " + response.statusCode());
+        }
+        return mapper.readTree(response.body());
+    }
+}
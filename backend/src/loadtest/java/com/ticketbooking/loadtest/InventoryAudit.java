@@ -0,0 +1,173 @@
+package com.ticketbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Checks the inventory a run leaves behind against the tickets its users hold and the answers
+ * the server gave.
+ *
+ * Before the run it records which seats of every train and date in play are taken for the
+ * whole route. Afterwards it reports:
+ * <ul>
+ * <li>seats sold twice: two live tickets on overlapping segments, or a ticket on a seat that
+ * was already taken before the run;</li>
+ * <li>inventory drift: a seat taken with no ticket behind it, a ticketed seat showing free, or
+ * a seat taken before the run that is now free;</li>
+ * <li>lost or phantom tickets: a user holding more or fewer tickets than the bookings minus
+ * cancellations the server acknowledged, beyond the requests whose outcome is unknown.</li>
+ * </ul>
+ */
+final class InventoryAudit {
+
+    private static final int MAX_LISTED = 20;
+
+    private final HttpClient client;
+    private final ObjectMapper mapper;
+    private final String url;
+    private final List<Catalog.TrainInfo> trains;
+    private final List<String> dates;
+    private final Map<String, BitSet> takenBefore = new HashMap<>();
+
+    private static final class Ticket {
+        final String ticketId;
+        final String userId;
+        final int fromLeg;
+        final int toLeg;
+
+        Ticket(String ticketId, String userId, int fromLeg, int toLeg) {
+            this.ticketId = ticketId;
+            this.userId = userId;
+            this.fromLeg = fromLeg;
+            this.toLeg = toLeg;
+        }
+    }
+
+    InventoryAudit(HttpClient client, ObjectMapper mapper, String url, List<Catalog.TrainInfo> trains, List<String> dates) {
+        this.client = client;
+        this.mapper = mapper;
+        this.url = url;
+        this.trains = trains;
+        this.dates = dates;
+    }
+
+    void recordBefore() throws Exception {
+        for (Catalog.TrainInfo train : trains) {
+            for (String date : dates) {
+                takenBefore.put(key(train.trainId, date), taken(train, date));
+            }
+        }
+    }
+
+    /** Prints what it finds and returns the number of violations. */
+    int verify(PrintStream out, List<String> userIds, AtomicIntegerArray booked, AtomicIntegerArray cancelled,
+               AtomicIntegerArray uncertain) throws Exception {
+        List<String> violations = new ArrayList<>();
+        Map<String, Catalog.TrainInfo> trainsById = new HashMap<>();
+        trains.forEach(train -> trainsById.put(train.trainId, train));
+        // train|date -> seat -> live tickets on it
+        Map<String, Map<Integer, List<Ticket>>> tickets = new HashMap<>();
+        int ticketCount = 0;
+
+        for (int user = 0; user < userIds.size(); user++) {
+            String userId = userIds.get(user);
+            JsonNode bookings = Catalog.get(client, mapper, url + "/api/bookings?userId=" + LoadGenerator.encode(userId)).path("bookings");
+            int expected = booked.get(user) - cancelled.get(user);
+            if (Math.abs(bookings.size() - expected) > uncertain.get(user)) {
+                violations.add(String.format("user %s holds %d tickets after %d acknowledged bookings and %d cancellations",
+                        userId, bookings.size(), booked.get(user), cancelled.get(user)));
+            }
+            for (JsonNode booking : bookings) {
+                ticketCount++;
+                Catalog.TrainInfo train = trainsById.get(booking.path("trainId").asText());
+                if (train == null) {
+                    violations.add("ticket " + booking.path("ticketId").asText() + " is on train "
+                            + booking.path("trainId").asText() + ", which the run never booked");
+                    continue;
+                }
+                String date = booking.path("dateOfTravel").asText();
+                int seat = train.seat(booking.path("row").asInt(), booking.path("col").asInt());
+                Ticket ticket = new Ticket(booking.path("ticketId").asText(), userId,
+                        train.stations.indexOf(booking.path("source").asText()),
+                        train.stations.indexOf(booking.path("destination").asText()));
+                tickets.computeIfAbsent(key(train.trainId, date), k -> new HashMap<>())
+                        .computeIfAbsent(seat, s -> new ArrayList<>()).add(ticket);
+            }
+        }
+
+        int seatsChecked = 0;
+        for (Catalog.TrainInfo train : trains) {
+            for (String date : dates) {
+                String key = key(train.trainId, date);
+                BitSet before = takenBefore.get(key);
+                BitSet after = taken(train, date);
+                Map<Integer, List<Ticket>> sold = tickets.getOrDefault(key, Map.of());
+                for (int seat = 0; seat < train.capacity(); seat++) {
+                    seatsChecked++;
+                    List<Ticket> onSeat = sold.getOrDefault(seat, List.of());
+                    String where = String.format("%s on %s seat %d,%d", train.trainId, date, train.rowOf(seat), train.colOf(seat));
+                    for (int i = 0; i < onSeat.size(); i++) {
+                        for (int j = i + 1; j < onSeat.size(); j++) {
+                            Ticket a = onSeat.get(i);
+                            Ticket b = onSeat.get(j);
+                            if (a.fromLeg < b.toLeg && b.fromLeg < a.toLeg) {
+                                violations.add(String.format("double booking: %s sold to %s (ticket %s) and %s (ticket %s)",
+                                        where, a.userId, a.ticketId, b.userId, b.ticketId));
+                            }
+                        }
+                    }
+                    if (before.get(seat) && !onSeat.isEmpty()) {
+                        violations.add("double booking: " + where + " was taken before the run and sold again as ticket "
+                                + onSeat.get(0).ticketId);
+                    }
+                    boolean expected = before.get(seat) || !onSeat.isEmpty();
+                    if (after.get(seat) && !expected) {
+                        violations.add("leaked seat: " + where + " is taken but nobody holds a ticket for it");
+                    } else if (!after.get(seat) && !onSeat.isEmpty()) {
+                        violations.add("lost seat: " + where + " shows free but ticket " + onSeat.get(0).ticketId + " holds it");
+                    } else if (!after.get(seat) && before.get(seat)) {
+                        violations.add("freed seat: " + where + " was taken before the run and is free now");
+                    }
+                }
+            }
+        }
+
+        out.printf("%nAudit: %d tickets held by %d users, %d seats on %d trains x %d dates checked: %d violation%s%n",
+                ticketCount, userIds.size(), seatsChecked, trains.size(), dates.size(), violations.size(),
+                violations.size() == 1 ? "" : "s");
+        violations.stream().limit(MAX_LISTED).forEach(violation -> out.println("  " + violation));
+        if (violations.size() > MAX_LISTED) {
+            out.println("  ... and " + (violations.size() - MAX_LISTED) + " more");
+        }
+        return violations.size();
+    }
+
+    // Seats not free for the whole route on the date
+    private BitSet taken(Catalog.TrainInfo train, String date) throws Exception {
+        JsonNode rows = Catalog.get(client, mapper, url + "/api/trains/seats?trainId=" + LoadGenerator.encode(train.trainId)
+                + "&date=" + date).path("seats");
+        BitSet taken = new BitSet(train.capacity());
+        for (int row = 0; row < rows.size(); row++) {
+            JsonNode seats = rows.get(row);
+            for (int col = 0; col < seats.size(); col++) {
+                if (seats.get(col).asInt() != 0) {
+                    taken.set(train.seat(row, col));
+                }
+            }
+        }
+        return taken;
+    }
+
+    private static String key(String trainId, String date) {
+        return trainId + '|' + date;
+    }
+}
@@ -0,0 +1,355 @@
+package com.ticketbooking.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.utils.LatencyHistogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replays a booking rush against the HTTP API: a mix of logins, searches, bookings and
+ * cancellations at a fixed arrival rate, most bookings aimed at a few hot seats, followed by an
+ * audit of the inventory it leaves behind.
+ *
+ * Traffic is open-loop. Requests are started on a fixed schedule whether or not earlier ones
+ * have answered, and latency is measured from the time a request was due rather than when it
+ * was sent, so a stalled server is charged for every request queued behind the stall instead
+ * of hiding it (coordinated omission). The time from handing the request to the HTTP client
+ * to the answer, which is what a closed-loop tool would report, is shown alongside.
+ *
+ * Without {@code --url} the server is started in this process on port 8080, with its data
+ * files in a fresh temporary directory seeded from the classpath; with it, the generator
+ * drives that server and assumes nothing else books on the trains it uses while it runs.
+ * Exits with status 1 if the audit finds a violation.
+ */
+public final class LoadGenerator {
+
+    enum Op { LOGIN, SEARCH, BOOK, CANCEL }
+
+    static final String PASSWORD = "loadtest123";
+
+    private final Options options;
+    private final HttpClient client;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<Op, OpStats> stats = new LinkedHashMap<>();
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final List<String> usernames = new ArrayList<>();
+    private final List<String> userIds = new ArrayList<>();
+    // Bookings and cancellations the server acknowledged, per user, for the audit
+    private AtomicIntegerArray booked;
+    private AtomicIntegerArray cancelled;
+    // Requests that failed or timed out may or may not have happened
+    private AtomicIntegerArray uncertain;
+    private List<Catalog.TrainInfo> trains;
+    private List<String> dates;
+
+    static final class OpStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LatencyHistogram serviceTime = new LatencyHistogram();
+        final LongAdder succeeded = new LongAdder();
+        final LongAdder rejected = new LongAdder();
+        final LongAdder errors = new LongAdder();
+    }
+
+    LoadGenerator(Options options, ExecutorService executor) {
+        this.options = options;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(executor)
+                .build();
+        for (Op op : Op.values()) {
+            stats.put(op, new OpStats());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(Options.USAGE);
+            System.exit(2);
+            return;
+        }
+        PrintStream out = System.out;
+        if (options.url == null) {
+            startServer();
+            options.url = "http://localhost:8080";
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(options.clientThreads, runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        LoadGenerator generator = new LoadGenerator(options, executor);
+        int violations = generator.run(out);
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    // The server logs every booking to stdout; the report keeps the original stream
+    private static void startServer() throws Exception {
+        if (System.getProperty("data.dir") == null) {
+            System.setProperty("data.dir", Files.createTempDirectory("ticketbooking-loadtest").toString());
+        }
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        com.ticketbooking.server.SimpleHttpServer.main(new String[0]);
+    }
+
+    int run(PrintStream out) throws Exception {
+        out.printf("Target %s: %d req/s for %ds, mix %s, %.0f%% of bookings on %d hot seats%n",
+                options.url, options.rate, options.durationSeconds, options.mixDescription(),
+                options.hotFraction * 100, options.hotSeats);
+        trains = Catalog.discover(client, mapper, options.url, options.routes);
+        if (trains.isEmpty()) {
+            throw new IllegalStateException("No trains found for routes " + options.routes);
+        }
+        dates = new ArrayList<>();
+        for (int day = 0; day < options.days; day++) {
+            dates.add(LocalDate.now().plusDays(day).toString());
+        }
+        createUsers();
+        InventoryAudit audit = new InventoryAudit(client, mapper, options.url, trains, dates);
+        audit.recordBefore();
+
+        long started = System.nanoTime();
+        drive();
+        long elapsedNanos = System.nanoTime() - started;
+
+        report(out, elapsedNanos);
+        return audit.verify(out, userIds, booked, cancelled, uncertain);
+    }
+
+    private void createUsers() throws Exception {
+        String prefix = "load" + Long.toString(System.currentTimeMillis(), 36) + "-";
+        for (int i = 0; i < options.users; i++) {
+            String username = prefix + i;
+            String body = mapper.writeValueAsString(Map.of("username", username, "password", PASSWORD));
+            JsonNode signup = send(post("/api/signup", body));
+            JsonNode login = send(post("/api/login", body));
+            if (!signup.path("success").asBoolean() || !login.path("success").asBoolean()) {
+                throw new IllegalStateException("Could not create load test user " + username);
+            }
+            usernames.add(username);
+            userIds.add(login.path("user").path("userId").asText());
+        }
+        booked = new AtomicIntegerArray(options.users);
+        cancelled = new AtomicIntegerArray(options.users);
+        uncertain = new AtomicIntegerArray(options.users);
+    }
+
+    /** Starts one operation per period until the duration is up, then waits for the stragglers. */
+    private void drive() throws InterruptedException {
+        Random random = new Random(options.seed);
+        long period = TimeUnit.SECONDS.toNanos(1) / options.rate;
+        long start = System.nanoTime();
+        long total = (long) options.rate * options.durationSeconds;
+        for (long i = 0; i < total; i++) {
+            long due = start + i * period;
+            long wait;
+            while ((wait = due - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Op op = options.pick(random);
+            if (inFlight.get() >= options.maxInFlight) {
+                // The server is this far behind. Not sent, so nothing piles up without bound, but
+                // recorded as timed out so a stall still shows in the percentiles.
+                dropped.increment();
+                OpStats opStats = stats.get(op);
+                opStats.latency.record(TimeUnit.SECONDS.toNanos(options.timeoutSeconds));
+                opStats.errors.increment();
+                continue;
+            }
+            inFlight.incrementAndGet();
+            start(op, due, random);
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.timeoutSeconds + 5);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void start(Op op, long due, Random random) {
+        int user = random.nextInt(userIds.size());
+        long sent = System.nanoTime();
+        CompletableFuture<Outcome> outcome;
+        switch (op) {
+            case LOGIN:
+                outcome = login(user);
+                break;
+            case SEARCH:
+                outcome = search(random);
+                break;
+            case BOOK:
+                outcome = book(user, random);
+                break;
+            default:
+                outcome = cancel(user, random.nextInt(Integer.MAX_VALUE));
+                break;
+        }
+        outcome.whenComplete((result, error) -> {
+            long now = System.nanoTime();
+            OpStats opStats = stats.get(op);
+            opStats.latency.record(now - due);
+            opStats.serviceTime.record(now - sent);
+            if (error != null || result == Outcome.ERROR) {
+                opStats.errors.increment();
+                if (op == Op.BOOK || op == Op.CANCEL) {
+                    uncertain.incrementAndGet(user);
+                }
+            } else if (result == Outcome.OK) {
+                opStats.succeeded.increment();
+            } else {
+                opStats.rejected.increment();
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    enum Outcome { OK, REJECTED, ERROR }
+
+    private CompletableFuture<Outcome> login(int user) {
+        String body = "{\"username\":\"" + usernames.get(user) + "\",\"password\":\"" + PASSWORD + "\"}";
+        return sendAsync(post("/api/login", body)).thenApply(json -> json.path("success").asBoolean() ? Outcome.OK : Outcome.REJECTED);
+    }
+
+    private CompletableFuture<Outcome> search(Random random) {
+        String[] route = options.routes.get(random.nextInt(options.routes.size()));
+        String path = "/api/trains/search?source=" + encode(route[0]) + "&destination=" + encode(route[1])
+                + "&date=" + dates.get(random.nextInt(dates.size()));
+        return sendAsync(get(path)).thenApply(json -> json.path("success").asBoolean() ? Outcome.OK : Outcome.ERROR);
+    }
+
+    private CompletableFuture<Outcome> book(int user, Random random) {
+        Catalog.TrainInfo train;
+        String date;
+        int seat;
+        if (random.nextDouble() < options.hotFraction) {
+            // The rush: everyone after the same few seats on the first train today
+            train = trains.get(0);
+            date = dates.get(0);
+            seat = random.nextInt(Math.min(options.hotSeats, train.capacity()));
+        } else {
+            train = trains.get(random.nextInt(trains.size()));
+            date = dates.get(random.nextInt(dates.size()));
+            seat = random.nextInt(train.capacity());
+        }
+        int row = train.rowOf(seat);
+        int col = train.colOf(seat);
+        String body = "{\"trainId\":\"" + train.trainId + "\",\"userId\":\"" + userIds.get(user) + "\",\"row\":" + row
+                + ",\"col\":" + col + ",\"dateOfTravel\":\"" + date + "\"}";
+        return sendAsync(post("/api/book", body)).thenApply(json -> {
+            if (json.path("success").asBoolean()) {
+                booked.incrementAndGet(user);
+                return Outcome.OK;
+            }
+            return Outcome.REJECTED;
+        });
+    }
+
+    // Looks up the user's tickets and cancels one; rejected when there is none
+    private CompletableFuture<Outcome> cancel(int user, int choice) {
+        String userId = userIds.get(user);
+        return sendAsync(get("/api/bookings?userId=" + encode(userId))).thenCompose(json -> {
+            JsonNode bookings = json.path("bookings");
+            if (bookings.size() == 0) {
+                return CompletableFuture.completedFuture(Outcome.REJECTED);
+            }
+            String ticketId = bookings.get(choice % bookings.size()).path("ticketId").asText();
+            String body = "{\"ticketId\":\"" + ticketId + "\",\"userId\":\"" + userId + "\"}";
+            return sendAsync(post("/api/cancel", body)).thenApply(cancel -> {
+                if (cancel.path("success").asBoolean()) {
+                    cancelled.incrementAndGet(user);
+                    return Outcome.OK;
+                }
+                return Outcome.REJECTED;
+            });
+        });
+    }
+
+    private void report(PrintStream out, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long completed = 0;
+        out.println();
+        out.printf("%-7s %9s %9s %9s %7s | %9s %9s %9s %9s %9s | %9s %9s%n", "op", "count", "ok", "rejected", "errors",
+                "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "sent p50", "sent p99");
+        for (Map.Entry<Op, OpStats> entry : stats.entrySet()) {
+            OpStats s = entry.getValue();
+            LatencyHistogram latency = s.latency;
+            completed += s.serviceTime.getCount();
+            out.printf("%-7s %9d %9d %9d %7d | %9.2f %9.2f %9.2f %9.2f %9.2f | %9.2f %9.2f%n",
+                    entry.getKey().name().toLowerCase(), latency.getCount(), s.succeeded.sum(), s.rejected.sum(), s.errors.sum(),
+                    millis(latency.valueAtQuantile(0.5)), millis(latency.valueAtQuantile(0.9)),
+                    millis(latency.valueAtQuantile(0.99)), millis(latency.valueAtQuantile(0.999)),
+                    millis(latency.getMaxNanos()),
+                    millis(s.serviceTime.valueAtQuantile(0.5)), millis(s.serviceTime.valueAtQuantile(0.99)));
+        }
+        out.printf("%nThroughput %.0f completed/s over %.1fs (target %d/s); %d dropped with %d in flight%n",
+                completed / seconds, seconds, options.rate, dropped.sum(), options.maxInFlight);
+        out.println("Latency is measured from when each request was due; sent columns from when it was handed to the client.");
+        out.println("Dropped requests count as errors and as timed out (" + options.timeoutSeconds + "s) in the latency columns.");
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(options.url + path))
+                .timeout(Duration.ofSeconds(options.timeoutSeconds)).GET().build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(options.url + path))
+                .timeout(Duration.ofSeconds(options.timeoutSeconds))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private JsonNode send(HttpRequest request) throws Exception {
+        return mapper.readTree(client.send(request, HttpResponse.BodyHandlers.ofByteArray()).body());
+    }
+
+    // Anything but a 2xx with a JSON body fails the future
+    private CompletableFuture<JsonNode> sendAsync(HttpRequest request) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray()).thenApply(response -> {
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException("HTTP " + response.statusCode());
+            }
+            try {
+                return mapper.readTree(response.body());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+    }
+
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,139 @@
+package com.ticketbooking.loadtest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.StringJoiner;
+
+/** Command line settings of a {@link LoadGenerator} run. */
+final class Options {
+
+    static final String USAGE = String.join("\n",
+            "Usage: LoadGenerator [options]",
+            "  --url <url>             server to drive; without it one is started in-process on port 8080",
+            "  --rate <n>              requests started per second (default 500)",
+            "  --duration <s>          seconds of traffic (default 30)",
+            "  --mix <op=w,...>        weights of login, search, book and cancel (default login=5,search=60,book=30,cancel=5)",
+            "  --hot <fraction>        share of bookings aimed at the hot seats (default 0.8)",
+            "  --hot-seats <n>         hot seats, on the first train today (default 4)",
+            "  --users <n>             users created for the run (default 200)",
+            "  --days <n>              travel dates used, from today (default 3)",
+            "  --routes <a:b,...>      routes searched; their trains are the ones booked",
+            "                          (default new delhi:mumbai central,new delhi:jaipur,new delhi:chennai central)",
+            "  --timeout <s>           per-request timeout (default 10)",
+            "  --max-in-flight <n>     requests outstanding before new ones are dropped as timeouts (default 5000)",
+            "  --client-threads <n>    HTTP client threads (default 8)",
+            "  --seed <n>              random seed (default 42)");
+
+    String url;
+    int rate = 500;
+    int durationSeconds = 30;
+    final Map<LoadGenerator.Op, Integer> mix = new EnumMap<>(LoadGenerator.Op.class);
+    double hotFraction = 0.8;
+    int hotSeats = 4;
+    int users = 200;
+    int days = 3;
+    final List<String[]> routes = new ArrayList<>();
+    int timeoutSeconds = 10;
+    int maxInFlight = 5000;
+    int clientThreads = 8;
+    long seed = 42;
+    private int totalWeight;
+
+    static Options parse(String[] args) {
+        Options options = new Options();
+        String mix = "login=5,search=60,book=30,cancel=5";
+        String routes = "new delhi:mumbai central,new delhi:jaipur,new delhi:chennai central";
+        for (int i = 0; i < args.length; i++) {
+            String name = args[i];
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + name);
+            }
+            String value = args[++i];
+            try {
+                switch (name) {
+                    case "--url": options.url = value.replaceAll("/+$", ""); break;
+                    case "--rate": options.rate = positive(name, Integer.parseInt(value)); break;
+                    case "--duration": options.durationSeconds = positive(name, Integer.parseInt(value)); break;
+                    case "--mix": mix = value; break;
+                    case "--hot": options.hotFraction = Double.parseDouble(value); break;
+                    case "--hot-seats": options.hotSeats = positive(name, Integer.parseInt(value)); break;
+                    case "--users": options.users = positive(name, Integer.parseInt(value)); break;
+                    case "--days": options.days = positive(name, Integer.parseInt(value)); break;
+                    case "--routes": routes = value; break;
+                    case "--timeout": options.timeoutSeconds = positive(name, Integer.parseInt(value)); break;
+                    case "--max-in-flight": options.maxInFlight = positive(name, Integer.parseInt(value)); break;
+                    case "--client-threads": options.clientThreads = positive(name, Integer.parseInt(value)); break;
+                    case "--seed": options.seed = Long.parseLong(value); break;
+                    default: throw new IllegalArgumentException("Unknown option " + name);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a number for " + name + ": " + value);
+            }
+        }
+        if (options.hotFraction < 0 || options.hotFraction > 1) {
+            throw new IllegalArgumentException("--hot must be between 0 and 1");
+        }
+        for (String weight : mix.split(",")) {
+            String[] parts = weight.trim().split("=");
+            LoadGenerator.Op op = parts.length == 2 ? op(parts[0].trim()) : null;
+            int w;
+            try {
+                w = op == null ? -1 : Integer.parseInt(parts[1].trim());
+            } catch (NumberFormatException e) {
+                w = -1;
+            }
+            if (w < 0) {
+                throw new IllegalArgumentException("Bad --mix entry: " + weight);
+            }
+            options.mix.put(op, w);
+            options.totalWeight += w;
+        }
+        if (options.totalWeight == 0) {
+            throw new IllegalArgumentException("--mix needs at least one positive weight");
+        }
+        for (String route : routes.split(",")) {
+            String[] stations = route.split(":");
+            if (stations.length != 2) {
+                throw new IllegalArgumentException("Bad --routes entry: " + route);
+            }
+            options.routes.add(new String[]{stations[0].trim(), stations[1].trim()});
+        }
+        return options;
+    }
+
+    private static LoadGenerator.Op op(String name) {
+        for (LoadGenerator.Op op : LoadGenerator.Op.values()) {
+            if (op.name().equalsIgnoreCase(name)) {
+                return op;
+            }
+        }
+        return null;
+    }
+
+    private static int positive(String name, int value) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive");
+        }
+        return value;
+    }
+
+    LoadGenerator.Op pick(Random random) {
+        int ticket = random.nextInt(totalWeight);
+        for (Map.Entry<LoadGenerator.Op, Integer> entry : mix.entrySet()) {
+            ticket -= entry.getValue();
+            if (ticket < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new AssertionError();
+    }
+
+    String mixDescription() {
+        StringJoiner joiner = new StringJoiner(",");
+        mix.forEach((op, weight) -> joiner.add(op.name().toLowerCase() + "=" + weight));
+        return joiner.toString();
+    }
+}
@@ -1,7 +1,9 @@
 package com.ticketbooking.cli;
 
+import com.ticketbooking.entities.SeatMap;
 import com.ticketbooking.entities.Train;
 import com.ticketbooking.entities.User;
+import com.ticketbooking.services.TrainService;
 import com.ticketbooking.services.UserBookingService;
 import com.ticketbooking.utils.UserServiceUtil;
 
@@ -15,10 +17,12 @@ public class TicketBookingApp {
         System.out.println("Welcome to my Ticket Booking System!");
         Scanner scanner = new Scanner(System.in);
         int option = 0;
+        TrainService trainService;
         UserBookingService userBookingService;
 
         try{
-            userBookingService = new UserBookingService();
+            trainService = new TrainService();
+            userBookingService = new UserBookingService(trainService);
         }
         catch (IOException ex){
             System.err.println("Failed to initialize the booking system");
@@ -150,12 +154,7 @@ public class TicketBookingApp {
                     System.out.println("Train Selected: " + trainSelectedForBooking.getTrainId());
 
                     System.out.println("Available Seats:");
-                    for (List<Integer> row : trainSelectedForBooking.getSeats()) {
-                        for (Integer seat : row) {
-                            System.out.print(seat + " ");
-                        }
-                        System.out.println();
-                    }
+                    printSeats(trainSelectedForBooking.getSeats());
                     break;
 
                 case 5:
@@ -165,14 +164,7 @@ public class TicketBookingApp {
                     }
                     System.out.println("Select a seat out of these seats");
 
-                    List<List<Integer>> seats = userBookingService.fetchSeats(trainSelectedForBooking);
-
-                    for (List<Integer> row: seats){
-                        for (Integer val: row){
-                            System.out.print(val +  " ");
-                        }
-                        System.out.println();
-                    }
+                    printSeats(userBookingService.fetchSeats(trainSelectedForBooking));
 
                     System.out.println("Select the seat by typing the row and column");
 
@@ -206,5 +198,15 @@ public class TicketBookingApp {
                     break;
             }
         }
+        trainService.close();
+    }
+
+    private static void printSeats(SeatMap seats) {
+        for (int row = 0; row < seats.rows(); row++) {
+            for (int col = 0; col < seats.rowLength(row); col++) {
+                System.out.print((seats.isBooked(row, col) ? 1 : 0) + " ");
+            }
+            System.out.println();
+        }
     }
 }
\ No newline at end of file
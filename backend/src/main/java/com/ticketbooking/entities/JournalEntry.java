@@ -0,0 +1,130 @@
+package com.ticketbooking.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.List;
+
+/**
+ * One line of the booking journal. Only the fields relevant to the entry type are set.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JournalEntry {
+
+    public enum Type {
+        SIGNUP,
+        BOOK,
+        BOOK_GROUP,
+        CANCEL,
+        PROMOTE
+    }
+
+    private Type type;
+    private long timestamp;
+    private String userId;
+    private User user;
+    private Ticket ticket;
+    private List<Ticket> tickets;
+    private String ticketId;
+
+    public JournalEntry(){}
+
+    public static JournalEntry signup(User user){
+        JournalEntry entry = new JournalEntry(Type.SIGNUP, user.getUserId());
+        entry.user = user;
+        return entry;
+    }
+
+    public static JournalEntry book(Ticket ticket){
+        JournalEntry entry = new JournalEntry(Type.BOOK, ticket.getUserId());
+        entry.ticket = ticket;
+        return entry;
+    }
+
+    /** Several tickets booked together; replayed all or not at all since they share one line. */
+    public static JournalEntry bookGroup(String userId, List<Ticket> tickets){
+        JournalEntry entry = new JournalEntry(Type.BOOK_GROUP, userId);
+        entry.tickets = tickets;
+        return entry;
+    }
+
+    public static JournalEntry cancel(String userId, String ticketId){
+        JournalEntry entry = new JournalEntry(Type.CANCEL, userId);
+        entry.ticketId = ticketId;
+        return entry;
+    }
+
+    /**
+     * A cancellation whose seat went straight to a waitlisted user as {@code ticket}; one line,
+     * so the seat is never replayed as free in between.
+     */
+    public static JournalEntry promote(String userId, String ticketId, Ticket ticket){
+        JournalEntry entry = new JournalEntry(Type.PROMOTE, userId);
+        entry.ticketId = ticketId;
+        entry.ticket = ticket;
+        return entry;
+    }
+
+    private JournalEntry(Type type, String userId){
+        this.type = type;
+        this.userId = userId;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public void setType(Type type) {
+        this.type = type;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public void setUser(User user) {
+        this.user = user;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public void setTicket(Ticket ticket) {
+        this.ticket = ticket;
+    }
+
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    public void setTickets(List<Ticket> tickets) {
+        this.tickets = tickets;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public void setTicketId(String ticketId) {
+        this.ticketId = ticketId;
+    }
+}
@@ -0,0 +1,657 @@
+package com.ticketbooking.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat inventory of a train, segment aware.
+ *
+ * Every seat carries an occupancy mask over the legs of the route, where leg i runs from
+ * stations[i] to stations[i + 1]. Up to 64 legs fit in one long per seat, up to 128 in two.
+ * Booking stations[from]..stations[to] claims bits from..to-1 with a single AND/OR per word.
+ *
+ * A packed summary bitset (one bit per seat, set while any leg is occupied) sits on top of the
+ * masks so whole-journey counts and free-seat scans stay word-level popcounts.
+ *
+ * Serialized as a matrix with one leg mask per seat, so a 0/1 matrix is still valid for
+ * two-station trains and any non-zero cell means "not free for the whole run".
+ *
+ * Booking and releasing are safe from any number of threads without a lock: on routes of up
+ * to 64 legs a claim is one compare-and-set of the seat's mask word, so two overlapping claims
+ * can never both win. Seats needing two words are claimed under one of a few stripe locks
+ * owned by this map. Each train and travel date has its own map, so claims on different
+ * trains never contend. The summary bitset is updated after the mask and may briefly lag it,
+ * which only affects counts and scan hints, never whether a claim succeeds.
+ *
+ * Routes of up to {@link #COUNTED_LEGS} legs also keep a free-seat counter for every segment,
+ * adjusted by each successful claim and release, so the free count for a segment is one read
+ * instead of a scan. Like the summary bitset the counters trail the masks by an instant.
+ */
+public class SeatMap {
+    public static final int MAX_LEGS = 128;
+    /** Longest route with per-segment free counters; one counter per segment, legs * (legs + 1) / 2. */
+    public static final int COUNTED_LEGS = 16;
+
+    private static final int WORD_SHIFT = 6;
+    private static final int WORD_MASK = 63;
+    private static final int STRIPES = 16;
+
+    private final int[] rowStart;
+    private final AtomicLongArray occupied;
+    // legs, wordsPerSeat and legMasks only change in setLegs, before the map is shared
+    private int legs;
+    private int wordsPerSeat;
+    private AtomicLongArray legMasks;
+    private Object[] stripes;
+    // Seats free for each segment, see segmentIndex; null on routes longer than COUNTED_LEGS
+    private AtomicIntegerArray segmentFree;
+
+    public SeatMap(int rows, int cols) {
+        this(uniformRows(rows, cols), 1);
+    }
+
+    public SeatMap(int rows, int cols, int legs) {
+        this(uniformRows(rows, cols), legs);
+    }
+
+    private SeatMap(int[] rowStart, int legs) {
+        checkLegs(legs);
+        this.rowStart = rowStart;
+        this.occupied = new AtomicLongArray(wordCount(rowStart[rowStart.length - 1]));
+        this.legs = legs;
+        this.wordsPerSeat = wordsPerSeat(legs);
+        this.legMasks = new AtomicLongArray(capacity() * wordsPerSeat);
+        this.stripes = newStripes(wordsPerSeat);
+        countSegments();
+    }
+
+    private SeatMap(SeatMap other) {
+        this.rowStart = other.rowStart;
+        this.occupied = new AtomicLongArray(toArray(other.occupied));
+        this.legs = other.legs;
+        this.wordsPerSeat = other.wordsPerSeat;
+        this.legMasks = new AtomicLongArray(toArray(other.legMasks));
+        this.stripes = newStripes(wordsPerSeat);
+        // Counted from the copied masks rather than copied, in case the original is in use
+        countSegments();
+    }
+
+    /**
+     * Reads the persisted matrix. A cell is either a number (legs 0-63) or a two element
+     * array [legs 0-63, legs 64-127]; {@code null} and 0 both mean free.
+     */
+    @JsonCreator
+    public static SeatMap fromMatrix(List<List<Object>> matrix) {
+        int[] rowStart = new int[matrix.size() + 1];
+        boolean wide = false;
+        for (int row = 0; row < matrix.size(); row++) {
+            rowStart[row + 1] = rowStart[row] + matrix.get(row).size();
+            for (Object cell : matrix.get(row)) {
+                wide |= cell instanceof List;
+            }
+        }
+        SeatMap seatMap = new SeatMap(rowStart, wide ? MAX_LEGS : 64);
+        long lowLegs = 0;
+        long highLegs = 0;
+        for (int row = 0; row < matrix.size(); row++) {
+            List<Object> cells = matrix.get(row);
+            for (int col = 0; col < cells.size(); col++) {
+                int seat = rowStart[row] + col;
+                Object cell = cells.get(col);
+                if (cell instanceof List) {
+                    List<?> words = (List<?>) cell;
+                    for (int w = 0; w < Math.min(words.size(), seatMap.wordsPerSeat); w++) {
+                        seatMap.legMasks.set(seat * seatMap.wordsPerSeat + w, ((Number) words.get(w)).longValue());
+                    }
+                } else if (cell != null) {
+                    seatMap.legMasks.set(seat * seatMap.wordsPerSeat, ((Number) cell).longValue());
+                }
+                if (seatMap.anyLeg(seat)) {
+                    seatMap.markOccupied(seat);
+                }
+                lowLegs |= seatMap.legMasks.get(seat * seatMap.wordsPerSeat);
+                if (wide) {
+                    highLegs |= seatMap.legMasks.get(seat * seatMap.wordsPerSeat + 1);
+                }
+            }
+        }
+        // Until the owning train sets the real route length, assume the highest leg in use is the last
+        int usedLegs = highLegs != 0 ? 128 - Long.numberOfLeadingZeros(highLegs) : 64 - Long.numberOfLeadingZeros(lowLegs);
+        seatMap.setLegs(Math.max(usedLegs, 1));
+        return seatMap;
+    }
+
+    @JsonValue
+    public List<List<Object>> toMatrix() {
+        List<List<Object>> matrix = new ArrayList<>(rows());
+        for (int row = 0; row < rows(); row++) {
+            List<Object> cells = new ArrayList<>(rowLength(row));
+            for (int col = 0; col < rowLength(row); col++) {
+                int base = (rowStart[row] + col) * wordsPerSeat;
+                if (wordsPerSeat == 1) {
+                    cells.add(legMasks.get(base));
+                } else {
+                    cells.add(Arrays.asList(legMasks.get(base), legMasks.get(base + 1)));
+                }
+            }
+            matrix.add(cells);
+        }
+        return matrix;
+    }
+
+    /**
+     * Rebuilds a seat map from the raw masks written by {@link #legMaskWords()}; used by the
+     * binary snapshot so loading is a bulk copy instead of a matrix parse.
+     */
+    public static SeatMap fromLegMasks(int[] rowLengths, int legs, LongBuffer words) {
+        int[] rowStart = new int[rowLengths.length + 1];
+        for (int row = 0; row < rowLengths.length; row++) {
+            rowStart[row + 1] = rowStart[row] + rowLengths[row];
+        }
+        SeatMap seatMap = new SeatMap(rowStart, legs);
+        long[] masks = new long[seatMap.legMasks.length()];
+        words.get(masks);
+        seatMap.legMasks = new AtomicLongArray(masks);
+        for (int seat = 0; seat < seatMap.capacity(); seat++) {
+            if (seatMap.anyLeg(seat)) {
+                seatMap.markOccupied(seat);
+            }
+        }
+        seatMap.countSegments();
+        return seatMap;
+    }
+
+    /** Copy of the leg masks, {@link #wordsPerSeat()} longs per seat in seat index order. */
+    public LongBuffer legMaskWords() {
+        return LongBuffer.wrap(toArray(legMasks)).asReadOnlyBuffer();
+    }
+
+    public int wordsPerSeat() {
+        return wordsPerSeat;
+    }
+
+    public SeatMap copy() {
+        return new SeatMap(this);
+    }
+
+    /**
+     * Sets the number of legs on the route (stations - 1). Called by {@link Train} once both
+     * the seats and the stations are known; widens the masks if the route needs two words.
+     */
+    public void setLegs(int legs) {
+        checkLegs(legs);
+        int newWordsPerSeat = wordsPerSeat(legs);
+        if (newWordsPerSeat != wordsPerSeat) {
+            long[] widened = new long[capacity() * newWordsPerSeat];
+            int keep = Math.min(wordsPerSeat, newWordsPerSeat);
+            for (int seat = 0; seat < capacity(); seat++) {
+                for (int w = 0; w < keep; w++) {
+                    widened[seat * newWordsPerSeat + w] = legMasks.get(seat * wordsPerSeat + w);
+                }
+            }
+            legMasks = new AtomicLongArray(widened);
+            wordsPerSeat = newWordsPerSeat;
+            stripes = newStripes(wordsPerSeat);
+        }
+        this.legs = legs;
+        countSegments();
+    }
+
+    public int legs() {
+        return legs;
+    }
+
+    public int rows() {
+        return rowStart.length - 1;
+    }
+
+    public int rowLength(int row) {
+        return rowStart[row + 1] - rowStart[row];
+    }
+
+    public int capacity() {
+        return rowStart[rowStart.length - 1];
+    }
+
+    public boolean isValidSeat(int row, int col) {
+        return row >= 0 && row < rows() && col >= 0 && col < rowLength(row);
+    }
+
+    public boolean isValidSegment(int fromLeg, int toLeg) {
+        return fromLeg >= 0 && fromLeg < toLeg && toLeg <= legs;
+    }
+
+    /** True if any leg of the seat is taken. */
+    public boolean isBooked(int row, int col) {
+        return testOccupied(index(row, col));
+    }
+
+    public boolean isFree(int row, int col, int fromLeg, int toLeg) {
+        return isValidSeat(row, col) && isValidSegment(fromLeg, toLeg)
+                && isSeatFree(index(row, col), fromLeg, toLeg);
+    }
+
+    /** Books the seat for the whole route. */
+    public boolean book(int row, int col) {
+        return book(row, col, 0, legs);
+    }
+
+    /**
+     * Claims legs fromLeg..toLeg-1 of the seat if none of them is taken.
+     *
+     * @return false if the seat or segment does not exist or overlaps an existing booking
+     */
+    public boolean book(int row, int col, int fromLeg, int toLeg) {
+        if (!isValidSeat(row, col) || !isValidSegment(fromLeg, toLeg)) {
+            return false;
+        }
+        int seat = index(row, col);
+        if (wordsPerSeat == 1) {
+            long mask = segmentMask(0, fromLeg, toLeg);
+            long current;
+            do {
+                current = legMasks.get(seat);
+                if ((current & mask) != 0) {
+                    return false;
+                }
+            } while (!legMasks.compareAndSet(seat, current, current | mask));
+            adjustSegments(current, fromLeg, toLeg, -1);
+        } else {
+            synchronized (stripes[seat % STRIPES]) {
+                if (!isSeatFree(seat, fromLeg, toLeg)) {
+                    return false;
+                }
+                int base = seat * wordsPerSeat;
+                for (int w = 0; w < wordsPerSeat; w++) {
+                    legMasks.set(base + w, legMasks.get(base + w) | segmentMask(w, fromLeg, toLeg));
+                }
+            }
+        }
+        markOccupied(seat);
+        return true;
+    }
+
+    /** Frees a whole-route booking. */
+    public boolean release(int row, int col) {
+        return release(row, col, 0, legs);
+    }
+
+    /**
+     * Frees legs fromLeg..toLeg-1 of the seat.
+     *
+     * @return false if the seat or segment does not exist or those legs were not all booked
+     */
+    public boolean release(int row, int col, int fromLeg, int toLeg) {
+        if (!isValidSeat(row, col) || !isValidSegment(fromLeg, toLeg)) {
+            return false;
+        }
+        int seat = index(row, col);
+        boolean emptied;
+        if (wordsPerSeat == 1) {
+            long mask = segmentMask(0, fromLeg, toLeg);
+            long current;
+            do {
+                current = legMasks.get(seat);
+                if ((current & mask) != mask) {
+                    return false;
+                }
+            } while (!legMasks.compareAndSet(seat, current, current & ~mask));
+            adjustSegments(current & ~mask, fromLeg, toLeg, 1);
+            emptied = (current & ~mask) == 0;
+        } else {
+            synchronized (stripes[seat % STRIPES]) {
+                int base = seat * wordsPerSeat;
+                for (int w = 0; w < wordsPerSeat; w++) {
+                    long mask = segmentMask(w, fromLeg, toLeg);
+                    if ((legMasks.get(base + w) & mask) != mask) {
+                        return false;
+                    }
+                }
+                for (int w = 0; w < wordsPerSeat; w++) {
+                    legMasks.set(base + w, legMasks.get(base + w) & ~segmentMask(w, fromLeg, toLeg));
+                }
+                emptied = !anyLeg(seat);
+            }
+        }
+        if (emptied) {
+            clearOccupied(seat);
+        }
+        return true;
+    }
+
+    /** Seats with at least one leg taken. */
+    public int bookedCount() {
+        int booked = 0;
+        for (int w = 0; w < occupied.length(); w++) {
+            booked += Long.bitCount(occupied.get(w));
+        }
+        return booked;
+    }
+
+    /** Seats free for the whole route. */
+    public int freeCount() {
+        return capacity() - bookedCount();
+    }
+
+    /** Seats in the row free for the whole route. */
+    public int freeCount(int row) {
+        return rowLength(row) - countOccupied(rowStart[row], rowStart[row + 1]);
+    }
+
+    /**
+     * Seats free for legs fromLeg..toLeg-1. Read from the segment's counter where there is one;
+     * otherwise seats with no bookings at all are counted a word at a time and only partially
+     * booked seats have their masks inspected.
+     */
+    public int freeCount(int fromLeg, int toLeg) {
+        if (!isValidSegment(fromLeg, toLeg)) {
+            return 0;
+        }
+        AtomicIntegerArray counts = segmentFree;
+        if (counts != null) {
+            return counts.get(segmentIndex(fromLeg, toLeg));
+        }
+        int free = 0;
+        for (int w = 0; w < occupied.length(); w++) {
+            int base = w << WORD_SHIFT;
+            long valid = validBits(w);
+            long taken = occupied.get(w) & valid;
+            free += Long.bitCount(valid & ~taken);
+            while (taken != 0) {
+                int seat = base + Long.numberOfTrailingZeros(taken);
+                if (isSeatFree(seat, fromLeg, toLeg)) {
+                    free++;
+                }
+                taken &= taken - 1;
+            }
+        }
+        return free;
+    }
+
+    /**
+     * Returns the linear index of the first seat at or after {@code fromIndex} that is free for
+     * the whole route, or -1 if there is none. Use {@link #rowOf}/{@link #colOf} to decode it.
+     */
+    public int nextFreeSeat(int fromIndex) {
+        int capacity = capacity();
+        if (fromIndex < 0) {
+            fromIndex = 0;
+        }
+        if (fromIndex >= capacity) {
+            return -1;
+        }
+        int wordIndex = fromIndex >>> WORD_SHIFT;
+        long free = ~occupied.get(wordIndex) & (-1L << fromIndex);
+        while (true) {
+            if (free != 0) {
+                int index = (wordIndex << WORD_SHIFT) + Long.numberOfTrailingZeros(free);
+                return index < capacity ? index : -1;
+            }
+            if (++wordIndex == occupied.length()) {
+                return -1;
+            }
+            free = ~occupied.get(wordIndex);
+        }
+    }
+
+    /** Like {@link #nextFreeSeat(int)} but only requires legs fromLeg..toLeg-1 to be free. */
+    public int nextFreeSeat(int fromIndex, int fromLeg, int toLeg) {
+        if (!isValidSegment(fromLeg, toLeg)) {
+            return -1;
+        }
+        fromIndex = Math.max(fromIndex, 0);
+        for (int w = fromIndex >>> WORD_SHIFT; w < occupied.length(); w++) {
+            int base = w << WORD_SHIFT;
+            long valid = validBits(w);
+            if (w == fromIndex >>> WORD_SHIFT) {
+                valid &= -1L << fromIndex;
+            }
+            long taken = occupied.get(w) & valid;
+            long free = valid & ~taken;
+            // Partially booked seats ahead of the first fully free one still qualify
+            long before = free == 0 ? taken : taken & (Long.lowestOneBit(free) - 1);
+            for (; before != 0; before &= before - 1) {
+                int seat = base + Long.numberOfTrailingZeros(before);
+                if (isSeatFree(seat, fromLeg, toLeg)) {
+                    return seat;
+                }
+            }
+            if (free != 0) {
+                return base + Long.numberOfTrailingZeros(free);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Bitset over seat indexes (see {@link #rowStart}) of the seats free for legs
+     * fromLeg..toLeg-1: whole words from the summary, with only partially booked seats checked
+     * leg by leg. A snapshot; claims made afterwards are not reflected.
+     */
+    public long[] freeSeats(int fromLeg, int toLeg) {
+        long[] free = new long[occupied.length()];
+        if (!isValidSegment(fromLeg, toLeg)) {
+            return free;
+        }
+        for (int w = 0; w < free.length; w++) {
+            int base = w << WORD_SHIFT;
+            long valid = validBits(w);
+            long taken = occupied.get(w) & valid;
+            long bits = valid & ~taken;
+            for (; taken != 0; taken &= taken - 1) {
+                int seat = base + Long.numberOfTrailingZeros(taken);
+                if (isSeatFree(seat, fromLeg, toLeg)) {
+                    bits |= 1L << seat;
+                }
+            }
+            free[w] = bits;
+        }
+        return free;
+    }
+
+    /** Linear index of the first seat of the row; seats of a row have consecutive indexes. */
+    public int rowStart(int row) {
+        return rowStart[row];
+    }
+
+    public int rowOf(int index) {
+        int row = Arrays.binarySearch(rowStart, index);
+        if (row < 0) {
+            return -row - 2;
+        }
+        // Skip over empty rows that share the same start offset
+        while (row + 1 < rowStart.length - 1 && rowStart[row + 1] == index) {
+            row++;
+        }
+        return row;
+    }
+
+    public int colOf(int index) {
+        return index - rowStart[rowOf(index)];
+    }
+
+    private int index(int row, int col) {
+        return rowStart[row] + col;
+    }
+
+    // Segments are numbered by start leg, then end: [0,1), [0,2) .. [0,legs), [1,2) ..
+    private int segmentIndex(int fromLeg, int toLeg) {
+        return fromLeg * legs - fromLeg * (fromLeg - 1) / 2 + (toLeg - fromLeg - 1);
+    }
+
+    private void countSegments() {
+        if (legs > COUNTED_LEGS) {
+            segmentFree = null;
+            return;
+        }
+        int[] counts = new int[legs * (legs + 1) / 2];
+        long routeLegs = (1L << legs) - 1;
+        for (int seat = 0; seat < capacity(); seat++) {
+            long free = ~legMasks.get(seat) & routeLegs;
+            // Every segment inside a run of free legs is free
+            while (free != 0) {
+                int lo = Long.numberOfTrailingZeros(free);
+                int hi = Long.numberOfTrailingZeros(~(free >>> lo)) + lo;
+                for (int from = lo; from < hi; from++) {
+                    for (int to = from + 1; to <= hi; to++) {
+                        counts[segmentIndex(from, to)]++;
+                    }
+                }
+                free &= -1L << hi;
+            }
+        }
+        segmentFree = new AtomicIntegerArray(counts);
+    }
+
+    // Adds delta to the segments that a claim (taken = mask before it) takes away from a seat,
+    // or that a release (taken = mask after it) gives back: those inside the run of free legs
+    // around fromLeg..toLeg-1 that overlap it
+    private void adjustSegments(long taken, int fromLeg, int toLeg, int delta) {
+        AtomicIntegerArray counts = segmentFree;
+        if (counts == null) {
+            return;
+        }
+        long before = taken & ((1L << fromLeg) - 1);
+        int lo = before == 0 ? 0 : 64 - Long.numberOfLeadingZeros(before);
+        long after = taken >>> toLeg;
+        int hi = after == 0 ? legs : Math.min(toLeg + Long.numberOfTrailingZeros(after), legs);
+        for (int from = lo; from < toLeg; from++) {
+            for (int to = Math.max(from, fromLeg) + 1; to <= hi; to++) {
+                counts.addAndGet(segmentIndex(from, to), delta);
+            }
+        }
+    }
+
+    /** Bits of summary word {@code w} that map to real seats. */
+    private long validBits(int w) {
+        int remaining = capacity() - (w << WORD_SHIFT);
+        return remaining >= 64 ? -1L : (1L << remaining) - 1;
+    }
+
+    private boolean testOccupied(int seat) {
+        return (occupied.get(seat >>> WORD_SHIFT) & (1L << seat)) != 0;
+    }
+
+    private void markOccupied(int seat) {
+        int word = seat >>> WORD_SHIFT;
+        long bit = 1L << seat;
+        long current;
+        do {
+            current = occupied.get(word);
+            if ((current & bit) != 0) {
+                return;
+            }
+        } while (!occupied.compareAndSet(word, current, current | bit));
+    }
+
+    // A claim racing with the release may have set a leg after the mask was seen empty; it
+    // marks the seat itself afterwards, and re-checking here covers the opposite order
+    private void clearOccupied(int seat) {
+        int word = seat >>> WORD_SHIFT;
+        long bit = 1L << seat;
+        long current;
+        do {
+            current = occupied.get(word);
+        } while (!occupied.compareAndSet(word, current, current & ~bit));
+        if (anyLeg(seat)) {
+            markOccupied(seat);
+        }
+    }
+
+    private boolean isSeatFree(int seat, int fromLeg, int toLeg) {
+        int base = seat * wordsPerSeat;
+        for (int w = 0; w < wordsPerSeat; w++) {
+            if ((legMasks.get(base + w) & segmentMask(w, fromLeg, toLeg)) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean anyLeg(int seat) {
+        int base = seat * wordsPerSeat;
+        for (int w = 0; w < wordsPerSeat; w++) {
+            if (legMasks.get(base + w) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int countOccupied(int from, int to) {
+        if (from >= to) {
+            return 0;
+        }
+        int firstWord = from >>> WORD_SHIFT;
+        int lastWord = (to - 1) >>> WORD_SHIFT;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (WORD_MASK - ((to - 1) & WORD_MASK));
+        if (firstWord == lastWord) {
+            return Long.bitCount(occupied.get(firstWord) & firstMask & lastMask);
+        }
+        int count = Long.bitCount(occupied.get(firstWord) & firstMask);
+        for (int i = firstWord + 1; i < lastWord; i++) {
+            count += Long.bitCount(occupied.get(i));
+        }
+        return count + Long.bitCount(occupied.get(lastWord) & lastMask);
+    }
+
+    /** Bits of legs fromLeg..toLeg-1 that fall into mask word {@code word}. */
+    static long segmentMask(int word, int fromLeg, int toLeg) {
+        int lo = Math.max(fromLeg - (word << WORD_SHIFT), 0);
+        int hi = Math.min(toLeg - (word << WORD_SHIFT), 64);
+        if (lo >= hi) {
+            return 0L;
+        }
+        long upTo = hi == 64 ? -1L : (1L << hi) - 1;
+        return upTo & (-1L << lo);
+    }
+
+    private static void checkLegs(int legs) {
+        if (legs < 1 || legs > MAX_LEGS) {
+            throw new IllegalArgumentException("A route must have between 1 and " + MAX_LEGS + " legs, got " + legs);
+        }
+    }
+
+    private static int wordsPerSeat(int legs) {
+        return legs > 64 ? 2 : 1;
+    }
+
+    private static Object[] newStripes(int wordsPerSeat) {
+        if (wordsPerSeat == 1) {
+            return null;
+        }
+        Object[] stripes = new Object[STRIPES];
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        return stripes;
+    }
+
+    private static long[] toArray(AtomicLongArray words) {
+        long[] copy = new long[words.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = words.get(i);
+        }
+        return copy;
+    }
+
+    private static int wordCount(int bits) {
+        return Math.max(1, (bits + WORD_MASK) >>> WORD_SHIFT);
+    }
+
+    private static int[] uniformRows(int rows, int cols) {
+        int[] rowStart = new int[rows + 1];
+        for (int row = 0; row < rows; row++) {
+            rowStart[row + 1] = rowStart[row] + cols;
+        }
+        return rowStart;
+    }
+}
@@ -1,18 +1,19 @@
 package com.ticketbooking.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class Ticket {
     private String ticketId;
     private String userId;
     private String source;
     private String destination;
     private String dateOfTravel;
+    // Only the train's identity and route are stored with the ticket, never its seat inventory
+    @JsonIgnoreProperties(value = {"seats", "datedSeats", "trainInfo"}, ignoreUnknown = true)
     private Train train;
+    private Integer row;
+    private Integer col;
 
     public Ticket(){}
 
@@ -76,4 +77,20 @@ public class Ticket {
     public void setTrain(Train train){
         this.train = train;
     }
+
+    public Integer getRow(){
+        return row;
+    }
+
+    public void setRow(Integer row){
+        this.row = row;
+    }
+
+    public Integer getCol(){
+        return col;
+    }
+
+    public void setCol(Integer col){
+        this.col = col;
+    }
 }
\ No newline at end of file
@@ -1,43 +1,49 @@
 package com.ticketbooking.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListMap;
 
+// trains.json and the frontend both use camelCase keys, so no naming strategy here
 @JsonIgnoreProperties(ignoreUnknown = true)
-@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 public class Train {
     private String trainId;
     private String trainNo;
     private String trainName;
-    private List<List<Integer>> seats;
+    private SeatMap seats;
     private Map<String, String> stationTimes;
     private List<String> stations;
+    // Seat inventory per travel date (ISO yyyy-MM-dd). Only dates with at least one booking
+    // have an entry; every other date is served from the template in {@code seats}.
+    private NavigableMap<String, SeatMap> datedSeats = new ConcurrentSkipListMap<>();
 
     public Train(){}
 
-    public Train(String trainId, String trainNo, List<List<Integer>> seats,
+    public Train(String trainId, String trainNo, SeatMap seats,
                  Map<String, String> stationTimes, List<String> stations){
         this.trainId = trainId;
         this.trainNo = trainNo;
         this.seats = seats;
         this.stationTimes = stationTimes;
         this.stations = stations;
+        bindLegs();
     }
 
     public List<String> getStations(){
         return stations;
     }
 
-    public List<List<Integer>> getSeats() {
+    public SeatMap getSeats() {
         return seats;
     }
 
-    public void setSeats(List<List<Integer>> seats){
+    public void setSeats(SeatMap seats){
         this.seats = seats;
+        bindLegs();
     }
 
     public String getTrainId(){
@@ -66,6 +72,93 @@ public class Train {
 
     public void setStations(List<String> stations){
         this.stations = stations;
+        bindLegs();
+    }
+
+    public NavigableMap<String, SeatMap> getDatedSeats(){
+        return datedSeats;
+    }
+
+    public void setDatedSeats(Map<String, SeatMap> datedSeats){
+        this.datedSeats = new ConcurrentSkipListMap<>(datedSeats);
+        bindLegs();
+    }
+
+    /**
+     * Takes over the seats sold on the train this one replaces. The dated maps are shared rather
+     * than copied, so a booking still working on the old train lands in them too. Returns false,
+     * changing nothing, unless both trains have the same stations and seat layout.
+     */
+    public boolean inheritDatedSeats(Train previous){
+        if (!Objects.equals(stations, previous.stations) || !sameLayout(seats, previous.seats)) {
+            return false;
+        }
+        datedSeats = previous.datedSeats;
+        return true;
+    }
+
+    private static boolean sameLayout(SeatMap a, SeatMap b){
+        if (a == null || b == null || a.rows() != b.rows()) {
+            return a == b;
+        }
+        for (int row = 0; row < a.rows(); row++) {
+            if (a.rowLength(row) != b.rowLength(row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A train identical to this one but with its own dated seat maps; used to write snapshots
+     * that differ from the live inventory without touching it. The given maps must already be
+     * sized for this route, as copies of its own shards are.
+     */
+    public Train withDatedSeats(Map<String, SeatMap> datedSeats){
+        // Fields are copied directly: the setters rebind legs, which would rebuild the counters of
+        // the template this copy shares with the live train, from the snapshot thread
+        Train copy = new Train();
+        copy.trainId = trainId;
+        copy.trainNo = trainNo;
+        copy.trainName = trainName;
+        copy.seats = seats;
+        copy.stationTimes = stationTimes;
+        copy.stations = stations;
+        copy.datedSeats = new ConcurrentSkipListMap<>(datedSeats);
+        return copy;
+    }
+
+    /**
+     * Seats as sold for the given travel date, or the template layout if nothing has been
+     * booked on that date yet. Never allocates.
+     */
+    public SeatMap seatsOn(String dateOfTravel){
+        SeatMap shard = datedSeats.get(dateOfTravel);
+        return shard != null ? shard : seats;
+    }
+
+    /**
+     * Position of the station on this train's route, matched case-insensitively,
+     * or -1 if the train does not stop there.
+     */
+    public int stationIndex(String station){
+        if (station == null || stations == null) {
+            return -1;
+        }
+        return stations.indexOf(station.toLowerCase().trim());
+    }
+
+    // Seat masks have one bit per leg between consecutive stations
+    private void bindLegs(){
+        if (stations == null || stations.size() < 2) {
+            return;
+        }
+        if (seats != null) {
+            seats.setLegs(stations.size() - 1);
+        }
+        for (SeatMap shard : datedSeats.values()) {
+            shard.setLegs(stations.size() - 1);
+        }
     }
 
     public String getTrainInfo(){
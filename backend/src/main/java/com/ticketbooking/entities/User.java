@@ -1,13 +1,11 @@
 package com.ticketbooking.entities;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import com.fasterxml.jackson.databind.PropertyNamingStrategy;
-import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
-@JsonNaming(PropertyNamingStrategy.SnakeCaseStrategy.class)
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class User {
 
@@ -15,7 +13,7 @@ public class User {
     private String userId;
     private String password;
     private String hashedPassword;
-    private List<Ticket> ticketsBooked;
+    private List<Ticket> ticketsBooked = new ArrayList<>();
 
     public User(){}
 
@@ -0,0 +1,134 @@
+package com.ticketbooking.server;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Responses of requests sent with an {@code Idempotency-Key} header, so a client retrying after
+ * a timeout gets the original answer instead of booking or cancelling a second time.
+ *
+ * The first request with a key runs; a repeat with the same key and body gets the stored
+ * response without running again, and one arriving while the first is still running waits for
+ * it. Reusing a key for a different body is refused. A request that throws stores nothing, so
+ * it can be retried.
+ *
+ * Keys are kept for a fixed time and at most {@code maxKeys} of them. Since every key lives
+ * for the same time, insertion order is expiry order and a FIFO queue is enough to evict both
+ * the expired and, when full, the oldest.
+ */
+final class IdempotencyCache {
+
+    static final String HEADER = "Idempotency-Key";
+
+    static final class Response {
+        final int status;
+        final Object body;
+
+        Response(int status, Object body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private static final class Entry {
+        final String key;
+        final Object request;
+        final long createdMillis;
+        final CompletableFuture<Response> response = new CompletableFuture<>();
+
+        Entry(String key, Object request, long createdMillis) {
+            this.key = key;
+            this.request = request;
+            this.createdMillis = createdMillis;
+        }
+    }
+
+    private final int maxKeys;
+    private final long ttlMillis;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    IdempotencyCache(int maxKeys, long ttlMillis) {
+        this.maxKeys = maxKeys;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * Runs {@code action} unless a request with the same scope and key has run already, in which
+     * case its response is returned. Without a key the action always runs.
+     */
+    Response execute(String scope, String key, Object request, Callable<Response> action) throws Exception {
+        if (key == null || key.isEmpty()) {
+            return action.call();
+        }
+        String scopedKey = scope + ' ' + key;
+        long now = System.currentTimeMillis();
+        Entry entry = new Entry(scopedKey, request, now);
+        Entry existing;
+        while ((existing = entries.putIfAbsent(scopedKey, entry)) != null && expired(existing, now)) {
+            entries.remove(scopedKey, existing);
+        }
+        if (existing != null) {
+            hits.increment();
+            if (!Objects.equals(existing.request, request)) {
+                return new Response(422, Map.of("success", false, "message", "Idempotency-Key was already used for a different request"));
+            }
+            try {
+                return existing.response.join();
+            } catch (CompletionException e) {
+                // The first attempt failed and stored nothing; this one runs instead
+                return execute(scope, key, request, action);
+            }
+        }
+
+        misses.increment();
+        order.add(entry);
+        queued.incrementAndGet();
+        evict(now);
+        try {
+            Response response = action.call();
+            entry.response.complete(response);
+            return response;
+        } catch (Exception e) {
+            entries.remove(scopedKey, entry);
+            entry.response.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    private boolean expired(Entry entry, long now) {
+        return now - entry.createdMillis >= ttlMillis;
+    }
+
+    private void evict(long now) {
+        for (Entry oldest; (oldest = order.peek()) != null && (queued.get() > maxKeys || expired(oldest, now)); ) {
+            if (order.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ticketbooking.server;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Writes a value as the JSON body of a response, straight from Jackson's generator.
+ *
+ * The JSON is generated into a buffer kept per thread, so the usual small response goes out
+ * with its exact byte length and without building a String. A response that outgrows the
+ * buffer switches to chunked encoding: what is buffered is sent and the generator carries on
+ * writing into the exchange, so the buffer never grows past {@link #BUFFER_LIMIT}.
+ */
+final class JsonResponse {
+
+    static final int BUFFER_LIMIT = 64 * 1024;
+
+    private static final ThreadLocal<ByteArrayOutputStream> BUFFERS =
+            ThreadLocal.withInitial(() -> new ByteArrayOutputStream(4096));
+
+    private JsonResponse() {
+    }
+
+    static ObjectMapper configure(ObjectMapper mapper) {
+        // Jackson must not close the exchange body; the handler closes the exchange
+        mapper.getFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        return mapper;
+    }
+
+    static void send(HttpExchange exchange, int status, Object value, ObjectMapper mapper) throws IOException {
+        ByteArrayOutputStream buffer = BUFFERS.get();
+        buffer.reset();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        SpillingStream out = new SpillingStream(exchange, status, buffer);
+        mapper.writeValue(out, value);
+        if (!out.spilled) {
+            exchange.sendResponseHeaders(status, buffer.size());
+            buffer.writeTo(exchange.getResponseBody());
+        }
+        buffer.reset();
+    }
+
+    // Buffers until the limit, then sends the headers for a chunked response and writes through
+    private static final class SpillingStream extends OutputStream {
+        private final HttpExchange exchange;
+        private final int status;
+        private final ByteArrayOutputStream buffer;
+        private OutputStream body;
+        boolean spilled;
+
+        SpillingStream(HttpExchange exchange, int status, ByteArrayOutputStream buffer) {
+            this.exchange = exchange;
+            this.status = status;
+            this.buffer = buffer;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (!spilled && buffer.size() + length > BUFFER_LIMIT) {
+                exchange.sendResponseHeaders(status, 0);
+                body = exchange.getResponseBody();
+                buffer.writeTo(body);
+                buffer.reset();
+                spilled = true;
+            }
+            if (spilled) {
+                body.write(bytes, offset, length);
+            } else {
+                buffer.write(bytes, offset, length);
+            }
+        }
+    }
+}
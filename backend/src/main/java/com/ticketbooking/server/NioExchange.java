@@ -0,0 +1,209 @@
+package com.ticketbooking.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link HttpExchange} for one request read by {@link NioHttpServer}, so the server can run
+ * the same handlers as the JDK server.
+ *
+ * The response body is buffered and sent once the handler returns, with a Content-Length
+ * taken from the bytes actually written.
+ */
+final class NioExchange extends HttpExchange {
+
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private InputStream requestBody;
+    private OutputStream responseBody = body;
+    private int responseCode = -1;
+    private boolean noBody;
+
+    NioExchange(String method, URI uri, String protocol, Headers requestHeaders, byte[] requestBody,
+                InetSocketAddress remoteAddress, InetSocketAddress localAddress) {
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestBody = new ByteArrayInputStream(requestBody);
+        this.remoteAddress = remoteAddress;
+        this.localAddress = localAddress;
+    }
+
+    /** Whether the client asked to keep the connection open after this request. */
+    boolean keepAlive() {
+        String connection = requestHeaders.getFirst("Connection");
+        if ("HTTP/1.0".equals(protocol)) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.equalsIgnoreCase("close");
+    }
+
+    /**
+     * Status line, headers and body to write for this exchange, or null if the handler never
+     * sent response headers.
+     */
+    byte[] response(boolean keepAlive) {
+        if (responseCode == -1) {
+            return null;
+        }
+        byte[] content = noBody || "HEAD".equals(method) ? new byte[0] : body.toByteArray();
+        StringBuilder head = new StringBuilder(256);
+        head.append("HTTP/1.1 ").append(responseCode).append(' ').append(reason(responseCode)).append("\r\n");
+        for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+            if (header.getKey().equalsIgnoreCase("Content-Length") || header.getKey().equalsIgnoreCase("Connection")) {
+                continue;
+            }
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        head.append("Content-Length: ").append(noBody && !"HEAD".equals(method) ? 0 : body.size()).append("\r\n");
+        head.append("Connection: ").append(keepAlive ? "keep-alive" : "close").append("\r\n\r\n");
+        byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+        byte[] response = new byte[headBytes.length + content.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(content, 0, response, headBytes.length, content.length);
+        return response;
+    }
+
+    static byte[] errorResponse(int code) {
+        return ("HTTP/1.1 " + code + " " + reason(code) + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+        // The response is sent by the server once the handler returns
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("headers already sent");
+        }
+        responseCode = rCode;
+        noBody = responseLength == -1 || rCode == 204 || rCode == 304;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static String reason(int code) {
+        switch (code) {
+            case 200: return "OK";
+            case 201: return "Created";
+            case 204: return "No Content";
+            case 304: return "Not Modified";
+            case 400: return "Bad Request";
+            case 404: return "Not Found";
+            case 405: return "Method Not Allowed";
+            case 409: return "Conflict";
+            case 413: return "Payload Too Large";
+            case 429: return "Too Many Requests";
+            case 431: return "Request Header Fields Too Large";
+            case 500: return "Internal Server Error";
+            case 501: return "Not Implemented";
+            case 503: return "Service Unavailable";
+            default: return "";
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package com.ticketbooking.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1 server on NIO selectors, an alternative to the JDK {@code HttpServer} that runs the
+ * same {@link HttpHandler}s.
+ *
+ * An acceptor thread hands new connections round-robin to a fixed set of I/O threads, each
+ * with its own selector. Connections stay open between requests (keep-alive) and clients may
+ * send several requests without waiting (pipelining): requests on one connection are handled
+ * one at a time, in order, on the executor, and their responses written back in that order
+ * while later requests wait in the connection's buffer. Socket reads and writes go through
+ * direct buffers owned by each I/O thread, so only the I/O thread ever touches a connection.
+ *
+ * Request bodies must carry a Content-Length; chunked uploads are answered with 501.
+ */
+public final class NioHttpServer {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HEADER_BYTES = 16 * 1024;
+    private static final int MAX_BODY_BYTES = 1024 * 1024;
+    private static final byte[] HEADER_END = {'\r', '\n', '\r', '\n'};
+
+    private final InetSocketAddress address;
+    private final Executor executor;
+    private final long idleTimeoutNanos;
+    private final IoLoop[] loops;
+    // Longest prefix first, like HttpServer contexts
+    private final TreeMap<String, HttpHandler> contexts = new TreeMap<>((a, b) ->
+            a.length() != b.length() ? Integer.compare(b.length(), a.length()) : a.compareTo(b));
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running;
+
+    public NioHttpServer(InetSocketAddress address, int ioThreads, Executor executor, int idleTimeoutSeconds) {
+        this.address = address;
+        this.executor = executor;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.loops = new IoLoop[Math.max(ioThreads, 1)];
+    }
+
+    public void createContext(String path, HttpHandler handler) {
+        contexts.put(path, handler);
+    }
+
+    public void start() throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        running = true;
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new IoLoop();
+            Thread thread = new Thread(loops[i], "http-io-" + (i + 1));
+            thread.start();
+        }
+        acceptor = new Thread(this::accept, "http-acceptor");
+        acceptor.start();
+    }
+
+    /** The address the server listens on, with the actual port once started on port 0. */
+    public InetSocketAddress getAddress() {
+        try {
+            return serverChannel == null ? address : (InetSocketAddress) serverChannel.getLocalAddress();
+        } catch (IOException e) {
+            return address;
+        }
+    }
+
+    public void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // already closed
+        }
+        for (IoLoop loop : loops) {
+            if (loop != null) {
+                loop.selector.wakeup();
+            }
+        }
+    }
+
+    private void accept() {
+        int next = 0;
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                loops[next].register(channel);
+                next = (next + 1) % loops.length;
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                System.err.println("Failed to accept connection: " + e.getMessage());
+            }
+        }
+    }
+
+    private HttpHandler handlerFor(String path) {
+        for (Map.Entry<String, HttpHandler> context : contexts.entrySet()) {
+            if (path.startsWith(context.getKey())) {
+                return context.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static final class Connection {
+        final SocketChannel channel;
+        SelectionKey key;
+        byte[] in = new byte[1024];
+        int inLength;
+        // Where to resume looking for the end of the headers
+        int scanned;
+        // A request is being handled or its response written; later requests wait in `in`
+        boolean busy;
+        ByteBuffer out;
+        byte[] pending;
+        int pendingOffset;
+        boolean closeAfterWrite;
+        long lastActive = System.nanoTime();
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final class IoLoop implements Runnable {
+        final Selector selector;
+        final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        final ArrayDeque<ByteBuffer> writeBuffers = new ArrayDeque<>();
+
+        IoLoop() throws IOException {
+            selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            submit(() -> {
+                try {
+                    Connection connection = new Connection(channel);
+                    connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                } catch (IOException e) {
+                    closeQuietly(channel);
+                }
+            });
+        }
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            long lastSweep = System.nanoTime();
+            while (running) {
+                try {
+                    selector.select(1000);
+                    for (Runnable task; (task = tasks.poll()) != null; ) {
+                        task.run();
+                    }
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+                        Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isValid() && key.isReadable()) {
+                                read(connection);
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                write(connection);
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            close(connection);
+                        }
+                    }
+                    long now = System.nanoTime();
+                    if (now - lastSweep > TimeUnit.SECONDS.toNanos(1)) {
+                        lastSweep = now;
+                        closeIdle(now);
+                    }
+                } catch (IOException e) {
+                    System.err.println("HTTP I/O loop error: " + e.getMessage());
+                }
+            }
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+        }
+
+        private void read(Connection connection) throws IOException {
+            int read;
+            while ((read = connection.channel.read(readBuffer)) > 0) {
+                readBuffer.flip();
+                if (connection.inLength + read > connection.in.length) {
+                    connection.in = Arrays.copyOf(connection.in, Math.max(connection.in.length * 2, connection.inLength + read));
+                }
+                readBuffer.get(connection.in, connection.inLength, read);
+                connection.inLength += read;
+                readBuffer.clear();
+            }
+            connection.lastActive = System.nanoTime();
+            if (read == -1) {
+                close(connection);
+                return;
+            }
+            if (!connection.busy) {
+                next(connection);
+            }
+        }
+
+        // Starts the next complete request in the connection's buffer, if there is one
+        private void next(Connection connection) {
+            int end = indexOf(connection.in, connection.inLength, Math.max(connection.scanned - 3, 0));
+            if (end == -1) {
+                connection.scanned = connection.inLength;
+                if (connection.inLength > MAX_HEADER_BYTES) {
+                    fail(connection, 431);
+                } else {
+                    connection.key.interestOps(SelectionKey.OP_READ);
+                }
+                return;
+            }
+            String[] lines = new String(connection.in, 0, end, StandardCharsets.ISO_8859_1).split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            if (requestLine.length != 3 || !requestLine[2].startsWith("HTTP/1.")) {
+                fail(connection, 400);
+                return;
+            }
+            Headers headers = new Headers();
+            for (int i = 1; i < lines.length; i++) {
+                int colon = lines[i].indexOf(':');
+                if (colon <= 0) {
+                    fail(connection, 400);
+                    return;
+                }
+                headers.add(lines[i].substring(0, colon).trim(), lines[i].substring(colon + 1).trim());
+            }
+            if (headers.containsKey("Transfer-Encoding")) {
+                fail(connection, 501);
+                return;
+            }
+            int length;
+            URI uri;
+            try {
+                length = Integer.parseInt(headers.getFirst("Content-Length") == null ? "0" : headers.getFirst("Content-Length"));
+                uri = new URI(requestLine[1]);
+            } catch (Exception e) {
+                fail(connection, 400);
+                return;
+            }
+            if (length < 0 || length > MAX_BODY_BYTES) {
+                fail(connection, length < 0 ? 400 : 413);
+                return;
+            }
+            int bodyStart = end + HEADER_END.length;
+            if (connection.inLength < bodyStart + length) {
+                connection.key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+            byte[] body = Arrays.copyOfRange(connection.in, bodyStart, bodyStart + length);
+            int consumed = bodyStart + length;
+            System.arraycopy(connection.in, consumed, connection.in, 0, connection.inLength - consumed);
+            connection.inLength -= consumed;
+            connection.scanned = 0;
+
+            NioExchange exchange = new NioExchange(requestLine[0], uri, requestLine[2], headers, body,
+                    (InetSocketAddress) connection.channel.socket().getRemoteSocketAddress(),
+                    (InetSocketAddress) connection.channel.socket().getLocalSocketAddress());
+            HttpHandler handler = handlerFor(uri.getPath() == null ? "/" : uri.getPath());
+            if (handler == null) {
+                respond(connection, exchange.keepAlive() ? notFound() : NioExchange.errorResponse(404), !exchange.keepAlive());
+                return;
+            }
+            // Stop reading while the handler runs; pipelined requests wait in the socket buffer
+            connection.busy = true;
+            connection.key.interestOps(0);
+            try {
+                executor.execute(() -> {
+                    boolean keepAlive = exchange.keepAlive();
+                    byte[] response;
+                    try {
+                        handler.handle(exchange);
+                        response = exchange.response(keepAlive);
+                    } catch (Exception e) {
+                        System.err.println("Error handling " + uri.getPath() + ": " + e.getMessage());
+                        response = null;
+                    }
+                    byte[] toSend = response == null ? NioExchange.errorResponse(500) : response;
+                    boolean close = response == null || !keepAlive;
+                    submit(() -> respond(connection, toSend, close));
+                });
+            } catch (RejectedExecutionException e) {
+                respond(connection, NioExchange.errorResponse(503), true);
+            }
+        }
+
+        private byte[] notFound() {
+            return "HTTP/1.1 404 Not Found\r\nContent-Length: 0\r\nConnection: keep-alive\r\n\r\n"
+                    .getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+        private void fail(Connection connection, int code) {
+            connection.inLength = 0;
+            respond(connection, NioExchange.errorResponse(code), true);
+        }
+
+        private void respond(Connection connection, byte[] response, boolean close) {
+            if (!connection.key.isValid()) {
+                return;
+            }
+            connection.busy = true;
+            connection.pending = response;
+            connection.pendingOffset = 0;
+            connection.closeAfterWrite = close;
+            try {
+                write(connection);
+            } catch (IOException e) {
+                close(connection);
+            }
+        }
+
+        private void write(Connection connection) throws IOException {
+            if (connection.pending == null) {
+                return;
+            }
+            if (connection.out == null) {
+                connection.out = writeBuffers.isEmpty() ? ByteBuffer.allocateDirect(BUFFER_SIZE) : writeBuffers.pop();
+            }
+            ByteBuffer out = connection.out;
+            while (true) {
+                int chunk = Math.min(out.remaining(), connection.pending.length - connection.pendingOffset);
+                out.put(connection.pending, connection.pendingOffset, chunk);
+                connection.pendingOffset += chunk;
+                out.flip();
+                connection.channel.write(out);
+                if (out.hasRemaining()) {
+                    out.compact();
+                    connection.key.interestOps(SelectionKey.OP_WRITE);
+                    return;
+                }
+                out.clear();
+                if (connection.pendingOffset == connection.pending.length) {
+                    break;
+                }
+            }
+            release(connection);
+            connection.pending = null;
+            connection.lastActive = System.nanoTime();
+            if (connection.closeAfterWrite) {
+                close(connection);
+                return;
+            }
+            connection.busy = false;
+            next(connection);
+        }
+
+        private void release(Connection connection) {
+            if (connection.out != null) {
+                connection.out.clear();
+                writeBuffers.push(connection.out);
+                connection.out = null;
+            }
+        }
+
+        private void closeIdle(long now) {
+            for (SelectionKey key : selector.keys()) {
+                Connection connection = (Connection) key.attachment();
+                if (connection != null && !connection.busy && now - connection.lastActive > idleTimeoutNanos) {
+                    close(connection);
+                }
+            }
+        }
+
+        private void close(Connection connection) {
+            release(connection);
+            connection.key.cancel();
+            closeQuietly(connection.channel);
+        }
+    }
+
+    private static int indexOf(byte[] data, int length, int from) {
+        for (int i = from; i + HEADER_END.length <= length; i++) {
+            if (data[i] == '\r' && data[i + 1] == '\n' && data[i + 2] == '\r' && data[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static void closeQuietly(java.io.Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // nothing left to do
+        }
+    }
+}
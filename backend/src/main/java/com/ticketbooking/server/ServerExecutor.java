@@ -0,0 +1,174 @@
+package com.ticketbooking.server;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The executor the HTTP server hands exchanges to, with gauges for how many requests are
+ * waiting and how many are being handled.
+ *
+ * Models, picked with {@code -Dserver.executor}:
+ * <ul>
+ *   <li>{@code pool} (default): a fixed pool of platform threads with a bounded queue. When the
+ *   queue is full the dispatcher thread runs the request itself, which stops it accepting new
+ *   connections until it is done; those requests are counted as overflowed. Created with
+ *   {@code shedWhenFull}, as for the NIO server whose caller is a selector thread serving many
+ *   connections, it refuses them with a {@link RejectedExecutionException} instead.</li>
+ *   <li>{@code workstealing}: a {@link ForkJoinPool} sized to the thread count.</li>
+ *   <li>{@code virtual}: one virtual thread per request. Needs a Java 21+ runtime; the build
+ *   still targets 11, so the executor is looked up reflectively and the server falls back to
+ *   {@code pool} on older runtimes.</li>
+ *   <li>{@code dispatcher}: everything on the server's dispatcher thread, as before; under the
+ *   NIO server that is the selector thread, so this is for measurements only.</li>
+ * </ul>
+ */
+public final class ServerExecutor implements Executor {
+
+    public static final String POOL = "pool";
+    public static final String WORK_STEALING = "workstealing";
+    public static final String VIRTUAL = "virtual";
+    public static final String DISPATCHER = "dispatcher";
+
+    private final String model;
+    private final Executor delegate;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    private ServerExecutor(String model, int threads, int queueLimit, boolean shedWhenFull) {
+        this.model = model;
+        switch (model) {
+            case DISPATCHER:
+                delegate = Runnable::run;
+                break;
+            case WORK_STEALING:
+                delegate = Executors.newWorkStealingPool(threads);
+                break;
+            case VIRTUAL:
+                delegate = newVirtualThreadPerTaskExecutor(virtualThreadFactory());
+                break;
+            default:
+                RejectedExecutionHandler overflow = (task, pool) -> {
+                    overflowed.incrementAndGet();
+                    if (shedWhenFull) {
+                        throw new RejectedExecutionException("Request queue is full");
+                    }
+                    if (!pool.isShutdown()) {
+                        task.run();
+                    }
+                };
+                delegate = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(queueLimit), threadFactory(), overflow);
+        }
+    }
+
+    /**
+     * Executor for the configured model; unknown names and {@code virtual} on a runtime without
+     * virtual threads get the bounded pool.
+     */
+    public static ServerExecutor create(String model, int threads, int queueLimit) {
+        return create(model, threads, queueLimit, false);
+    }
+
+    /**
+     * As {@link #create(String, int, int)}; with {@code shedWhenFull} a full {@code pool} queue
+     * rejects requests rather than running them on the caller.
+     */
+    public static ServerExecutor create(String model, int threads, int queueLimit, boolean shedWhenFull) {
+        String name = model == null ? POOL : model.trim().toLowerCase();
+        if (VIRTUAL.equals(name) && virtualThreadFactory() == null) {
+            System.err.println("Virtual threads need Java 21 or newer, using the thread pool instead");
+            name = POOL;
+        } else if (!VIRTUAL.equals(name) && !WORK_STEALING.equals(name) && !DISPATCHER.equals(name)) {
+            name = POOL;
+        }
+        return new ServerExecutor(name, Math.max(threads, 1), Math.max(queueLimit, 1), shedWhenFull);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                    completed.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        if (delegate instanceof ExecutorService) {
+            ((ExecutorService) delegate).shutdown();
+        }
+    }
+
+    public String getModel() {
+        return model;
+    }
+
+    /** Requests handed over but not started yet. */
+    public int getQueueDepth() {
+        return queued.get();
+    }
+
+    /** Requests being handled right now. */
+    public int getActiveWorkers() {
+        return active.get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /** Requests the pool had no room for, run on the dispatcher thread or refused. */
+    public long getOverflowed() {
+        return overflowed.get();
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor, or null before Java 21
+    private static Method virtualThreadFactory() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newVirtualThreadPerTaskExecutor(Method factory) {
+        try {
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to create virtual thread executor", e);
+        }
+    }
+
+    private static ThreadFactory threadFactory() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "http-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
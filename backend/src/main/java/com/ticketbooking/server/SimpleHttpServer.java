@@ -8,20 +8,34 @@ import com.ticketbooking.services.TrainService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ticketbooking.entities.User;
 import com.ticketbooking.entities.Train;
+import com.ticketbooking.utils.Constants;
+import com.ticketbooking.utils.Metrics;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.TimeUnit;
 
 public class SimpleHttpServer {
-    private static final ObjectMapper mapper = new ObjectMapper();
+    private static final ObjectMapper mapper = JsonResponse.configure(new ObjectMapper());
     private static UserBookingService userService;
     private static TrainService trainService;
+    private static ServerExecutor executor;
+    // Lets clients retry bookings and cancellations without doing them twice
+    private static final IdempotencyCache idempotency = new IdempotencyCache(Constants.IDEMPOTENCY_MAX_KEYS,
+            TimeUnit.SECONDS.toMillis(Constants.IDEMPOTENCY_TTL_SECONDS));
+    // Answer to a booking the journal could not make durable; a 5xx, so it is never stored for a key
+    private static final String NOT_SAVED = "Booking could not be saved, please try again";
     
     static {
         try {
-            userService = new UserBookingService();
+            // One inventory for the whole server: searches read the seats bookings change
             trainService = new TrainService();
+            userService = new UserBookingService(trainService);
         } catch (IOException e) {
             System.err.println("Failed to initialize services: " + e.getMessage());
             System.exit(1);
@@ -29,18 +43,48 @@ public class SimpleHttpServer {
     }
 
     public static void main(String[] args) throws IOException {
-        HttpServer server = HttpServer.create(new InetSocketAddress(8080), 0);
+        Map<String, HttpHandler> routes = new LinkedHashMap<>();
+        routes.put("/api/login", new LoginHandler());
+        routes.put("/api/signup", new SignupHandler());
+        routes.put("/api/trains/search", new TrainSearchHandler());
+        routes.put("/api/trains/seats", new SeatsHandler());
+        routes.put("/api/stations/suggest", new StationSuggestHandler());
+        routes.put("/api/book", new BookingHandler());
+        routes.put("/api/book/group", new GroupBookingHandler());
+        routes.put("/api/book/auto", new AutoBookingHandler());
+        routes.put("/api/holds", new HoldHandler());
+        routes.put("/api/holds/confirm", new HoldConfirmHandler());
+        routes.put("/api/holds/release", new HoldReleaseHandler());
+        routes.put("/api/waitlist", new WaitlistHandler());
+        routes.put("/api/bookings", new BookingsHandler());
+        routes.put("/api/cancel", new CancelHandler());
+        routes.put("/api/status", new StatusHandler());
+        routes.put("/api/metrics", new MetricsHandler());
+        routes.replaceAll((path, handler) -> new TimedHandler(handler, Metrics.DEFAULT.httpTimer(path)));
         
-        server.createContext("/api/login", new LoginHandler());
-        server.createContext("/api/signup", new SignupHandler());
-        server.createContext("/api/trains/search", new TrainSearchHandler());
-        server.createContext("/api/book", new BookingHandler());
-        server.createContext("/api/bookings", new BookingsHandler());
-        server.createContext("/api/cancel", new CancelHandler());
-        
-        server.setExecutor(null);
-        server.start();
-        System.out.println("🚀 Server started on http://localhost:8080");
+        InetSocketAddress address = new InetSocketAddress(8080);
+        String transport = System.getProperty(Constants.SERVER_TRANSPORT_PROPERTY, "jdk");
+        boolean nio = "nio".equalsIgnoreCase(transport);
+        // The NIO server hands requests over from a selector thread serving many connections,
+        // which must not run one itself; a full queue answers 503 there instead
+        executor = ServerExecutor.create(System.getProperty(Constants.SERVER_EXECUTOR_PROPERTY),
+                Integer.getInteger(Constants.SERVER_THREADS_PROPERTY, Constants.SERVER_THREADS),
+                Integer.getInteger(Constants.SERVER_QUEUE_PROPERTY, Constants.SERVER_QUEUE_LIMIT), nio);
+        if (nio) {
+            NioHttpServer server = new NioHttpServer(address,
+                    Integer.getInteger(Constants.SERVER_IO_THREADS_PROPERTY, Constants.SERVER_IO_THREADS),
+                    executor, Constants.SERVER_IDLE_TIMEOUT_SECONDS);
+            routes.forEach(server::createContext);
+            server.start();
+        } else {
+            transport = "jdk";
+            HttpServer server = HttpServer.create(address, 0);
+            routes.forEach(server::createContext);
+            server.setExecutor(executor);
+            server.start();
+        }
+        System.out.println("🚀 Server started on http://localhost:8080 (" + transport + " transport, "
+                + executor.getModel() + " executor)");
         System.out.println("📱 Frontend should connect to this server");
     }
 
@@ -53,8 +97,7 @@ public class SimpleHttpServer {
                 return;
             }
             if ("POST".equals(exchange.getRequestMethod())) {
-                String body = new String(exchange.getRequestBody().readAllBytes());
-                Map<String, String> request = mapper.readValue(body, Map.class);
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
                 
                 User user = userService.authenticateUser(request.get("username"), request.get("password"));
                 Map<String, Object> response = new HashMap<>();
@@ -67,9 +110,7 @@ public class SimpleHttpServer {
                     response.put("message", "Invalid credentials");
                 }
                 
-                String jsonResponse = mapper.writeValueAsString(response);
-                exchange.sendResponseHeaders(200, jsonResponse.length());
-                exchange.getResponseBody().write(jsonResponse.getBytes());
+                sendJson(exchange, 200, response);
             }
             exchange.close();
         }
@@ -84,15 +125,12 @@ public class SimpleHttpServer {
                 return;
             }
             if ("POST".equals(exchange.getRequestMethod())) {
-                String body = new String(exchange.getRequestBody().readAllBytes());
-                Map<String, String> request = mapper.readValue(body, Map.class);
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
                 
                 boolean success = userService.signUpUser(request.get("username"), request.get("password"));
                 Map<String, Object> response = Map.of("success", success, "message", success ? "Signup successful" : "Username already exists");
                 
-                String jsonResponse = mapper.writeValueAsString(response);
-                exchange.sendResponseHeaders(200, jsonResponse.length());
-                exchange.getResponseBody().write(jsonResponse.getBytes());
+                sendJson(exchange, 200, response);
             }
             exchange.close();
         }
@@ -107,26 +145,101 @@ public class SimpleHttpServer {
                 return;
             }
             if ("GET".equals(exchange.getRequestMethod())) {
-                String query = exchange.getRequestURI().getQuery();
-                String source = "", destination = "";
-                
-                if (query != null) {
-                    String[] params = query.split("&");
-                    for (String param : params) {
-                        String[] keyValue = param.split("=");
-                        if (keyValue.length == 2) {
-                            if ("source".equals(keyValue[0])) source = keyValue[1];
-                            if ("destination".equals(keyValue[0])) destination = keyValue[1];
-                        }
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                String source = params.getOrDefault("source", "");
+                String destination = params.getOrDefault("destination", "");
+                LocalDate dateOfTravel;
+                try {
+                    dateOfTravel = params.containsKey("date") ? LocalDate.parse(params.get("date")) : LocalDate.now();
+                } catch (DateTimeParseException e) {
+                    dateOfTravel = LocalDate.now();
+                }
+                
+                if ("connections".equals(params.get("mode"))) {
+                    int maxChanges = Constants.MAX_CHANGES;
+                    int minConnection = Constants.MIN_CONNECTION_MINUTES;
+                    try {
+                        maxChanges = Math.min(Math.max(Integer.parseInt(params.getOrDefault("maxChanges", String.valueOf(maxChanges))), 0), Constants.MAX_CHANGES);
+                        minConnection = Math.max(Integer.parseInt(params.getOrDefault("minConnection", String.valueOf(minConnection))), 0);
+                    } catch (NumberFormatException e) {
+                        // keep the defaults
                     }
+                    List<Map<String, Object>> journeys = trainService.searchConnections(source, destination, dateOfTravel, maxChanges, minConnection);
+                    sendJson(exchange, 200, Map.of("success", true, "journeys", journeys));
+                    exchange.close();
+                    return;
+                }
+                
+                // Free seats per train for the requested segment and date, not just the whole run
+                TrainService.SearchResult result = trainService.searchTrains(source, destination, dateOfTravel);
+                Map<String, Object> response = Map.of("success", true, "trains", result.getSummaries(),
+                        "availability", result.getAvailability());
+                
+                sendJson(exchange, 200, response);
+            }
+            exchange.close();
+        }
+    }
+
+    static class SeatsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                Train train = trainService.getTrainById(params.get("trainId"));
+                if (train == null) {
+                    sendJson(exchange, 404, Map.of("success", false, "message", "Train not found"));
+                    exchange.close();
+                    return;
+                }
+                LocalDate dateOfTravel;
+                try {
+                    dateOfTravel = params.containsKey("date") ? LocalDate.parse(params.get("date")) : LocalDate.now();
+                } catch (DateTimeParseException e) {
+                    dateOfTravel = LocalDate.now();
+                }
+                List<String> stations = train.getStations();
+                String source = params.getOrDefault("source", stations.get(0));
+                String destination = params.getOrDefault("destination", stations.get(stations.size() - 1));
+                
+                List<int[]> seats = trainService.seatMatrix(train, source, destination, dateOfTravel);
+                if (seats == null) {
+                    sendJson(exchange, 400, Map.of("success", false, "message", "This train does not run between those stations"));
+                } else {
+                    sendJson(exchange, 200, Map.of("success", true, "seats", seats,
+                            "availableSeats", trainService.availableSeats(train, source, destination, dateOfTravel)));
+                }
+            }
+            exchange.close();
+        }
+    }
+
+    static class StationSuggestHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                int limit = 5;
+                try {
+                    limit = Math.min(Math.max(Integer.parseInt(params.getOrDefault("limit", "5")), 1), 20);
+                } catch (NumberFormatException e) {
+                    // keep the default
                 }
                 
-                List<Train> trains = trainService.searchTrains(source, destination);
-                Map<String, Object> response = Map.of("success", true, "trains", trains);
+                List<Map<String, Object>> stations = trainService.suggestStations(params.getOrDefault("q", ""), limit);
+                Map<String, Object> response = Map.of("success", true, "stations", stations);
                 
-                String jsonResponse = mapper.writeValueAsString(response);
-                exchange.sendResponseHeaders(200, jsonResponse.length());
-                exchange.getResponseBody().write(jsonResponse.getBytes());
+                sendJson(exchange, 200, response);
             }
             exchange.close();
         }
@@ -142,42 +255,249 @@ public class SimpleHttpServer {
             }
             if ("POST".equals(exchange.getRequestMethod())) {
                 try {
-                    String body = new String(exchange.getRequestBody().readAllBytes());
-                    Map<String, Object> request = mapper.readValue(body, Map.class);
+                    Map<String, Object> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                    
+                    IdempotencyCache.Response response = idempotency.execute("/api/book",
+                            exchange.getRequestHeaders().getFirst(IdempotencyCache.HEADER), request, () -> {
+                        String trainId = (String) request.get("trainId");
+                        String userId = (String) request.get("userId");
+                        Object rowObj = request.get("row");
+                        Object colObj = request.get("col");
+                        
+                        if (trainId == null || userId == null || rowObj == null || colObj == null) {
+                            return new IdempotencyCache.Response(400, Map.of("success", false, "message", "Missing required parameters"));
+                        }
+                        
+                        int row = (rowObj instanceof Integer) ? (Integer) rowObj : Integer.parseInt(rowObj.toString());
+                        int col = (colObj instanceof Integer) ? (Integer) colObj : Integer.parseInt(colObj.toString());
+                        
+                        String source = (String) request.get("source");
+                        String destination = (String) request.get("destination");
+                        String dateOfTravel = (String) request.get("dateOfTravel");
+                        
+                        return new IdempotencyCache.Response(200,
+                                userService.bookSeat(trainId, userId, row, col, source, destination, dateOfTravel));
+                    });
+                    
+                    sendJson(exchange, response.status, response.body);
+                } catch (Exception e) {
+                    Map<String, Object> errorResponse = Map.of("success", false, "message", "Booking failed: " + e.getMessage());
+                    sendJson(exchange, 500, errorResponse);
+                }
+            }
+            exchange.close();
+        }
+    }
+
+    static class GroupBookingHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try {
+                    Map<String, Object> request = mapper.readValue(exchange.getRequestBody(), Map.class);
                     
                     String trainId = (String) request.get("trainId");
                     String userId = (String) request.get("userId");
-                    Object rowObj = request.get("row");
-                    Object colObj = request.get("col");
-                    
-                    if (trainId == null || userId == null || rowObj == null || colObj == null) {
-                        Map<String, Object> errorResponse = Map.of("success", false, "message", "Missing required parameters");
-                        String jsonResponse = mapper.writeValueAsString(errorResponse);
-                        exchange.sendResponseHeaders(400, jsonResponse.length());
-                        exchange.getResponseBody().write(jsonResponse.getBytes());
+                    Object seatsObj = request.get("seats");
+                    
+                    if (trainId == null || userId == null || !(seatsObj instanceof List)) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "Missing required parameters"));
                         exchange.close();
                         return;
                     }
                     
-                    int row = (rowObj instanceof Integer) ? (Integer) rowObj : Integer.parseInt(rowObj.toString());
-                    int col = (colObj instanceof Integer) ? (Integer) colObj : Integer.parseInt(colObj.toString());
+                    List<int[]> seats = new ArrayList<>();
+                    for (Object seatObj : (List<?>) seatsObj) {
+                        Map<?, ?> seat = (Map<?, ?>) seatObj;
+                        seats.add(new int[]{Integer.parseInt(seat.get("row").toString()), Integer.parseInt(seat.get("col").toString())});
+                    }
                     
-                    Map<String, Object> result = userService.bookSeat(trainId, userId, row, col);
+                    Map<String, Object> result;
+                    try {
+                        result = userService.bookGroup(trainId, userId, seats,
+                                (String) request.get("source"), (String) request.get("destination"), (String) request.get("dateOfTravel"));
+                    } catch (IOException e) {
+                        sendJson(exchange, 500, Map.of("success", false, "message", NOT_SAVED));
+                        exchange.close();
+                        return;
+                    }
                     
-                    String jsonResponse = mapper.writeValueAsString(result);
-                    exchange.sendResponseHeaders(200, jsonResponse.length());
-                    exchange.getResponseBody().write(jsonResponse.getBytes());
+                    sendJson(exchange, 200, result);
                 } catch (Exception e) {
-                    Map<String, Object> errorResponse = Map.of("success", false, "message", "Booking failed: " + e.getMessage());
-                    String jsonResponse = mapper.writeValueAsString(errorResponse);
-                    exchange.sendResponseHeaders(500, jsonResponse.length());
-                    exchange.getResponseBody().write(jsonResponse.getBytes());
+                    sendJson(exchange, 400, Map.of("success", false, "message", "Invalid group booking request"));
+                }
+            }
+            exchange.close();
+        }
+    }
+
+    static class AutoBookingHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try {
+                    Map<String, Object> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                    
+                    String trainId = (String) request.get("trainId");
+                    String userId = (String) request.get("userId");
+                    Object partyObj = request.get("partySize");
+                    
+                    if (trainId == null || userId == null || partyObj == null) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "Missing required parameters"));
+                        exchange.close();
+                        return;
+                    }
+                    
+                    int partySize = Integer.parseInt(partyObj.toString());
+                    boolean adjacent = !Boolean.FALSE.equals(request.get("adjacent"));
+                    boolean sameRow = !Boolean.FALSE.equals(request.get("sameRow"));
+                    
+                    Map<String, Object> result;
+                    try {
+                        result = userService.autoBook(trainId, userId, partySize, (String) request.get("position"),
+                                adjacent, sameRow, (String) request.get("source"), (String) request.get("destination"),
+                                (String) request.get("dateOfTravel"));
+                    } catch (IOException e) {
+                        sendJson(exchange, 500, Map.of("success", false, "message", NOT_SAVED));
+                        exchange.close();
+                        return;
+                    }
+                    
+                    sendJson(exchange, 200, result);
+                } catch (Exception e) {
+                    sendJson(exchange, 400, Map.of("success", false, "message", "Invalid booking request"));
+                }
+            }
+            exchange.close();
+        }
+    }
+
+    static class HoldHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                try {
+                    Map<String, Object> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                    
+                    String trainId = (String) request.get("trainId");
+                    String userId = (String) request.get("userId");
+                    Object seatsObj = request.get("seats");
+                    
+                    if (trainId == null || userId == null || !(seatsObj instanceof List)) {
+                        sendJson(exchange, 400, Map.of("success", false, "message", "Missing required parameters"));
+                        exchange.close();
+                        return;
+                    }
+                    
+                    List<int[]> seats = new ArrayList<>();
+                    for (Object seatObj : (List<?>) seatsObj) {
+                        Map<?, ?> seat = (Map<?, ?>) seatObj;
+                        seats.add(new int[]{Integer.parseInt(seat.get("row").toString()), Integer.parseInt(seat.get("col").toString())});
+                    }
+                    Object ttlObj = request.get("ttlSeconds");
+                    int ttlSeconds = ttlObj != null ? Integer.parseInt(ttlObj.toString()) : 0;
+                    
+                    Map<String, Object> result = userService.holdSeats(trainId, userId, seats,
+                            (String) request.get("source"), (String) request.get("destination"), (String) request.get("dateOfTravel"),
+                            ttlSeconds);
+                    
+                    sendJson(exchange, 200, result);
+                } catch (Exception e) {
+                    sendJson(exchange, 400, Map.of("success", false, "message", "Invalid hold request"));
+                }
+            }
+            exchange.close();
+        }
+    }
+
+    static class HoldConfirmHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                
+                try {
+                    sendJson(exchange, 200, userService.confirmHold(request.get("holdId"), request.get("userId")));
+                } catch (IOException e) {
+                    sendJson(exchange, 500, Map.of("success", false, "message", NOT_SAVED));
                 }
             }
             exchange.close();
         }
     }
 
+    static class HoldReleaseHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("POST".equals(exchange.getRequestMethod())) {
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                
+                Map<String, Object> result = userService.releaseHold(request.get("holdId"), request.get("userId"));
+                
+                sendJson(exchange, 200, result);
+            }
+            exchange.close();
+        }
+    }
+
+    static class WaitlistHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, String> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                
+                Map<String, Object> result = userService.waitlistPosition(params.get("trainId"), params.get("userId"),
+                        params.get("source"), params.get("destination"), params.get("date"));
+                
+                sendJson(exchange, 200, result);
+            } else if ("POST".equals(exchange.getRequestMethod())) {
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
+                
+                if (request.get("trainId") == null || request.get("userId") == null) {
+                    sendJson(exchange, 400, Map.of("success", false, "message", "Missing required parameters"));
+                    exchange.close();
+                    return;
+                }
+                
+                Map<String, Object> result = userService.joinWaitlist(request.get("trainId"), request.get("userId"),
+                        request.get("source"), request.get("destination"), request.get("dateOfTravel"));
+                
+                sendJson(exchange, 200, result);
+            }
+            exchange.close();
+        }
+    }
+
     static class BookingsHandler implements HttpHandler {
         public void handle(HttpExchange exchange) throws IOException {
             addCorsHeaders(exchange);
@@ -197,9 +517,7 @@ public class SimpleHttpServer {
                 List<Map<String, Object>> bookings = userService.getUserBookings(userId);
                 Map<String, Object> response = Map.of("success", true, "bookings", bookings);
                 
-                String jsonResponse = mapper.writeValueAsString(response);
-                exchange.sendResponseHeaders(200, jsonResponse.length());
-                exchange.getResponseBody().write(jsonResponse.getBytes());
+                sendJson(exchange, 200, response);
             }
             exchange.close();
         }
@@ -214,23 +532,92 @@ public class SimpleHttpServer {
                 return;
             }
             if ("POST".equals(exchange.getRequestMethod())) {
-                String body = new String(exchange.getRequestBody().readAllBytes());
-                Map<String, String> request = mapper.readValue(body, Map.class);
+                Map<String, String> request = mapper.readValue(exchange.getRequestBody(), Map.class);
                 
-                boolean success = userService.cancelBooking(request.get("ticketId"), request.get("userId"));
-                Map<String, Object> response = Map.of("success", success, "message", success ? "Booking cancelled" : "Booking not found");
+                IdempotencyCache.Response response;
+                try {
+                    response = idempotency.execute("/api/cancel",
+                            exchange.getRequestHeaders().getFirst(IdempotencyCache.HEADER), request, () -> {
+                        boolean success = userService.cancelBooking(request.get("ticketId"), request.get("userId"));
+                        return new IdempotencyCache.Response(200,
+                                Map.of("success", success, "message", success ? "Booking cancelled" : "Booking not found"));
+                    });
+                } catch (Exception e) {
+                    response = new IdempotencyCache.Response(500, Map.of("success", false, "message", "Cancellation failed"));
+                }
                 
-                String jsonResponse = mapper.writeValueAsString(response);
-                exchange.sendResponseHeaders(200, jsonResponse.length());
-                exchange.getResponseBody().write(jsonResponse.getBytes());
+                sendJson(exchange, response.status, response.body);
             }
             exchange.close();
         }
     }
 
+    static class StatusHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            addCorsHeaders(exchange);
+            if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(200, 0);
+                exchange.close();
+                return;
+            }
+            if ("GET".equals(exchange.getRequestMethod())) {
+                Map<String, Object> executorStats = new LinkedHashMap<>();
+                executorStats.put("model", executor.getModel());
+                executorStats.put("queueDepth", executor.getQueueDepth());
+                executorStats.put("activeWorkers", executor.getActiveWorkers());
+                executorStats.put("completed", executor.getCompleted());
+                executorStats.put("overflowed", executor.getOverflowed());
+                Map<String, Object> idempotencyStats = new LinkedHashMap<>();
+                idempotencyStats.put("keys", idempotency.size());
+                idempotencyStats.put("hits", idempotency.getHits());
+                idempotencyStats.put("misses", idempotency.getMisses());
+                Map<String, Object> response = Map.of("success", true, "executor", executorStats,
+                        "journal", userService.getJournalStats(), "activeHolds", trainService.activeHolds(),
+                        "idempotency", idempotencyStats, "searchCache", trainService.getSearchCacheStats());
+                
+                sendJson(exchange, 200, response);
+            }
+            exchange.close();
+        }
+    }
+
+    static class MetricsHandler implements HttpHandler {
+        public void handle(HttpExchange exchange) throws IOException {
+            if ("GET".equals(exchange.getRequestMethod())) {
+                // Prometheus text exposition format
+                byte[] body = Metrics.DEFAULT.prometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } else {
+                exchange.sendResponseHeaders(405, -1);
+            }
+            exchange.close();
+        }
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, Object response) throws IOException {
+        JsonResponse.send(exchange, status, response, mapper);
+    }
+
+    private static Map<String, String> parseQuery(String rawQuery) {
+        Map<String, String> params = new HashMap<>();
+        if (rawQuery == null) {
+            return params;
+        }
+        for (String param : rawQuery.split("&")) {
+            String[] keyValue = param.split("=", 2);
+            if (keyValue.length == 2) {
+                params.put(URLDecoder.decode(keyValue[0], StandardCharsets.UTF_8),
+                        URLDecoder.decode(keyValue[1], StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+
     private static void addCorsHeaders(HttpExchange exchange) {
         exchange.getResponseHeaders().add("Access-Control-Allow-Origin", "http://localhost:3000");
         exchange.getResponseHeaders().add("Access-Control-Allow-Methods", "GET, POST, OPTIONS");
-        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type");
+        exchange.getResponseHeaders().add("Access-Control-Allow-Headers", "Content-Type, " + IdempotencyCache.HEADER);
     }
 }
\ No newline at end of file
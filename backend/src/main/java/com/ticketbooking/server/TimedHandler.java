@@ -0,0 +1,36 @@
+package com.ticketbooking.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.ticketbooking.utils.Metrics;
+
+import java.io.IOException;
+
+/**
+ * Times a route's handler into its {@link Metrics.Timer}. A request counts as an error if the
+ * handler throws, answers with a 5xx, or closes the exchange without answering; 4xx answers
+ * such as a seat already taken are the client's problem and count as normal requests.
+ */
+final class TimedHandler implements HttpHandler {
+
+    private final HttpHandler delegate;
+    private final Metrics.Timer timer;
+
+    TimedHandler(HttpHandler delegate, Metrics.Timer timer) {
+        this.delegate = delegate;
+        this.timer = timer;
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            delegate.handle(exchange);
+            int status = exchange.getResponseCode();
+            failed = status == -1 || status >= 500;
+        } finally {
+            timer.record(start, failed);
+        }
+    }
+}
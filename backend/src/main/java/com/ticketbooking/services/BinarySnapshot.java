@@ -0,0 +1,467 @@
+package com.ticketbooking.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Ticket;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.entities.User;
+import com.ticketbooking.utils.Constants;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Versioned binary snapshot of trains (with their seat inventory) or users (with their tickets),
+ * the binary counterpart of trains.json and users.json.
+ *
+ * Layout, big-endian:
+ * <pre>
+ *   header   magic "TBKS", u16 version, u8 kind, u8 reserved, i32 records, i32 strings,
+ *            i32 record index offset, i32 string index offset
+ *   records  one per train or user; strings are i32 ids into the string table, -1 for null
+ *   strings  i32 length + UTF-8 bytes, each distinct value stored once
+ *   indexes  i32 offset per record, then i32 offset per string
+ * </pre>
+ * Files are read through a read-only memory mapping, so a record is only paged in when it is
+ * decoded, and each string is decoded once and shared by every record that uses it. Offsets
+ * are 32-bit, which caps a snapshot at 2 GB (the limit of a single mapping anyway).
+ *
+ * Run with {@code to-binary trains|users <in.json> <out.bin>} or {@code to-json <in.bin> <out.json>}
+ * to convert between the formats offline.
+ */
+public final class BinarySnapshot {
+
+    public static final int MAGIC = 0x54424B53;
+    public static final int VERSION = 1;
+    public static final int KIND_TRAINS = 1;
+    public static final int KIND_USERS = 2;
+
+    private static final int HEADER_BYTES = 24;
+    // Eight string ids, then row and col
+    private static final int TICKET_BYTES = 10 * Integer.BYTES;
+    private static final int NONE = -1;
+
+    private BinarySnapshot() {}
+
+    /** True when the service should load and write .bin snapshots instead of JSON (-Dsnapshot.format=binary). */
+    public static boolean enabled() {
+        return "binary".equalsIgnoreCase(System.getProperty(Constants.SNAPSHOT_FORMAT_PROPERTY));
+    }
+
+    public static byte[] encodeTrains(List<Train> trains) throws IOException {
+        Writer writer = new Writer(KIND_TRAINS);
+        for (Train train : trains) {
+            writer.beginRecord();
+            writer.writeTrain(train);
+        }
+        return writer.finish();
+    }
+
+    public static byte[] encodeUsers(List<User> users) throws IOException {
+        Writer writer = new Writer(KIND_USERS);
+        for (User user : users) {
+            writer.beginRecord();
+            writer.writeUser(user);
+        }
+        return writer.finish();
+    }
+
+    public static Reader open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + path + " is larger than 2 GB");
+            }
+            return new Reader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), path);
+        }
+    }
+
+    private static final class Writer {
+        private final int kind;
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * 1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String, Integer> stringIds = new LinkedHashMap<>();
+        private final List<Integer> recordOffsets = new ArrayList<>();
+
+        Writer(int kind) throws IOException {
+            this.kind = kind;
+            out.write(new byte[HEADER_BYTES]);
+        }
+
+        void beginRecord() {
+            recordOffsets.add(out.size());
+        }
+
+        void writeTrain(Train train) throws IOException {
+            writeString(train.getTrainId());
+            writeString(train.getTrainNo());
+            writeString(train.getTrainName());
+            writeStrings(train.getStations());
+            Map<String, String> stationTimes = train.getStationTimes();
+            out.writeInt(stationTimes == null ? NONE : stationTimes.size());
+            if (stationTimes != null) {
+                for (Map.Entry<String, String> time : stationTimes.entrySet()) {
+                    writeString(time.getKey());
+                    writeString(time.getValue());
+                }
+            }
+            writeSeats(train.getSeats());
+            out.writeInt(train.getDatedSeats().size());
+            for (Map.Entry<String, SeatMap> shard : train.getDatedSeats().entrySet()) {
+                writeString(shard.getKey());
+                writeSeats(shard.getValue());
+            }
+        }
+
+        void writeUser(User user) throws IOException {
+            writeString(user.getUsername());
+            writeString(user.getUserId());
+            writeString(user.getPassword());
+            writeString(user.getHashedPassword());
+            List<Ticket> tickets = user.getTicketsBooked();
+            out.writeInt(tickets == null ? NONE : tickets.size());
+            if (tickets != null) {
+                for (Ticket ticket : tickets) {
+                    writeString(ticket.getTicketId());
+                    writeString(ticket.getUserId());
+                    writeString(ticket.getSource());
+                    writeString(ticket.getDestination());
+                    writeString(ticket.getDateOfTravel());
+                    Train train = ticket.getTrain();
+                    writeString(train == null ? null : train.getTrainId());
+                    writeString(train == null ? null : train.getTrainNo());
+                    writeString(train == null ? null : train.getTrainName());
+                    out.writeInt(ticket.getRow() == null ? NONE : ticket.getRow());
+                    out.writeInt(ticket.getCol() == null ? NONE : ticket.getCol());
+                }
+            }
+        }
+
+        private void writeSeats(SeatMap seats) throws IOException {
+            if (seats == null) {
+                out.writeInt(NONE);
+                return;
+            }
+            out.writeInt(seats.rows());
+            for (int row = 0; row < seats.rows(); row++) {
+                out.writeInt(seats.rowLength(row));
+            }
+            out.writeInt(seats.legs());
+            LongBuffer words = seats.legMaskWords();
+            while (words.hasRemaining()) {
+                out.writeLong(words.get());
+            }
+        }
+
+        private void writeStrings(List<String> values) throws IOException {
+            out.writeInt(values == null ? NONE : values.size());
+            if (values != null) {
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            out.writeInt(value == null ? NONE : stringIds.computeIfAbsent(value, v -> stringIds.size()));
+        }
+
+        byte[] finish() throws IOException {
+            int[] stringOffsets = new int[stringIds.size()];
+            int i = 0;
+            for (String value : stringIds.keySet()) {
+                stringOffsets[i++] = out.size();
+                byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(utf8.length);
+                out.write(utf8);
+            }
+            int recordIndexOffset = out.size();
+            for (int offset : recordOffsets) {
+                out.writeInt(offset);
+            }
+            int stringIndexOffset = out.size();
+            for (int offset : stringOffsets) {
+                out.writeInt(offset);
+            }
+            out.flush();
+
+            byte[] snapshot = bytes.toByteArray();
+            ByteBuffer.wrap(snapshot)
+                    .putInt(MAGIC)
+                    .putShort((short) VERSION)
+                    .put((byte) kind)
+                    .put((byte) 0)
+                    .putInt(recordOffsets.size())
+                    .putInt(stringOffsets.length)
+                    .putInt(recordIndexOffset)
+                    .putInt(stringIndexOffset);
+            return snapshot;
+        }
+    }
+
+    /**
+     * Random access over a mapped snapshot. Records are decoded on request; {@link #trains()}
+     * and {@link #users(Function)} decode them all, while {@link #username}, {@link #userId}
+     * and {@link #ticketIds} read just the keys of a user so the rest can wait until needed.
+     */
+    public static final class Reader {
+        private final ByteBuffer buffer;
+        private final int kind;
+        private final int records;
+        private final int recordIndexOffset;
+        private final int stringIndexOffset;
+        private final String[] strings;
+
+        private Reader(ByteBuffer buffer, Path path) throws IOException {
+            this.buffer = buffer;
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException(path + " is not a snapshot file");
+            }
+            int version = buffer.getShort(4) & 0xFFFF;
+            if (version != VERSION) {
+                throw new IOException(path + " has snapshot version " + version + ", expected " + VERSION);
+            }
+            this.kind = buffer.get(6);
+            this.records = buffer.getInt(8);
+            this.strings = new String[buffer.getInt(12)];
+            this.recordIndexOffset = buffer.getInt(16);
+            this.stringIndexOffset = buffer.getInt(20);
+        }
+
+        public int kind() {
+            return kind;
+        }
+
+        public int size() {
+            return records;
+        }
+
+        public Train train(int index) {
+            checkKind(KIND_TRAINS);
+            ByteBuffer in = record(index);
+            Train train = new Train();
+            train.setTrainId(readString(in));
+            train.setTrainNo(readString(in));
+            train.setTrainName(readString(in));
+            List<String> stations = readStrings(in);
+            int times = in.getInt();
+            if (times != NONE) {
+                Map<String, String> stationTimes = new LinkedHashMap<>(times * 2);
+                for (int i = 0; i < times; i++) {
+                    stationTimes.put(readString(in), readString(in));
+                }
+                train.setStationTimes(stationTimes);
+            }
+            train.setSeats(readSeats(in));
+            int dated = in.getInt();
+            Map<String, SeatMap> datedSeats = new TreeMap<>();
+            for (int i = 0; i < dated; i++) {
+                datedSeats.put(readString(in), readSeats(in));
+            }
+            train.setDatedSeats(datedSeats);
+            train.setStations(stations);
+            return train;
+        }
+
+        /**
+         * Decodes one user. Ticket trains are linked through {@code trainLookup}; a train it
+         * does not know is replaced by a stub carrying the id, number and name.
+         */
+        public User user(int index, Function<String, Train> trainLookup) {
+            checkKind(KIND_USERS);
+            ByteBuffer in = record(index);
+            User user = new User();
+            user.setUsername(readString(in));
+            user.setUserId(readString(in));
+            user.setPassword(readString(in));
+            user.setHashedPassword(readString(in));
+            int count = in.getInt();
+            List<Ticket> tickets = new ArrayList<>(Math.max(count, 0));
+            for (int i = 0; i < count; i++) {
+                Ticket ticket = new Ticket();
+                ticket.setTicketId(readString(in));
+                ticket.setUserId(readString(in));
+                ticket.setSource(readString(in));
+                ticket.setDestination(readString(in));
+                ticket.setDateOfTravel(readString(in));
+                String trainId = readString(in);
+                String trainNo = readString(in);
+                String trainName = readString(in);
+                if (trainId != null) {
+                    Train train = trainLookup.apply(trainId);
+                    if (train == null) {
+                        train = new Train();
+                        train.setTrainId(trainId);
+                        train.setTrainNo(trainNo);
+                        train.setTrainName(trainName);
+                    }
+                    ticket.setTrain(train);
+                }
+                int row = in.getInt();
+                int col = in.getInt();
+                ticket.setRow(row == NONE ? null : row);
+                ticket.setCol(col == NONE ? null : col);
+                tickets.add(ticket);
+            }
+            user.setTicketsBooked(tickets);
+            return user;
+        }
+
+        /** The username of a user record, without decoding the rest of it. */
+        public String username(int index) {
+            checkKind(KIND_USERS);
+            return readString(record(index));
+        }
+
+        public String userId(int index) {
+            checkKind(KIND_USERS);
+            ByteBuffer in = record(index);
+            in.position(in.position() + Integer.BYTES);
+            return readString(in);
+        }
+
+        /** The ids of a user's tickets, skipping everything else in them. */
+        public List<String> ticketIds(int index) {
+            checkKind(KIND_USERS);
+            ByteBuffer in = record(index);
+            // username, id, password and hash
+            in.position(in.position() + 4 * Integer.BYTES);
+            int count = in.getInt();
+            List<String> ids = new ArrayList<>(Math.max(count, 0));
+            for (int i = 0; i < count; i++) {
+                int start = in.position();
+                ids.add(readString(in));
+                in.position(start + TICKET_BYTES);
+            }
+            return ids;
+        }
+
+        public List<Train> trains() {
+            List<Train> trains = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                trains.add(train(i));
+            }
+            return trains;
+        }
+
+        public List<User> users(Function<String, Train> trainLookup) {
+            List<User> users = new ArrayList<>(records);
+            for (int i = 0; i < records; i++) {
+                users.add(user(i, trainLookup));
+            }
+            return users;
+        }
+
+        private void checkKind(int expected) {
+            if (kind != expected) {
+                throw new IllegalStateException("Snapshot holds kind " + kind + ", not " + expected);
+            }
+        }
+
+        private ByteBuffer record(int index) {
+            if (index < 0 || index >= records) {
+                throw new IndexOutOfBoundsException("Record " + index + " of " + records);
+            }
+            ByteBuffer in = buffer.duplicate();
+            in.position(buffer.getInt(recordIndexOffset + index * Integer.BYTES));
+            return in;
+        }
+
+        private SeatMap readSeats(ByteBuffer in) {
+            int rows = in.getInt();
+            if (rows == NONE) {
+                return null;
+            }
+            int[] rowLengths = new int[rows];
+            int capacity = 0;
+            for (int row = 0; row < rows; row++) {
+                rowLengths[row] = in.getInt();
+                capacity += rowLengths[row];
+            }
+            int legs = in.getInt();
+            int words = capacity * (legs > 64 ? 2 : 1);
+            LongBuffer masks = in.slice().asLongBuffer();
+            masks.limit(words);
+            in.position(in.position() + words * Long.BYTES);
+            return SeatMap.fromLegMasks(rowLengths, legs, masks);
+        }
+
+        private List<String> readStrings(ByteBuffer in) {
+            int count = in.getInt();
+            if (count == NONE) {
+                return null;
+            }
+            List<String> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(readString(in));
+            }
+            return values;
+        }
+
+        // Racing threads may both decode a string; they produce equal values, so that is harmless
+        private String readString(ByteBuffer in) {
+            int id = in.getInt();
+            if (id == NONE) {
+                return null;
+            }
+            String value = strings[id];
+            if (value == null) {
+                int offset = buffer.getInt(stringIndexOffset + id * Integer.BYTES);
+                byte[] utf8 = new byte[buffer.getInt(offset)];
+                ByteBuffer data = buffer.duplicate();
+                data.position(offset + Integer.BYTES);
+                data.get(utf8);
+                value = new String(utf8, StandardCharsets.UTF_8);
+                strings[id] = value;
+            }
+            return value;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mapper.enable(SerializationFeature.INDENT_OUTPUT);
+        if (args.length == 4 && args[0].equals("to-binary")) {
+            Path in = Paths.get(args[2]);
+            byte[] snapshot;
+            if (args[1].equals("trains")) {
+                snapshot = encodeTrains(mapper.readValue(in.toFile(), new TypeReference<List<Train>>() {}));
+            } else if (args[1].equals("users")) {
+                snapshot = encodeUsers(mapper.readValue(in.toFile(), new TypeReference<List<User>>() {}));
+            } else {
+                usage();
+                return;
+            }
+            BookingJournal.writeAtomically(Paths.get(args[3]), snapshot);
+        } else if (args.length == 3 && args[0].equals("to-json")) {
+            Reader reader = open(Paths.get(args[1]));
+            Object records = reader.kind() == KIND_TRAINS ? reader.trains() : reader.users(trainId -> null);
+            BookingJournal.writeAtomically(Paths.get(args[2]), mapper.writeValueAsBytes(records));
+        } else {
+            usage();
+            return;
+        }
+        System.out.println("Wrote " + args[args.length - 1] + " (" + Files.size(Paths.get(args[args.length - 1])) + " bytes)");
+    }
+
+    private static void usage() {
+        System.err.println("Usage: BinarySnapshot to-binary trains|users <in.json> <out.bin>");
+        System.err.println("       BinarySnapshot to-json <in.bin> <out.json>");
+    }
+}
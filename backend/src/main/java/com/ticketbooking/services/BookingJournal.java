@@ -0,0 +1,537 @@
+package com.ticketbooking.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.entities.JournalEntry;
+import com.ticketbooking.utils.Metrics;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Append-only write-ahead log of signups, bookings and cancellations, one JSON object per line.
+ *
+ * The JSON files are only snapshots; everything that happened after the last snapshot lives
+ * here and is replayed on startup. Compaction rotates the active file aside, writes fresh
+ * snapshots and then deletes the rotated file, so a crash at any point replays cleanly.
+ *
+ * Appends go through a group-commit stage: a single committer thread collects whatever entries
+ * arrive within the batch window (up to the batch size), writes them with one call and forces
+ * them with one fsync, then completes every waiting caller at once.
+ */
+public class BookingJournal implements Closeable {
+
+    public enum FsyncPolicy {
+        /** Force every batch to disk before its appends complete. */
+        ALWAYS,
+        /** Force once a second in the background; a crash can lose the last second. */
+        INTERVAL,
+        /** Leave flushing to the operating system. */
+        NEVER
+    }
+
+    private static final long FSYNC_INTERVAL_MS = 1000;
+    private static final Metrics.Timer COMMIT_TIMER = Metrics.DEFAULT.persistenceTimer("journal_commit");
+
+    private final Path path;
+    private final Path compactingPath;
+    private final FsyncPolicy fsyncPolicy;
+    private final int maxBatchSize;
+    private final long maxBatchDelayNanos;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService flusher;
+    private final Stats stats = new Stats();
+    private final Opener opener;
+    private FileChannel channel;
+    private int entriesSinceRotation;
+    // Set when a failed batch could not be cut back off the file; nothing may follow it
+    private volatile IOException broken;
+    // Set as the close marker is queued; guarded by the queue, see enqueue
+    private boolean closed;
+
+    /** Opens the active file for appending; tests substitute channels that fail on demand. */
+    interface Opener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    public BookingJournal(Path path, FsyncPolicy fsyncPolicy) throws IOException {
+        this(path, fsyncPolicy, 256, TimeUnit.MILLISECONDS.toNanos(2));
+    }
+
+    public BookingJournal(Path path, FsyncPolicy fsyncPolicy, int maxBatchSize, long maxBatchDelayNanos) throws IOException {
+        this(path, fsyncPolicy, maxBatchSize, maxBatchDelayNanos, BookingJournal::openForAppend);
+    }
+
+    BookingJournal(Path path, FsyncPolicy fsyncPolicy, int maxBatchSize, long maxBatchDelayNanos, Opener opener) throws IOException {
+        this.path = path;
+        this.opener = opener;
+        this.compactingPath = path.resolveSibling(path.getFileName() + ".compacting");
+        this.fsyncPolicy = fsyncPolicy;
+        this.maxBatchSize = Math.max(1, maxBatchSize);
+        this.maxBatchDelayNanos = Math.max(0, maxBatchDelayNanos);
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.channel = opener.open(path);
+        cutTornEntry();
+
+        Thread committer = new Thread(this::runCommitter, "journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+
+        if (fsyncPolicy == FsyncPolicy.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "journal-fsync");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::forceQuietly, FSYNC_INTERVAL_MS, FSYNC_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    public static FsyncPolicy fsyncPolicyFromConfig(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return FsyncPolicy.ALWAYS;
+        }
+        try {
+            return FsyncPolicy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown journal fsync policy '" + value + "', using ALWAYS");
+            return FsyncPolicy.ALWAYS;
+        }
+    }
+
+    /** Appends the entry and waits until its batch is durable. */
+    public void append(JournalEntry entry) throws IOException {
+        await(appendAsync(entry));
+    }
+
+    /**
+     * Queues the entry behind everything appended before it. The future completes once the
+     * batch containing it has been written (and forced, under {@link FsyncPolicy#ALWAYS}).
+     */
+    public CompletableFuture<Void> appendAsync(JournalEntry entry) {
+        IOException failure = broken;
+        if (failure != null) {
+            return CompletableFuture.failedFuture(unusable(failure));
+        }
+        byte[] json;
+        try {
+            json = objectMapper.writeValueAsBytes(entry);
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        Pending pending = new Pending(Pending.Kind.ENTRY, line);
+        if (!enqueue(pending)) {
+            return CompletableFuture.failedFuture(new IOException("Journal is closed"));
+        }
+        return pending.done;
+    }
+
+    /** Waits for an {@link #appendAsync} future, surfacing a failed write as an IOException. */
+    public static void await(CompletableFuture<Void> durable) throws IOException {
+        try {
+            durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Journal append failed", e.getCause());
+        }
+    }
+
+    /**
+     * Feeds every entry to the consumer in the order it was written: first a file left over by
+     * an interrupted compaction, then the active file. A last line without its newline, torn by
+     * a crash mid-write and so never acknowledged, is skipped; an unreadable line anywhere else
+     * fails the replay, since skipping it would drop an entry that was.
+     */
+    public void replay(Consumer<JournalEntry> consumer) throws IOException {
+        int replayed = replayFile(compactingPath, consumer) + replayFile(path, consumer);
+        synchronized (this) {
+            entriesSinceRotation = replayed;
+        }
+    }
+
+    private int replayFile(Path file, Consumer<JournalEntry> consumer) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        int count = 0;
+        int lineNumber = 0;
+        String unreadable = null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (unreadable != null) {
+                    throw new IOException(unreadable);
+                }
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JournalEntry entry;
+                try {
+                    entry = objectMapper.readValue(line, JournalEntry.class);
+                } catch (IOException e) {
+                    unreadable = "Unreadable journal entry at line " + lineNumber + " of " + file.getFileName() + ": " + e.getMessage();
+                    continue;
+                }
+                consumer.accept(entry);
+                count++;
+            }
+        }
+        if (unreadable != null) {
+            if (endsWithNewline(file)) {
+                throw new IOException(unreadable);
+            }
+            System.err.println("Skipping torn last entry of " + file.getFileName());
+        }
+        return count;
+    }
+
+    public synchronized int entriesSinceRotation() {
+        return entriesSinceRotation;
+    }
+
+    public Stats getStats() {
+        return stats;
+    }
+
+    /**
+     * Moves the active file aside and starts a new one, after every entry queued so far has been
+     * written to the old file. The caller must hold whatever lock keeps new entries out while it
+     * captures the snapshot that covers the rotated entries.
+     */
+    public void rotate() throws IOException {
+        Pending marker = new Pending(Pending.Kind.ROTATE, null);
+        if (!enqueue(marker)) {
+            throw new IOException("Journal is closed");
+        }
+        await(marker.done);
+    }
+
+    /** Called once the snapshots covering the rotated entries are safely on disk. */
+    public void finishCompaction() throws IOException {
+        Files.deleteIfExists(compactingPath);
+    }
+
+    /** Writes out everything queued so far and closes the file. Appends and rotations after it fail. */
+    @Override
+    public void close() throws IOException {
+        Pending marker = new Pending(Pending.Kind.CLOSE, null);
+        if (!enqueue(marker)) {
+            return;
+        }
+        await(marker.done);
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+    }
+
+    // Checks for close and queues in one step, so nothing lands behind the close marker where
+    // the committer, which stops at it, would never complete it
+    private boolean enqueue(Pending pending) {
+        synchronized (queue) {
+            if (closed) {
+                return false;
+            }
+            closed = pending.kind == Pending.Kind.CLOSE;
+            queue.add(pending);
+            return true;
+        }
+    }
+
+    private void runCommitter() {
+        List<Pending> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            Pending marker;
+            try {
+                marker = collectBatch(batch);
+            } catch (InterruptedException e) {
+                failAll(batch, new IOException("Journal committer interrupted"));
+                return;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+            if (marker == null) {
+                continue;
+            }
+            try {
+                synchronized (this) {
+                    if (marker.kind == Pending.Kind.ROTATE) {
+                        rotateFiles();
+                    } else {
+                        channel.force(false);
+                        channel.close();
+                    }
+                }
+                marker.done.complete(null);
+            } catch (IOException e) {
+                marker.done.completeExceptionally(e);
+            }
+            if (marker.kind == Pending.Kind.CLOSE) {
+                return;
+            }
+        }
+    }
+
+    // Blocks for the first entry, then keeps collecting until the batch is full, the window
+    // since the first entry has passed, or a rotate/close marker shows up (returned, not batched)
+    private Pending collectBatch(List<Pending> batch) throws InterruptedException {
+        Pending next = queue.take();
+        long deadline = next.enqueuedNanos + maxBatchDelayNanos;
+        while (true) {
+            if (next.kind != Pending.Kind.ENTRY) {
+                return next;
+            }
+            batch.add(next);
+            if (batch.size() >= maxBatchSize) {
+                return null;
+            }
+            next = queue.poll();
+            if (next == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    return null;
+                }
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        ByteBuffer[] buffers = new ByteBuffer[batch.size()];
+        long bytes = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            buffers[i] = ByteBuffer.wrap(batch.get(i).line);
+            bytes += batch.get(i).line.length;
+        }
+        long start = System.nanoTime();
+        try {
+            synchronized (this) {
+                if (broken != null) {
+                    throw unusable(broken);
+                }
+                long end = channel.size();
+                try {
+                    long written = 0;
+                    while (written < bytes) {
+                        written += channel.write(buffers);
+                    }
+                    if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+                        channel.force(false);
+                    }
+                } catch (IOException e) {
+                    discardFrom(end, e);
+                    throw e;
+                }
+                entriesSinceRotation += batch.size();
+            }
+        } catch (IOException e) {
+            COMMIT_TIMER.record(start, true);
+            failAll(batch, e);
+            return;
+        }
+        COMMIT_TIMER.record(start, false);
+        stats.record(batch.size(), System.nanoTime() - batch.get(0).enqueuedNanos);
+        for (Pending pending : batch) {
+            pending.done.complete(null);
+        }
+    }
+
+    // Committer thread only, holding the monitor. Cuts a failed batch back off the file so the
+    // next one does not land behind half of it; if even that fails, the journal stops taking
+    // appends, since replay could no longer tell where the failed batch ended.
+    private void discardFrom(long end, IOException cause) {
+        try {
+            // The next forced batch makes the shorter length durable along with itself
+            channel.truncate(end);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+            broken = cause;
+            System.err.println("Booking journal is unusable after a failed write: " + e.getMessage());
+        }
+    }
+
+    private static IOException unusable(IOException cause) {
+        return new IOException("Booking journal is unusable after a failed write", cause);
+    }
+
+    private void failAll(List<Pending> batch, IOException cause) {
+        for (Pending pending : batch) {
+            pending.done.completeExceptionally(cause);
+        }
+        batch.clear();
+    }
+
+    // Committer thread only, holding the monitor
+    private void rotateFiles() throws IOException {
+        channel.force(false);
+        channel.close();
+        if (Files.exists(compactingPath)) {
+            // A previous compaction never finished; keep its entries ahead of ours
+            try (FileChannel active = FileChannel.open(path, StandardOpenOption.READ);
+                 FileChannel previous = FileChannel.open(compactingPath, StandardOpenOption.WRITE)) {
+                previous.transferFrom(active, previous.size(), active.size());
+                previous.force(false);
+            }
+            Files.delete(path);
+        } else {
+            Files.move(path, compactingPath, StandardCopyOption.ATOMIC_MOVE);
+        }
+        channel = opener.open(path);
+        entriesSinceRotation = 0;
+    }
+
+    private synchronized void forceQuietly() {
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to flush booking journal: " + e.getMessage());
+        }
+    }
+
+    // A crash mid-append leaves a partial last line, which was never acknowledged; cut it off so
+    // the next entry starts clean and replay only ever finds complete lines in the active file
+    private void cutTornEntry() throws IOException {
+        long size = channel.size();
+        if (size == 0 || endsWithNewline(path)) {
+            return;
+        }
+        long keep = 0;
+        ByteBuffer chunk = ByteBuffer.allocate(4096);
+        try (FileChannel reader = FileChannel.open(path, StandardOpenOption.READ)) {
+            for (long end = size; end > 0 && keep == 0; end -= chunk.limit()) {
+                chunk.clear().limit((int) Math.min(chunk.capacity(), end));
+                long start = end - chunk.limit();
+                while (chunk.hasRemaining() && reader.read(chunk, start + chunk.position()) >= 0) {
+                    // keep reading until the chunk is full
+                }
+                for (int i = chunk.limit() - 1; i >= 0; i--) {
+                    if (chunk.get(i) == '\n') {
+                        keep = start + i + 1;
+                        break;
+                    }
+                }
+            }
+        }
+        System.err.println("Cutting a torn entry of " + (size - keep) + " bytes off " + path.getFileName());
+        channel.truncate(keep);
+    }
+
+    private static boolean endsWithNewline(Path file) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        try (FileChannel reader = FileChannel.open(file, StandardOpenOption.READ)) {
+            return reader.size() > 0 && reader.read(last, reader.size() - 1) == 1 && last.get(0) == '\n';
+        }
+    }
+
+    private static FileChannel openForAppend(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /** Writes the file next to its final name and swaps it in, so readers never see half a snapshot. */
+    static void writeAtomically(Path target, byte[] bytes) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Pending {
+        enum Kind { ENTRY, ROTATE, CLOSE }
+
+        final Kind kind;
+        final byte[] line;
+        final long enqueuedNanos = System.nanoTime();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Pending(Kind kind, byte[] line) {
+            this.kind = kind;
+            this.line = line;
+        }
+    }
+
+    /** Group-commit counters, updated by the committer thread and safe to read from any thread. */
+    public static final class Stats {
+        private final LongAdder batches = new LongAdder();
+        private final LongAdder entries = new LongAdder();
+        private final LongAdder commitNanos = new LongAdder();
+        private final AtomicLong maxBatchSize = new AtomicLong();
+        private final AtomicLong maxCommitNanos = new AtomicLong();
+
+        void record(int batchSize, long latencyNanos) {
+            batches.increment();
+            entries.add(batchSize);
+            commitNanos.add(latencyNanos);
+            maxBatchSize.accumulateAndGet(batchSize, Math::max);
+            maxCommitNanos.accumulateAndGet(latencyNanos, Math::max);
+        }
+
+        public long getBatches() {
+            return batches.sum();
+        }
+
+        public long getEntries() {
+            return entries.sum();
+        }
+
+        public double getAverageBatchSize() {
+            long count = batches.sum();
+            return count == 0 ? 0 : (double) entries.sum() / count;
+        }
+
+        public long getMaxBatchSize() {
+            return maxBatchSize.get();
+        }
+
+        /** Average time from the first entry of a batch being queued to the batch being durable. */
+        public double getAverageCommitMillis() {
+            long count = batches.sum();
+            return count == 0 ? 0 : commitNanos.sum() / 1_000_000.0 / count;
+        }
+
+        public double getMaxCommitMillis() {
+            return maxCommitNanos.get() / 1_000_000.0;
+        }
+    }
+}
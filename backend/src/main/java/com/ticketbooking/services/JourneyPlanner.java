@@ -0,0 +1,265 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.Train;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Connection Scan planner for journeys with up to {@link #MAX_TRIPS} trains.
+ *
+ * Built once from the train list: every leg between consecutive stations becomes an
+ * elementary connection with departure and arrival in minutes from the train's first
+ * departure day, and the connections are sorted by departure time of day. Every train runs
+ * daily, so a query scans that one array once per day of its horizon, starting at the requested
+ * time, and stops as soon as no departure can beat the best arrival found.
+ *
+ * Earliest arrival is tracked per number of trains used, which gives the fastest itinerary
+ * for each number of changes. Station times are read from {@link Train#getStationTimes()};
+ * one time per station is taken as both arrival and departure, and a time earlier than the
+ * previous stop means the train ran past midnight.
+ */
+final class JourneyPlanner {
+
+    static final int MAX_TRIPS = 3;
+    static final int HORIZON_DAYS = 3;
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final int INF = Integer.MAX_VALUE;
+
+    private final List<Train> trains;
+    private final Map<String, Integer> stationIds = new HashMap<>();
+    private final List<String> stationNames = new ArrayList<>();
+    // Connections sorted by departure time of day, as parallel arrays
+    private final int[] connFrom;
+    private final int[] connTo;
+    private final int[] connDep;
+    private final int[] connArr;
+    private final int[] connTrain;
+    private final int[] connDepOfDay;
+    // Days a train can still be running after the day it started; sizes the trip table
+    private final int maxSpanDays;
+
+    JourneyPlanner(List<Train> trains) {
+        this.trains = new ArrayList<>(trains);
+        List<int[]> connections = new ArrayList<>();
+        int span = 0;
+        for (int ordinal = 0; ordinal < this.trains.size(); ordinal++) {
+            int[] times = stopTimes(this.trains.get(ordinal));
+            if (times == null) {
+                continue;
+            }
+            List<String> stations = this.trains.get(ordinal).getStations();
+            for (int i = 0; i + 1 < stations.size(); i++) {
+                connections.add(new int[]{stationId(stations.get(i)), stationId(stations.get(i + 1)),
+                        times[i], times[i + 1], ordinal});
+            }
+            span = Math.max(span, times[times.length - 1] / MINUTES_PER_DAY);
+        }
+        connections.sort((a, b) -> Integer.compare(a[2] % MINUTES_PER_DAY, b[2] % MINUTES_PER_DAY));
+
+        int n = connections.size();
+        connFrom = new int[n];
+        connTo = new int[n];
+        connDep = new int[n];
+        connArr = new int[n];
+        connTrain = new int[n];
+        connDepOfDay = new int[n];
+        for (int i = 0; i < n; i++) {
+            int[] c = connections.get(i);
+            connFrom[i] = c[0];
+            connTo[i] = c[1];
+            connDep[i] = c[2];
+            connArr[i] = c[3];
+            connTrain[i] = c[4];
+            connDepOfDay[i] = c[2] % MINUTES_PER_DAY;
+        }
+        maxSpanDays = span;
+    }
+
+    /** One train ridden from one station to another, with absolute times. */
+    static final class Leg {
+        final Train train;
+        final String from;
+        final String to;
+        final LocalDateTime departure;
+        final LocalDateTime arrival;
+        // The date the train left its first station, which is the date its seats are sold for
+        final LocalDate dateOfTravel;
+
+        Leg(Train train, String from, String to, LocalDateTime departure, LocalDateTime arrival, LocalDate dateOfTravel) {
+            this.train = train;
+            this.from = from;
+            this.to = to;
+            this.departure = departure;
+            this.arrival = arrival;
+            this.dateOfTravel = dateOfTravel;
+        }
+    }
+
+    /**
+     * Fastest itinerary for each number of trains up to {@code maxTrips}, leaving {@code source}
+     * no earlier than {@code earliest}. An itinerary is only listed if it arrives strictly
+     * earlier than every itinerary with fewer changes.
+     */
+    List<List<Leg>> plan(String source, String destination, LocalDateTime earliest, int maxTrips, int minConnectionMinutes) {
+        Integer src = stationIds.get(StationIndex.normalize(source));
+        Integer dst = stationIds.get(StationIndex.normalize(destination));
+        if (src == null || dst == null || src.equals(dst)) {
+            return Collections.emptyList();
+        }
+        int levels = Math.min(Math.max(maxTrips, 1), MAX_TRIPS) + 1;
+        int stations = stationNames.size();
+        int daysPerTrain = HORIZON_DAYS + maxSpanDays;
+
+        // arrival[k * stations + s]: earliest arrival at s using at most k trains
+        int[] arrival = new int[levels * stations];
+        Arrays.fill(arrival, INF);
+        for (int k = 0; k < levels; k++) {
+            arrival[k * stations + src] = 0;
+        }
+        long[] enterAt = new long[levels * stations];
+        long[] exitAt = new long[levels * stations];
+        int[] boardLevel = new int[levels * stations];
+        // Per trip (train, start day): lowest level it is ridden at and where it was boarded
+        int[] tripLevel = new int[trains.size() * daysPerTrain];
+        long[] tripEnter = new long[trains.size() * daysPerTrain];
+        Arrays.fill(tripLevel, INF);
+
+        int start = earliest.getHour() * 60 + earliest.getMinute();
+        int target = (levels - 1) * stations + dst;
+        int firstConnection = lowerBound(start);
+        scan:
+        for (int day = 0; day < HORIZON_DAYS; day++) {
+            for (int c = day == 0 ? firstConnection : 0; c < connDep.length; c++) {
+                int dep = day * MINUTES_PER_DAY + connDepOfDay[c] - start;
+                if (dep >= arrival[target]) {
+                    break scan;
+                }
+                int startDay = day - connDep[c] / MINUTES_PER_DAY;
+                int trip = connTrain[c] * daysPerTrain + startDay + maxSpanDays;
+                int from = connFrom[c];
+                int level = tripLevel[trip];
+                for (int k = 1; k < Math.min(level, levels); k++) {
+                    int ready = arrival[(k - 1) * stations + from];
+                    if (ready != INF && ready + (k == 1 ? 0 : minConnectionMinutes) <= dep) {
+                        level = k;
+                        tripLevel[trip] = k;
+                        tripEnter[trip] = encode(day, c);
+                        break;
+                    }
+                }
+                if (level == INF) {
+                    continue;
+                }
+                int arr = dep + connArr[c] - connDep[c];
+                for (int k = level; k < levels; k++) {
+                    int at = k * stations + connTo[c];
+                    if (arr < arrival[at]) {
+                        arrival[at] = arr;
+                        enterAt[at] = tripEnter[trip];
+                        exitAt[at] = encode(day, c);
+                        boardLevel[at] = level;
+                    }
+                }
+            }
+        }
+
+        List<List<Leg>> journeys = new ArrayList<>();
+        int best = INF;
+        for (int k = 1; k < levels; k++) {
+            int at = k * stations + dst;
+            if (arrival[at] < best) {
+                best = arrival[at];
+                journeys.add(reconstruct(at, src, stations, enterAt, exitAt, boardLevel, earliest, start));
+            }
+        }
+        return journeys;
+    }
+
+    private List<Leg> reconstruct(int at, int src, int stations, long[] enterAt, long[] exitAt, int[] boardLevel,
+                                  LocalDateTime earliest, int start) {
+        List<Leg> legs = new ArrayList<>();
+        LocalDateTime midnight = earliest.toLocalDate().atStartOfDay();
+        while (at % stations != src) {
+            int enterDay = (int) (enterAt[at] >>> 32);
+            int enter = (int) enterAt[at];
+            int exitDay = (int) (exitAt[at] >>> 32);
+            int exit = (int) exitAt[at];
+            int departure = enterDay * MINUTES_PER_DAY + connDepOfDay[enter];
+            int arrival = exitDay * MINUTES_PER_DAY + connDepOfDay[exit] + connArr[exit] - connDep[exit];
+            int startDay = enterDay - connDep[enter] / MINUTES_PER_DAY;
+            legs.add(new Leg(trains.get(connTrain[enter]), stationNames.get(connFrom[enter]), stationNames.get(connTo[exit]),
+                    midnight.plusMinutes(departure), midnight.plusMinutes(arrival),
+                    earliest.toLocalDate().plusDays(startDay)));
+            at = (boardLevel[at] - 1) * stations + connFrom[enter];
+        }
+        Collections.reverse(legs);
+        return legs;
+    }
+
+    // Minutes of each stop since midnight of the day the train starts, or null if not timetabled
+    private static int[] stopTimes(Train train) {
+        List<String> stations = train.getStations();
+        Map<String, String> stationTimes = train.getStationTimes();
+        if (stations == null || stations.size() < 2 || stationTimes == null) {
+            return null;
+        }
+        int[] times = new int[stations.size()];
+        int previous = -1;
+        for (int i = 0; i < stations.size(); i++) {
+            String time = stationTimes.get(stations.get(i));
+            if (time == null) {
+                return null;
+            }
+            int minutes;
+            try {
+                String[] parts = time.trim().split(":");
+                minutes = Integer.parseInt(parts[0]) * 60 + Integer.parseInt(parts[1]);
+            } catch (RuntimeException e) {
+                return null;
+            }
+            while (minutes < previous) {
+                minutes += MINUTES_PER_DAY;
+            }
+            times[i] = minutes;
+            previous = minutes;
+        }
+        return times;
+    }
+
+    private int stationId(String station) {
+        String name = StationIndex.normalize(station);
+        Integer id = stationIds.get(name);
+        if (id == null) {
+            id = stationNames.size();
+            stationIds.put(name, id);
+            stationNames.add(name);
+        }
+        return id;
+    }
+
+    private int lowerBound(int minuteOfDay) {
+        int lo = 0;
+        int hi = connDepOfDay.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (connDepOfDay[mid] < minuteOfDay) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static long encode(int day, int connection) {
+        return ((long) day << 32) | connection;
+    }
+}
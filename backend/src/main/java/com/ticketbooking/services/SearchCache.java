@@ -0,0 +1,135 @@
+package com.ticketbooking.services;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * Bounded cache of search results, keyed by normalized source, destination and date.
+ *
+ * Each entry is tagged with the version of every train in it at the time it was computed. A
+ * lookup compares the tags with the trains' current versions, so a booking or an update only
+ * invalidates the entries holding that train. A train newly serving a route has no tag in the
+ * route's entries, so {@link TrainService#addTrain} drops those with {@link #invalidateIf}.
+ *
+ * Eviction is CLOCK, an approximation of LRU: a hit only sets the entry's referenced bit, with
+ * no lock and no reordering, and an insert into a full cache sweeps a hand over the slots,
+ * clearing bits until it finds an entry not used since the last sweep.
+ */
+final class SearchCache<V> {
+
+    static final class Entry<V> {
+        final String key;
+        final String source;
+        final String destination;
+        final V value;
+        final String[] trainIds;
+        final long[] versions;
+        volatile boolean referenced;
+        int slot;
+
+        Entry(String key, String source, String destination, V value, String[] trainIds, long[] versions) {
+            this.key = key;
+            this.source = source;
+            this.destination = destination;
+            this.value = value;
+            this.trainIds = trainIds;
+            this.versions = versions;
+        }
+    }
+
+    private final Map<String, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final Entry<V>[] slots;
+    private int hand;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    SearchCache(int capacity) {
+        slots = new Entry[capacity];
+    }
+
+    static String key(String source, String destination, Object date) {
+        return source + '\n' + destination + '\n' + date;
+    }
+
+    /** The cached value if every train in it is still at the version it was computed at. */
+    V get(String key, ToLongFunction<String> currentVersion) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        for (int i = 0; i < entry.trainIds.length; i++) {
+            if (currentVersion.applyAsLong(entry.trainIds[i]) != entry.versions[i]) {
+                invalidations.increment();
+                misses.increment();
+                remove(entry);
+                return null;
+            }
+        }
+        entry.referenced = true;
+        hits.increment();
+        return entry.value;
+    }
+
+    synchronized void put(Entry<V> entry) {
+        Entry<V> previous = entries.get(entry.key);
+        if (previous != null) {
+            entry.slot = previous.slot;
+        } else {
+            while (slots[hand] != null && slots[hand].referenced) {
+                slots[hand].referenced = false;
+                hand = (hand + 1) % slots.length;
+            }
+            if (slots[hand] != null) {
+                entries.remove(slots[hand].key);
+                evictions.increment();
+            }
+            entry.slot = hand;
+            hand = (hand + 1) % slots.length;
+        }
+        slots[entry.slot] = entry;
+        entries.put(entry.key, entry);
+    }
+
+    synchronized void remove(Entry<V> entry) {
+        if (entries.remove(entry.key, entry)) {
+            slots[entry.slot] = null;
+        }
+    }
+
+    /** Drops the entries matching the predicate; for changes tags cannot see. */
+    synchronized void invalidateIf(Predicate<Entry<V>> stale) {
+        for (Entry<V> entry : slots) {
+            if (entry != null && stale.test(entry)) {
+                remove(entry);
+                invalidations.increment();
+            }
+        }
+    }
+
+    long getHits() {
+        return hits.sum();
+    }
+
+    long getMisses() {
+        return misses.sum();
+    }
+
+    long getEvictions() {
+        return evictions.sum();
+    }
+
+    long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
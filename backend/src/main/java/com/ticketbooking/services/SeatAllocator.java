@@ -0,0 +1,197 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+
+/**
+ * Picks the best free seats for a party, working on 64-bit words of the seat map's free-seat
+ * bitset rather than on individual seats.
+ *
+ * Each row is taken as one word (bit i = column i). A block of n adjacent free seats starting
+ * at column j is bit j of {@code free & free >>> 1 & ... & free >>> (n - 1)}, and the ranking
+ * rules below are masks over the same word, so a row costs a handful of ALU operations. Rows
+ * are numbered front to back and, within the best tier, the frontmost row wins.
+ *
+ * Rows are laid out as in the coach diagram: window seats at both ends and the aisle between
+ * the two middle columns. Rows wider than 64 seats only have their first 64 columns used.
+ */
+final class SeatAllocator {
+
+    enum Position {
+        ANY,
+        WINDOW,
+        AISLE
+    }
+
+    private SeatAllocator() {
+    }
+
+    /**
+     * Up to {@code partySize} seats as {row, col} pairs free for legs fromLeg..toLeg-1, or null
+     * if the party cannot be seated under the constraints.
+     *
+     * @param adjacent require one block of consecutive seats in a row
+     * @param sameRow  require all seats in one row (implied by {@code adjacent})
+     */
+    static int[][] allocate(SeatMap seats, int fromLeg, int toLeg, int partySize, Position position,
+                            boolean adjacent, boolean sameRow) {
+        if (partySize < 1 || partySize > 64) {
+            return null;
+        }
+        long[] free = seats.freeSeats(fromLeg, toLeg);
+        if (adjacent) {
+            return block(seats, free, partySize, position);
+        }
+        if (sameRow) {
+            return closestInRow(seats, free, partySize, position);
+        }
+        int[][] together = block(seats, free, partySize, position);
+        return together != null ? together : frontmost(seats, free, partySize);
+    }
+
+    // Tiers, best first: matches the preferred position, does not straddle the aisle, and fills a
+    // gap exactly (booked seat or row end on both sides) so larger blocks stay whole for others
+    private static int[][] block(SeatMap seats, long[] free, int n, Position position) {
+        int rows = seats.rows();
+        long[] candidates = new long[rows];
+        long[] preferred = new long[rows];
+        long[] sameSide = new long[rows];
+        long[] snug = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            int width = Math.min(seats.rowLength(row), 64);
+            if (width < n) {
+                continue;
+            }
+            long bits = rowBits(free, seats.rowStart(row), width);
+            long runs = bits;
+            for (int i = 1; i < n && runs != 0; i++) {
+                runs &= bits >>> i;
+            }
+            candidates[row] = runs & lowBits(width - n + 1);
+            preferred[row] = positionMask(position, width, n);
+            sameSide[row] = ~straddlesAisle(width, n);
+            snug[row] = ~(bits << 1) & ~(bits >>> n);
+        }
+        long[][][] tiers = {
+                {preferred, sameSide, snug},
+                {preferred, sameSide},
+                {sameSide, snug},
+                {sameSide},
+                {preferred},
+                {}
+        };
+        for (long[][] tier : tiers) {
+            for (int row = 0; row < rows; row++) {
+                long match = candidates[row];
+                for (long[] mask : tier) {
+                    match &= mask[row];
+                }
+                if (match != 0) {
+                    int col = Long.numberOfTrailingZeros(match);
+                    int[][] picked = new int[n][];
+                    for (int i = 0; i < n; i++) {
+                        picked[i] = new int[]{row, col + i};
+                    }
+                    return picked;
+                }
+            }
+        }
+        return null;
+    }
+
+    // The row whose free seats can hold the party in the narrowest span, preferred seats first
+    private static int[][] closestInRow(SeatMap seats, long[] free, int n, Position position) {
+        int bestRow = -1;
+        int bestStart = 0;
+        int bestSpan = Integer.MAX_VALUE;
+        boolean bestPreferred = false;
+        for (int row = 0; row < seats.rows(); row++) {
+            int width = Math.min(seats.rowLength(row), 64);
+            long bits = rowBits(free, seats.rowStart(row), width);
+            if (Long.bitCount(bits) < n) {
+                continue;
+            }
+            long wanted = positionMask(position, width, 1);
+            for (long window = bits; Long.bitCount(window) >= n; window &= window - 1) {
+                int first = Long.numberOfTrailingZeros(window);
+                int last = nthBit(window, n - 1);
+                int span = last - first;
+                boolean hasPreferred = position == Position.ANY || (window & lowBits(last + 1) & wanted) != 0;
+                if ((hasPreferred && !bestPreferred) || (hasPreferred == bestPreferred && span < bestSpan)) {
+                    bestRow = row;
+                    bestStart = first;
+                    bestSpan = span;
+                    bestPreferred = hasPreferred;
+                }
+            }
+        }
+        if (bestRow == -1) {
+            return null;
+        }
+        long bits = rowBits(free, seats.rowStart(bestRow), Math.min(seats.rowLength(bestRow), 64)) & (-1L << bestStart);
+        int[][] picked = new int[n][];
+        for (int i = 0; i < n; i++, bits &= bits - 1) {
+            picked[i] = new int[]{bestRow, Long.numberOfTrailingZeros(bits)};
+        }
+        return picked;
+    }
+
+    private static int[][] frontmost(SeatMap seats, long[] free, int n) {
+        int[][] picked = new int[n][];
+        int found = 0;
+        for (int row = 0; row < seats.rows() && found < n; row++) {
+            long bits = rowBits(free, seats.rowStart(row), Math.min(seats.rowLength(row), 64));
+            for (; bits != 0 && found < n; bits &= bits - 1) {
+                picked[found++] = new int[]{row, Long.numberOfTrailingZeros(bits)};
+            }
+        }
+        return found == n ? picked : null;
+    }
+
+    // Block start columns whose block includes a window seat or an aisle seat
+    private static long positionMask(Position position, int width, int n) {
+        switch (position) {
+            case WINDOW:
+                return 1L | (1L << (width - n));
+            case AISLE:
+                if (width < 4) {
+                    return -1L;
+                }
+                int aisle = width / 2;
+                // Blocks covering column aisle - 1 or column aisle
+                return lowBits(aisle + 1) & ~lowBits(Math.max(aisle - n, 0));
+            default:
+                return -1L;
+        }
+    }
+
+    // Block start columns whose block spans both sides of the aisle
+    private static long straddlesAisle(int width, int n) {
+        if (width < 4 || n < 2) {
+            return 0L;
+        }
+        int aisle = width / 2;
+        return lowBits(aisle) & ~lowBits(Math.max(aisle - n + 1, 0));
+    }
+
+    // Free bits of one row, column 0 in bit 0
+    private static long rowBits(long[] free, int start, int width) {
+        int word = start >>> 6;
+        int offset = start & 63;
+        long bits = free[word] >>> offset;
+        if (offset != 0 && word + 1 < free.length) {
+            bits |= free[word + 1] << (64 - offset);
+        }
+        return bits & lowBits(width);
+    }
+
+    private static long lowBits(int count) {
+        return count >= 64 ? -1L : (1L << count) - 1;
+    }
+
+    private static int nthBit(long bits, int n) {
+        for (int i = 0; i < n; i++) {
+            bits &= bits - 1;
+        }
+        return Long.numberOfTrailingZeros(bits);
+    }
+}
@@ -0,0 +1,304 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.utils.UserServiceUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Seats reserved for a user for a limited time while they check out.
+ *
+ * A hold claims its seats in the train's seat map like a booking does, so availability counts
+ * and other bookers see them as taken without knowing about holds. It then either becomes a
+ * booking ({@link #take}), is given up ({@link #release}) or expires. Expiry runs off a
+ * {@link TimingWheel} ticking every {@link #TICK_MILLIS}, so outstanding holds cost nothing
+ * until their tick comes round. The ticker thread starts with the first hold and stops at
+ * {@link #close}.
+ *
+ * Holds live in memory only and are never journaled; {@link #withoutHolds} gives the trains as
+ * they would be with every active hold released, which is what snapshots store, so a restart
+ * simply drops them.
+ *
+ * Each train and date keeps a count of held seats per leg, so {@link #covers} costs one look
+ * per leg whatever the number of holds, and its monitor orders the holds starting and ending
+ * there against {@link #whileUnchanged}; holds on other trains and dates carry on meanwhile.
+ */
+final class SeatHolds {
+
+    static final long TICK_MILLIS = 100;
+    private static final int WHEEL_SIZE = 1024;
+
+    private static final int ACTIVE = 0;
+    private static final int TAKEN = 1;
+    private static final int RELEASED = 2;
+
+    static final class Hold {
+        final String holdId;
+        final String userId;
+        final Train train;
+        final LocalDate dateOfTravel;
+        final int fromLeg;
+        final int toLeg;
+        final List<int[]> seats;
+        final long expiresAtMillis;
+        private final AtomicInteger state = new AtomicInteger(ACTIVE);
+
+        Hold(String holdId, String userId, Train train, LocalDate dateOfTravel, int fromLeg, int toLeg,
+             List<int[]> seats, long expiresAtMillis) {
+            this.holdId = holdId;
+            this.userId = userId;
+            this.train = train;
+            this.dateOfTravel = dateOfTravel;
+            this.fromLeg = fromLeg;
+            this.toLeg = toLeg;
+            this.seats = seats;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+
+    // Held seats per leg of one train on one date; the counts are guarded by the object
+    private static final class HeldLegs {
+        private int[] seats = new int[0];
+
+        void add(int fromLeg, int toLeg, int count) {
+            if (toLeg > seats.length) {
+                seats = Arrays.copyOf(seats, toLeg);
+            }
+            for (int leg = fromLeg; leg < toLeg; leg++) {
+                seats[leg] += count;
+            }
+        }
+
+        boolean any(int fromLeg, int toLeg) {
+            for (int leg = fromLeg; leg < Math.min(toLeg, seats.length); leg++) {
+                if (seats[leg] > 0) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final TrainService trainService;
+    private final Map<String, Hold> active = new ConcurrentHashMap<>();
+    // By date, then train id; past dates are dropped by evictBefore
+    private final ConcurrentNavigableMap<LocalDate, Map<String, HeldLegs>> heldLegs = new ConcurrentSkipListMap<>();
+    private final TimingWheel<Hold> wheel;
+    private volatile ScheduledExecutorService ticker;
+    private volatile boolean closed;
+    // Shared by everything that claims or frees held seats, exclusive while a snapshot copy is
+    // taken, so the copy and the list of holds subtracted from it agree. Taken before a HeldLegs
+    // monitor, never inside one.
+    private final ReentrantReadWriteLock seatLock = new ReentrantReadWriteLock();
+
+    SeatHolds(TrainService trainService) {
+        this.trainService = trainService;
+        this.wheel = new TimingWheel<>(TICK_MILLIS, WHEEL_SIZE, System.currentTimeMillis());
+    }
+
+    /**
+     * Claims all the seats for the legs or none of them and keeps them for {@code ttlMillis}.
+     * Returns null if any seat is not free.
+     */
+    Hold hold(String userId, Train train, LocalDate dateOfTravel, int fromLeg, int toLeg, List<int[]> seats, long ttlMillis) {
+        if (ticker == null || closed) {
+            startTicker();
+        }
+        seatLock.readLock().lock();
+        try {
+            HeldLegs held = heldLegs(train.getTrainId(), dateOfTravel);
+            synchronized (held) {
+                for (int i = 0; i < seats.size(); i++) {
+                    if (!trainService.bookTickets(train, dateOfTravel, seats.get(i)[0], seats.get(i)[1], fromLeg, toLeg)) {
+                        free(train, dateOfTravel, fromLeg, toLeg, seats.subList(0, i));
+                        return null;
+                    }
+                }
+                Hold hold = new Hold(UserServiceUtil.generateHoldId(), userId, train, dateOfTravel, fromLeg, toLeg,
+                        List.copyOf(seats), System.currentTimeMillis() + ttlMillis);
+                held.add(fromLeg, toLeg, seats.size());
+                active.put(hold.holdId, hold);
+                wheel.schedule(hold, hold.expiresAtMillis);
+                return hold;
+            }
+        } finally {
+            seatLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ends the user's hold and hands over its seats, still claimed, for the caller to book.
+     * Returns null if there is no such active hold for the user.
+     */
+    Hold take(String holdId, String userId) {
+        Hold hold = active.get(holdId);
+        if (hold == null || !hold.userId.equals(userId) || !hold.state.compareAndSet(ACTIVE, TAKEN)) {
+            return null;
+        }
+        HeldLegs held = heldLegs(hold.train.getTrainId(), hold.dateOfTravel);
+        synchronized (held) {
+            active.remove(holdId);
+            held.add(hold.fromLeg, hold.toLeg, -hold.seats.size());
+        }
+        return hold;
+    }
+
+    /** Gives up the user's hold and frees its seats. */
+    boolean release(String holdId, String userId) {
+        Hold hold = active.get(holdId);
+        return hold != null && hold.userId.equals(userId) && end(hold);
+    }
+
+    Hold get(String holdId) {
+        return active.get(holdId);
+    }
+
+    int activeCount() {
+        return active.size();
+    }
+
+    /** Whether an active hold has seats of the train on that date for any of the legs. */
+    boolean covers(String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        HeldLegs held = heldLegs(trainId, dateOfTravel);
+        synchronized (held) {
+            return held.any(fromLeg, toLeg);
+        }
+    }
+
+    /**
+     * Runs the action while no hold on the train and date can start or end, so what it saw of
+     * them still holds when it returns.
+     */
+    <T> T whileUnchanged(String trainId, LocalDate dateOfTravel, Supplier<T> action) {
+        synchronized (heldLegs(trainId, dateOfTravel)) {
+            return action.get();
+        }
+    }
+
+    /** Drops the per-leg counts of dates before {@code today}, which can no longer be held. */
+    void evictBefore(LocalDate today) {
+        heldLegs.headMap(today).clear();
+    }
+
+    /**
+     * The trains with every active hold's seats freed. Trains without holds are returned as
+     * they are; the others are copies, so live inventory is untouched.
+     */
+    List<Train> withoutHolds(List<Train> trains) {
+        seatLock.writeLock().lock();
+        try {
+            if (active.isEmpty()) {
+                return trains;
+            }
+            // By id, since an updated train replaces the object a hold was taken on
+            Map<String, Train> byId = new HashMap<>();
+            for (Train train : trains) {
+                byId.put(train.getTrainId(), train);
+            }
+            Map<String, Map<String, SeatMap>> copies = new HashMap<>();
+            for (Hold hold : active.values()) {
+                Train current = byId.get(hold.train.getTrainId());
+                if (current == null) {
+                    continue;
+                }
+                Map<String, SeatMap> dated = copies.computeIfAbsent(current.getTrainId(), id -> {
+                    Map<String, SeatMap> copy = new TreeMap<>();
+                    current.getDatedSeats().forEach((date, seats) -> copy.put(date, seats.copy()));
+                    return copy;
+                });
+                SeatMap seats = dated.get(hold.dateOfTravel.toString());
+                for (int[] seat : hold.seats) {
+                    if (seats != null) {
+                        seats.release(seat[0], seat[1], hold.fromLeg, hold.toLeg);
+                    }
+                }
+            }
+            List<Train> result = new ArrayList<>(trains.size());
+            for (Train train : trains) {
+                Map<String, SeatMap> dated = copies.get(train.getTrainId());
+                result.add(dated == null ? train : train.withDatedSeats(dated));
+            }
+            return result;
+        } finally {
+            seatLock.writeLock().unlock();
+        }
+    }
+
+    /** Stops expiring holds; no new hold can be taken afterwards. */
+    synchronized void close() {
+        closed = true;
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+    }
+
+    private synchronized void startTicker() {
+        if (closed) {
+            throw new IllegalStateException("Seat holds are closed");
+        }
+        if (ticker != null) {
+            return;
+        }
+        ScheduledExecutorService started = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "seat-hold-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        started.scheduleAtFixedRate(this::tick, TICK_MILLIS, TICK_MILLIS, TimeUnit.MILLISECONDS);
+        ticker = started;
+    }
+
+    private void tick() {
+        try {
+            wheel.advance(System.currentTimeMillis(), this::end);
+        } catch (RuntimeException e) {
+            System.err.println("Seat hold expiry failed: " + e.getMessage());
+        }
+    }
+
+    // Frees the seats unless the hold was already taken or released
+    private boolean end(Hold hold) {
+        if (!hold.state.compareAndSet(ACTIVE, RELEASED)) {
+            return false;
+        }
+        seatLock.readLock().lock();
+        try {
+            HeldLegs held = heldLegs(hold.train.getTrainId(), hold.dateOfTravel);
+            synchronized (held) {
+                active.remove(hold.holdId);
+                free(hold.train, hold.dateOfTravel, hold.fromLeg, hold.toLeg, hold.seats);
+                held.add(hold.fromLeg, hold.toLeg, -hold.seats.size());
+            }
+        } finally {
+            seatLock.readLock().unlock();
+        }
+        return true;
+    }
+
+    private HeldLegs heldLegs(String trainId, LocalDate dateOfTravel) {
+        return heldLegs.computeIfAbsent(dateOfTravel, date -> new ConcurrentHashMap<>())
+                .computeIfAbsent(trainId, id -> new HeldLegs());
+    }
+
+    private void free(Train train, LocalDate dateOfTravel, int fromLeg, int toLeg, List<int[]> seats) {
+        for (int[] seat : seats) {
+            trainService.releaseTickets(train, dateOfTravel, seat[0], seat[1], fromLeg, toLeg);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.entities.User;
+import com.ticketbooking.utils.UserServiceUtil;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * The users of a binary snapshot, decoded on first use. Opening one reads only each user's id,
+ * name and ticket ids into the key maps, and reserves the ids with
+ * {@link UserServiceUtil#reserveId}. The rest of a record, its tickets and their trains are
+ * built the first time a lookup lands on it, and that same instance is returned from then on
+ * so that changes made to it stick.
+ *
+ * The key maps are filled in the constructor and only read afterwards, so lookups go through
+ * them without locking; decoding is serialized on this object.
+ */
+final class SnapshotUsers {
+
+    private final BinarySnapshot.Reader reader;
+    private final Function<String, Train> trainLookup;
+    private final Map<String, Integer> byId = new HashMap<>();
+    private final Map<String, Integer> byName = new HashMap<>();
+    private final Map<String, Integer> byTicketId = new HashMap<>();
+    private final User[] decoded;
+
+    SnapshotUsers(BinarySnapshot.Reader reader, Function<String, Train> trainLookup, UnaryOperator<String> normalizeName) {
+        this.reader = reader;
+        this.trainLookup = trainLookup;
+        decoded = new User[reader.size()];
+        for (int i = 0; i < decoded.length; i++) {
+            String userId = reader.userId(i);
+            UserServiceUtil.reserveId(userId);
+            byId.put(userId, i);
+            byName.put(normalizeName.apply(reader.username(i)), i);
+            for (String ticketId : reader.ticketIds(i)) {
+                UserServiceUtil.reserveId(ticketId);
+                byTicketId.put(ticketId, i);
+            }
+        }
+    }
+
+    boolean hasName(String normalizedName) {
+        return byName.containsKey(normalizedName);
+    }
+
+    /**
+     * The user with that id, or null if the snapshot has none. {@code onFirstUse} sees each user
+     * once, right after it is decoded and before any caller gets it.
+     */
+    User byId(String userId, Consumer<User> onFirstUse) {
+        return get(byId.get(userId), onFirstUse);
+    }
+
+    User byName(String normalizedName, Consumer<User> onFirstUse) {
+        return get(byName.get(normalizedName), onFirstUse);
+    }
+
+    /** The user the snapshot lists as holding that ticket. */
+    User byTicketId(String ticketId, Consumer<User> onFirstUse) {
+        return get(byTicketId.get(ticketId), onFirstUse);
+    }
+
+    private synchronized User get(Integer index, Consumer<User> onFirstUse) {
+        if (index == null) {
+            return null;
+        }
+        User user = decoded[index];
+        if (user == null) {
+            user = reader.user(index, trainLookup);
+            decoded[index] = user;
+            onFirstUse.accept(user);
+        }
+        return user;
+    }
+
+    /**
+     * {@code live} followed by every user nobody has looked up yet, for writing a new snapshot.
+     * Those are decoded afresh and not kept. {@code live} is read while decoding is held off, so
+     * a user first used meanwhile is in exactly one of the two.
+     */
+    synchronized List<User> withUnused(List<User> live) {
+        List<User> all;
+        synchronized (live) {
+            all = new ArrayList<>(live.size() + decoded.length);
+            all.addAll(live);
+        }
+        for (int i = 0; i < decoded.length; i++) {
+            if (decoded[i] == null) {
+                all.add(reader.user(i, trainLookup));
+            }
+        }
+        return all;
+    }
+}
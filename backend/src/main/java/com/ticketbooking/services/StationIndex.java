@@ -0,0 +1,137 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.Train;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Inverted index from station name to the trains that stop there.
+ *
+ * Each station maps to a postings array sorted by train ordinal (the train's position in
+ * {@link TrainService}'s list), one long per train: ordinal in the high 32 bits, stop position
+ * in the low 32. A source/destination query is a merge of two postings arrays, so it costs
+ * the number of trains serving either station rather than the number of trains.
+ *
+ * Postings arrays are never modified in place; writers replace them, so searches run without
+ * locking against {@link #add} and {@link #remove}.
+ */
+final class StationIndex {
+
+    private static final long[] EMPTY = new long[0];
+
+    private final Map<String, long[]> postings = new ConcurrentHashMap<>();
+
+    static StationIndex build(List<Train> trains) {
+        StationIndex index = new StationIndex();
+        for (int ordinal = 0; ordinal < trains.size(); ordinal++) {
+            index.add(ordinal, trains.get(ordinal));
+        }
+        return index;
+    }
+
+    /** An index with the same postings that can be changed without affecting this one. */
+    StationIndex copy() {
+        StationIndex copy = new StationIndex();
+        copy.postings.putAll(postings);
+        return copy;
+    }
+
+    static String normalize(String station) {
+        return station.toLowerCase().trim();
+    }
+
+    synchronized void add(int ordinal, Train train) {
+        List<String> stations = train.getStations();
+        if (stations == null) {
+            return;
+        }
+        Set<String> seen = new HashSet<>();
+        for (int position = 0; position < stations.size(); position++) {
+            String key = normalize(stations.get(position));
+            // A route visiting a station twice is indexed at its first stop, like List.indexOf
+            if (!seen.add(key)) {
+                continue;
+            }
+            long[] current = postings.getOrDefault(key, EMPTY);
+            int at = Arrays.binarySearch(current, (long) ordinal << 32);
+            int insertAt = at >= 0 ? at : -at - 1;
+            long[] updated = new long[current.length + 1];
+            System.arraycopy(current, 0, updated, 0, insertAt);
+            updated[insertAt] = posting(ordinal, position);
+            System.arraycopy(current, insertAt, updated, insertAt + 1, current.length - insertAt);
+            postings.put(key, updated);
+        }
+    }
+
+    synchronized void remove(int ordinal, Train train) {
+        List<String> stations = train.getStations();
+        if (stations == null) {
+            return;
+        }
+        for (String station : new HashSet<>(stations)) {
+            String key = normalize(station);
+            long[] current = postings.get(key);
+            int at = current == null ? -1 : find(current, ordinal);
+            if (at < 0) {
+                continue;
+            }
+            if (current.length == 1) {
+                postings.remove(key);
+                continue;
+            }
+            long[] updated = new long[current.length - 1];
+            System.arraycopy(current, 0, updated, 0, at);
+            System.arraycopy(current, at + 1, updated, at, current.length - at - 1);
+            postings.put(key, updated);
+        }
+    }
+
+    /**
+     * Ordinals, ascending, of the trains that stop at {@code source} and later at
+     * {@code destination}. Inputs must already be normalized.
+     */
+    int[] search(String source, String destination) {
+        long[] from = postings.getOrDefault(source, EMPTY);
+        long[] to = postings.getOrDefault(destination, EMPTY);
+        int[] matches = new int[Math.min(from.length, to.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < from.length && j < to.length) {
+            int fromTrain = (int) (from[i] >>> 32);
+            int toTrain = (int) (to[j] >>> 32);
+            if (fromTrain < toTrain) {
+                i++;
+            } else if (fromTrain > toTrain) {
+                j++;
+            } else {
+                if ((int) from[i] < (int) to[j]) {
+                    matches[count++] = fromTrain;
+                }
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(matches, count);
+    }
+
+    /** Number of trains stopping at the (normalized) station. */
+    int trainCount(String station) {
+        return postings.getOrDefault(station, EMPTY).length;
+    }
+
+    private static long posting(int ordinal, int position) {
+        return ((long) ordinal << 32) | position;
+    }
+
+    private static int find(long[] postings, int ordinal) {
+        int at = Arrays.binarySearch(postings, (long) ordinal << 32);
+        int candidate = at >= 0 ? at : -at - 1;
+        return candidate < postings.length && (int) (postings[candidate] >>> 32) == ordinal ? candidate : -1;
+    }
+}
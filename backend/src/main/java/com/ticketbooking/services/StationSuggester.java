@@ -0,0 +1,161 @@
+package com.ticketbooking.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+/**
+ * Prefix lookup over station names for autocomplete.
+ *
+ * Every station is indexed under its full name and under each later word, so "cen" finds
+ * "mumbai central". Keys live in one sorted array searched with a binary search; a query scans
+ * only the keys sharing its prefix and keeps the {@code limit} stations served by the most
+ * trains. Train counts come from the caller (the station postings), so a train update only
+ * has to insert stations the index has not seen before.
+ */
+final class StationSuggester {
+
+    // Sorted keys and, at the same index, the station each key belongs to. Replaced as a pair.
+    private static final class Keys {
+        final String[] keys;
+        final String[] stations;
+
+        Keys(String[] keys, String[] stations) {
+            this.keys = keys;
+            this.stations = stations;
+        }
+    }
+
+    private final ToIntFunction<String> trainCount;
+    private volatile Keys current = new Keys(new String[0], new String[0]);
+
+    StationSuggester(ToIntFunction<String> trainCount) {
+        this.trainCount = trainCount;
+    }
+
+    /**
+     * A suggester sharing this one's keys but ranking by {@code trainCount}; stations added to
+     * either afterwards are not seen by the other.
+     */
+    StationSuggester copy(ToIntFunction<String> trainCount) {
+        StationSuggester copy = new StationSuggester(trainCount);
+        copy.current = current;
+        return copy;
+    }
+
+    /** Adds stations not indexed yet; known ones only change through their train count. */
+    synchronized void addStations(Collection<String> stations) {
+        Keys keys = current;
+        List<String[]> added = new ArrayList<>();
+        for (String station : stations) {
+            String name = StationIndex.normalize(station);
+            if (name.isEmpty() || contains(keys, name) || added.stream().anyMatch(pair -> pair[1].equals(name))) {
+                continue;
+            }
+            added.add(new String[]{name, name});
+            for (int i = name.indexOf(' '); i != -1; i = name.indexOf(' ', i + 1)) {
+                String word = name.substring(i + 1).trim();
+                if (!word.isEmpty()) {
+                    added.add(new String[]{word, name});
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        added.sort((a, b) -> a[0].equals(b[0]) ? a[1].compareTo(b[1]) : a[0].compareTo(b[0]));
+
+        // Merge the new keys into the existing sorted arrays
+        int size = keys.keys.length + added.size();
+        String[] mergedKeys = new String[size];
+        String[] mergedStations = new String[size];
+        int i = 0;
+        int j = 0;
+        for (int k = 0; k < size; k++) {
+            if (j == added.size() || (i < keys.keys.length && keys.keys[i].compareTo(added.get(j)[0]) <= 0)) {
+                mergedKeys[k] = keys.keys[i];
+                mergedStations[k] = keys.stations[i++];
+            } else {
+                mergedKeys[k] = added.get(j)[0];
+                mergedStations[k] = added.get(j++)[1];
+            }
+        }
+        current = new Keys(mergedKeys, mergedStations);
+    }
+
+    /**
+     * Up to {@code limit} stations having a word starting with {@code prefix}, most trains first,
+     * then alphabetical. Stations no train serves any more are left out.
+     */
+    List<String> suggest(String prefix, int limit) {
+        String query = StationIndex.normalize(prefix);
+        if (query.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Keys keys = current;
+        String[] best = new String[limit];
+        int[] bestCounts = new int[limit];
+        int found = 0;
+        for (int i = lowerBound(keys.keys, query); i < keys.keys.length && keys.keys[i].startsWith(query); i++) {
+            String station = keys.stations[i];
+            int count = trainCount.applyAsInt(station);
+            if (count == 0 || indexOf(best, found, station) != -1) {
+                continue;
+            }
+            // Insertion into the small ranked array; limit is a handful of entries
+            int at = found;
+            while (at > 0 && ranksBefore(count, station, bestCounts[at - 1], best[at - 1])) {
+                at--;
+            }
+            if (at == limit) {
+                continue;
+            }
+            int shift = Math.min(found, limit - 1) - at;
+            System.arraycopy(best, at, best, at + 1, shift);
+            System.arraycopy(bestCounts, at, bestCounts, at + 1, shift);
+            best[at] = station;
+            bestCounts[at] = count;
+            found = Math.min(found + 1, limit);
+        }
+        return Arrays.asList(Arrays.copyOf(best, found));
+    }
+
+    private static boolean ranksBefore(int count, String station, int otherCount, String other) {
+        return count > otherCount || (count == otherCount && station.compareTo(other) < 0);
+    }
+
+    private static boolean contains(Keys keys, String station) {
+        int at = lowerBound(keys.keys, station);
+        for (int i = at; i < keys.keys.length && keys.keys[i].equals(station); i++) {
+            if (keys.stations[i].equals(station)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int indexOf(String[] values, int size, String value) {
+        for (int i = 0; i < size; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int lowerBound(String[] keys, String key) {
+        int lo = 0;
+        int hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(key) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,87 @@
+package com.ticketbooking.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+
+/**
+ * Hashed timing wheel: deadlines are rounded up to ticks and hashed into a ring of buckets by
+ * tick number, so scheduling is O(1) and each tick only visits one bucket instead of every
+ * outstanding item. An item due more than one rotation ahead waits in its bucket until the
+ * wheel comes round to its deadline.
+ *
+ * Any thread may {@link #schedule}; only one thread may {@link #advance}. New items go through
+ * a lock-free queue that the advancing thread moves into the buckets, so the buckets
+ * themselves are never shared. Items are not cancelled; whoever consumes an expired item
+ * checks whether it still matters.
+ */
+final class TimingWheel<T> {
+
+    private static final class Entry<T> {
+        final T item;
+        final long deadlineTick;
+
+        Entry(T item, long deadlineTick) {
+            this.item = item;
+            this.deadlineTick = deadlineTick;
+        }
+    }
+
+    private final long tickMillis;
+    private final int mask;
+    private final List<List<Entry<T>>> buckets;
+    private final Queue<Entry<T>> pending = new ConcurrentLinkedQueue<>();
+    // Last tick whose bucket has been processed; written by the advancing thread only
+    private volatile long processedTick;
+
+    /** @param wheelSize number of buckets, rounded up to a power of two */
+    TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        int size = Integer.highestOneBit(Math.max(wheelSize, 2) - 1) << 1;
+        this.mask = size - 1;
+        this.buckets = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        this.processedTick = startMillis / tickMillis;
+    }
+
+    /** Hands the item to the expiry consumer at the first tick at or after {@code deadlineMillis}. */
+    void schedule(T item, long deadlineMillis) {
+        pending.add(new Entry<>(item, (deadlineMillis + tickMillis - 1) / tickMillis));
+    }
+
+    /** Processes every tick up to {@code nowMillis}, passing due items to {@code expired}. */
+    void advance(long nowMillis, Consumer<T> expired) {
+        long target = nowMillis / tickMillis;
+        for (long tick = processedTick + 1; tick <= target; tick++) {
+            for (Entry<T> entry; (entry = pending.poll()) != null; ) {
+                // Already due ones land in this tick's bucket
+                buckets.get((int) (Math.max(entry.deadlineTick, tick) & mask)).add(entry);
+            }
+            List<Entry<T>> bucket = buckets.get((int) (tick & mask));
+            int kept = 0;
+            for (int i = 0; i < bucket.size(); i++) {
+                Entry<T> entry = bucket.get(i);
+                if (entry.deadlineTick <= tick) {
+                    expired.accept(entry.item);
+                } else {
+                    bucket.set(kept++, entry);
+                }
+            }
+            bucket.subList(kept, bucket.size()).clear();
+            processedTick = tick;
+        }
+    }
+
+    /** Items scheduled and not yet handed out. Only call from the advancing thread. */
+    int size() {
+        int size = pending.size();
+        for (List<Entry<T>> bucket : buckets) {
+            size += bucket.size();
+        }
+        return size;
+    }
+}
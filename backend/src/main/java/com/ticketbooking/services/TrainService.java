@@ -3,133 +3,589 @@ package com.ticketbooking.services;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ticketbooking.entities.SeatMap;
 import com.ticketbooking.entities.Train;
+import com.ticketbooking.utils.Constants;
+import com.ticketbooking.utils.Metrics;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
 import java.util.stream.IntStream;
 
-public class TrainService {
+/**
+ * The train catalog and seat inventory, shared by everything in the process that books or
+ * searches. Create one per process and hand it to {@link UserBookingService}.
+ *
+ * The catalog (train list, id lookup and the search indexes) is an immutable {@link Catalog}
+ * replaced as a whole by {@link #addTrain} and {@link #updateTrain}, so a search reads one
+ * consistent version without locking. Seat state is not part of the copy: the trains' seat
+ * maps are shared by every version and changed in place through {@link #bookTickets} and
+ * {@link #releaseTickets}, so searches always see what bookings have sold.
+ *
+ * Seat holds expire on a background thread started by the first hold; {@link #close} stops it.
+ */
+public class TrainService implements Closeable {
 
-    private List<Train> trainList;
+    /** Trains serving a route, with the seats free on each for the route and date. */
+    public static final class SearchResult {
+        private final List<Train> trains;
+        private final Map<String, Integer> availability;
+        private final List<Map<String, Object>> summaries;
+
+        SearchResult(List<Train> trains, Map<String, Integer> availability, List<Map<String, Object>> summaries) {
+            this.trains = Collections.unmodifiableList(trains);
+            this.availability = Collections.unmodifiableMap(availability);
+            this.summaries = Collections.unmodifiableList(summaries);
+        }
+
+        public List<Train> getTrains() {
+            return trains;
+        }
+
+        /** Free seats by train id. */
+        public Map<String, Integer> getAvailability() {
+            return availability;
+        }
+
+        /**
+         * One small map per train: its timetable plus free seats and capacity, without the
+         * seat matrices.
+         */
+        public List<Map<String, Object>> getSummaries() {
+            return summaries;
+        }
+    }
+
+    private static final class Catalog {
+        final List<Train> trains;
+        final Map<String, Train> byId;
+        final StationIndex stationIndex;
+        final StationSuggester stationSuggester;
+        final JourneyPlanner journeyPlanner;
+
+        Catalog(List<Train> trains, StationIndex stationIndex, StationSuggester stationSuggester) {
+            this.trains = Collections.unmodifiableList(trains);
+            Map<String, Train> byId = new HashMap<>();
+            for (Train train : trains) {
+                byId.put(train.getTrainId(), train);
+            }
+            this.byId = byId;
+            this.stationIndex = stationIndex;
+            this.stationSuggester = stationSuggester;
+            this.journeyPlanner = new JourneyPlanner(trains);
+        }
+    }
+
+    private volatile Catalog catalog;
     private final ObjectMapper objectMapper;
-    private static final String TRAIN_DB_PATH = "data/trains.json";
-    private static final String BACKUP_TRAIN_DB_PATH = "src/main/resources/data/trains.json";
+    private final Path dataDir;
+    private final SeatHolds holds = new SeatHolds(this);
+    // Bumped whenever a train's seats or definition change; tags cached searches
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final SearchCache<SearchResult> searchCache = new SearchCache<>(Constants.SEARCH_CACHE_SIZE);
+    // Day of the last sweep; claimed by compare-and-set so concurrent bookings sweep once a day
+    private final AtomicReference<LocalDate> lastEviction = new AtomicReference<>();
+    private static final Metrics.Timer SNAPSHOT_TIMER = Metrics.DEFAULT.persistenceTimer("trains_snapshot");
+    // Set by the booking service selling these trains: catalog changes are made under its
+    // exclusive lock and written by its compaction, which returns false once it is closed
+    private volatile Lock catalogLock;
+    private volatile BooleanSupplier snapshotWriter;
     
     private String sanitizePath(String path) {
         return path.replaceAll("\\.\\.", "").replaceAll("[^a-zA-Z0-9/._-]", "");
     }
 
     public TrainService() throws IOException{
+        this(Paths.get(Constants.DATA_DIR));
+    }
+
+    /** Loads and snapshots the trains in the given directory instead of {@link Constants#DATA_DIR}. */
+    TrainService(Path dataDir) throws IOException{
+        this.dataDir = dataDir;
         objectMapper = new ObjectMapper();
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
         loadTrains();
     }
 
-    public void loadTrains() throws IOException{
+    public synchronized void loadTrains() throws IOException{
         try {
-            // Try to load from classpath first (for packaged JAR)
-            var resource = getClass().getClassLoader().getResourceAsStream(TRAIN_DB_PATH);
-            if (resource != null) {
-                trainList = objectMapper.readValue(resource, new TypeReference<List<Train>>() {});
+            // Snapshots are written to the file system, so a snapshot there always wins;
+            // the classpath copy only seeds a packaged JAR that has never saved anything
+            Path binary = dataDir.resolve(Constants.TRAINS_SNAPSHOT_FILE);
+            if (BinarySnapshot.enabled() && Files.exists(binary)) {
+                catalog = index(BinarySnapshot.open(binary).trains());
+                return;
+            }
+            File snapshot = dataDir.resolve(Constants.TRAINS_FILE).toFile();
+            var resource = getClass().getClassLoader().getResourceAsStream(Constants.TRAINS_DATA_PATH);
+            List<Train> trains;
+            if (snapshot.exists() || resource == null) {
+                trains = objectMapper.readValue(snapshot, new TypeReference<List<Train>>() {});
             } else {
-                // Fallback to file system (for development)
-                trainList = objectMapper.readValue(new File(BACKUP_TRAIN_DB_PATH), new TypeReference<List<Train>>() {});
+                trains = objectMapper.readValue(resource, new TypeReference<List<Train>>() {});
             }
+            catalog = index(trains);
         } catch (Exception e) {
             throw new IOException("Failed to load trains data", e);
+        } finally {
+            searchCache.invalidateIf(entry -> true);
+        }
+    }
+
+    private static Catalog index(List<Train> trains) {
+        StationIndex stationIndex = StationIndex.build(trains);
+        StationSuggester stationSuggester = new StationSuggester(stationIndex::trainCount);
+        for (Train train : trains) {
+            addStations(stationSuggester, train);
+        }
+        return new Catalog(trains, stationIndex, stationSuggester);
+    }
+
+    private static void addStations(StationSuggester stationSuggester, Train train) {
+        if (train.getStations() != null) {
+            stationSuggester.addStations(train.getStations());
         }
     }
 
+    /** The trains of the current catalog version, in catalog order. */
+    public List<Train> getTrains() {
+        return catalog.trains;
+    }
+
     public List<Train> searchTrains(String source, String destination){
+        return searchTrains(source, destination, LocalDate.now()).getTrains();
+    }
+
+    /**
+     * Trains from source to destination and their free seats on the date. Results are cached
+     * until a booking, cancellation or update touches one of the trains in them.
+     */
+    public SearchResult searchTrains(String source, String destination, LocalDate dateOfTravel){
         if (source == null || destination == null || source.trim().isEmpty() || destination.trim().isEmpty()) {
-            return Collections.emptyList();
+            return new SearchResult(Collections.emptyList(), Collections.emptyMap(), Collections.emptyList());
         }
         
         try{
-            return trainList.stream()
-                    .filter(train -> validTrain(train, source.toLowerCase().trim(), destination.toLowerCase().trim()))
-                    .collect(Collectors.toList());
+            String from = StationIndex.normalize(source);
+            String to = StationIndex.normalize(destination);
+            String key = SearchCache.key(from, to, dateOfTravel);
+            // Dates outside the window have no seats to sell and would turn stale at midnight
+            boolean cacheable = isWithinBookingWindow(dateOfTravel);
+            SearchResult cached = cacheable ? searchCache.get(key, this::version) : null;
+            if (cached != null) {
+                return cached;
+            }
+
+            Catalog current = catalog;
+            int[] matches = current.stationIndex.search(from, to);
+            List<Train> trains = new ArrayList<>(matches.length);
+            String[] trainIds = new String[matches.length];
+            long[] trainVersions = new long[matches.length];
+            Map<String, Integer> availability = new HashMap<>();
+            List<Map<String, Object>> summaries = new ArrayList<>(matches.length);
+            for (int i = 0; i < matches.length; i++) {
+                Train train = current.trains.get(matches[i]);
+                trains.add(train);
+                trainIds[i] = train.getTrainId();
+                // Read before the seats, so a booking racing with this search leaves a stale tag
+                trainVersions[i] = version(train.getTrainId());
+                int free = availableSeats(train, from, to, dateOfTravel);
+                availability.put(train.getTrainId(), free);
+                Map<String, Object> summary = new LinkedHashMap<>();
+                summary.put("trainId", train.getTrainId());
+                summary.put("trainNo", train.getTrainNo());
+                summary.put("trainName", train.getTrainName());
+                summary.put("stations", train.getStations());
+                summary.put("stationTimes", train.getStationTimes());
+                summary.put("availableSeats", free);
+                summary.put("capacity", train.getSeats() == null ? 0 : train.getSeats().capacity());
+                summaries.add(summary);
+            }
+            SearchResult result = new SearchResult(trains, availability, summaries);
+            if (!cacheable) {
+                return result;
+            }
+            SearchCache.Entry<SearchResult> entry = new SearchCache.Entry<>(key, from, to, result, trainIds, trainVersions);
+            searchCache.put(entry);
+            if (catalog != current) {
+                // An addTrain may have invalidated this route before the entry went in
+                searchCache.remove(entry);
+            }
+            return result;
         }catch (Exception ex){
             System.err.println("Error in searchTrains");
+            return new SearchResult(Collections.emptyList(), Collections.emptyMap(), Collections.emptyList());
+        }
+    }
+
+    private long version(String trainId) {
+        AtomicLong version = versions.get(trainId);
+        return version == null ? 0 : version.get();
+    }
+
+    private void bumpVersion(String trainId) {
+        versions.computeIfAbsent(trainId, id -> new AtomicLong()).incrementAndGet();
+    }
+
+    /** Hit ratio, evictions and invalidations of the search cache. */
+    public Map<String, Object> getSearchCacheStats() {
+        long hits = searchCache.getHits();
+        long lookups = hits + searchCache.getMisses();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", searchCache.size());
+        stats.put("hits", hits);
+        stats.put("misses", searchCache.getMisses());
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", searchCache.getEvictions());
+        stats.put("invalidations", searchCache.getInvalidations());
+        return stats;
+    }
+
+    /**
+     * Station names starting with (or having a word starting with) the prefix, ranked by the
+     * number of trains stopping there.
+     */
+    public List<Map<String, Object>> suggestStations(String prefix, int limit) {
+        if (prefix == null) {
             return Collections.emptyList();
         }
+        Catalog current = catalog;
+        List<Map<String, Object>> suggestions = new ArrayList<>();
+        for (String station : current.stationSuggester.suggest(prefix, limit)) {
+            suggestions.add(Map.of("name", station, "trains", current.stationIndex.trainCount(station)));
+        }
+        return suggestions;
+    }
+
+    /**
+     * Itineraries from source to destination with up to {@code maxChanges} changes of train,
+     * leaving on the given date (not before now if it is today). Lists the fastest itinerary
+     * for each number of changes that beats every itinerary with fewer changes.
+     */
+    public List<Map<String, Object>> searchConnections(String source, String destination, LocalDate dateOfTravel,
+                                                       int maxChanges, int minConnectionMinutes) {
+        if (source == null || destination == null || source.trim().isEmpty() || destination.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        LocalDateTime earliest = dateOfTravel.equals(LocalDate.now()) ? LocalDateTime.now() : dateOfTravel.atStartOfDay();
+        List<Map<String, Object>> journeys = new ArrayList<>();
+        for (List<JourneyPlanner.Leg> legs : catalog.journeyPlanner.plan(source, destination, earliest, maxChanges + 1, minConnectionMinutes)) {
+            List<Map<String, Object>> legList = new ArrayList<>();
+            for (JourneyPlanner.Leg leg : legs) {
+                Map<String, Object> entry = new LinkedHashMap<>();
+                entry.put("trainId", leg.train.getTrainId());
+                entry.put("trainNo", leg.train.getTrainNo());
+                entry.put("trainName", leg.train.getTrainName());
+                entry.put("source", leg.from);
+                entry.put("destination", leg.to);
+                entry.put("departure", leg.departure.toString());
+                entry.put("arrival", leg.arrival.toString());
+                entry.put("dateOfTravel", leg.dateOfTravel.toString());
+                entry.put("availableSeats", availableSeats(leg.train, leg.from, leg.to, leg.dateOfTravel));
+                legList.add(entry);
+            }
+            JourneyPlanner.Leg first = legs.get(0);
+            JourneyPlanner.Leg last = legs.get(legs.size() - 1);
+            Map<String, Object> journey = new LinkedHashMap<>();
+            journey.put("changes", legs.size() - 1);
+            journey.put("departure", first.departure.toString());
+            journey.put("arrival", last.arrival.toString());
+            journey.put("durationMinutes", Duration.between(first.departure, last.arrival).toMinutes());
+            journey.put("legs", legList);
+            journeys.add(journey);
+        }
+        return journeys;
+    }
+
+    /**
+     * Adds the train, or replaces the train with the same id (ignoring case). A replacement keeps
+     * the seats sold on the old one, so it may only change the stations or the seat layout while
+     * nothing is sold.
+     */
+    public synchronized void addTrain(Train newTrain) {
+        Lock lock = catalogLock;
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            putTrain(newTrain);
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+        saveTrainListToFile();
     }
 
-    public void addTrain(Train newTrain) {
-        Optional<Train> existingTrain = trainList.stream()
-                .filter(train -> train.getTrainId().equalsIgnoreCase(newTrain.getTrainId()))
+    private void putTrain(Train newTrain) {
+        Catalog current = catalog;
+        OptionalInt index = IntStream.range(0, current.trains.size())
+                .filter(i -> current.trains.get(i).getTrainId().equalsIgnoreCase(newTrain.getTrainId()))
                 .findFirst();
+        if (index.isPresent()) {
+            Train previous = current.trains.get(index.getAsInt());
+            if (previous != newTrain && !newTrain.inheritDatedSeats(previous) && !previous.getDatedSeats().isEmpty()) {
+                throw new IllegalArgumentException("Train " + previous.getTrainId()
+                        + " has seats sold; its stations and seat layout cannot change");
+            }
+        }
 
-        if (existingTrain.isPresent()) {
-            updateTrain(newTrain);
+        List<Train> trains = new ArrayList<>(current.trains);
+        StationIndex stationIndex = current.stationIndex.copy();
+        if (index.isPresent()) {
+            Train previous = trains.set(index.getAsInt(), newTrain);
+            stationIndex.remove(index.getAsInt(), previous);
+            stationIndex.add(index.getAsInt(), newTrain);
         } else {
-            trainList.add(newTrain);
-            saveTrainListToFile();
+            trains.add(newTrain);
+            stationIndex.add(trains.size() - 1, newTrain);
         }
+        StationSuggester stationSuggester = current.stationSuggester.copy(stationIndex::trainCount);
+        addStations(stationSuggester, newTrain);
+        catalog = new Catalog(trains, stationIndex, stationSuggester);
+        // Entries holding the old train fail their tag check; routes the train now serves
+        // have no tag for it
+        bumpVersion(newTrain.getTrainId());
+        index.ifPresent(i -> bumpVersion(current.trains.get(i).getTrainId()));
+        searchCache.invalidateIf(entry -> {
+            int from = newTrain.stationIndex(entry.source);
+            return from != -1 && from < newTrain.stationIndex(entry.destination);
+        });
+    }
+
+    /**
+     * Serializes the current trains for a snapshot. Cheap next to the disk write, so callers
+     * can do it under their lock and write the bytes outside it. Seats under a temporary hold
+     * are written as free, since holds do not survive a restart.
+     */
+    byte[] snapshotBytes() throws IOException {
+        List<Train> trains = holds.withoutHolds(catalog.trains);
+        return BinarySnapshot.enabled() ? BinarySnapshot.encodeTrains(trains) : objectMapper.writeValueAsBytes(trains);
+    }
+
+    void writeSnapshot(byte[] snapshot) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            BookingJournal.writeAtomically(dataDir.resolve(BinarySnapshot.enabled() ? Constants.TRAINS_SNAPSHOT_FILE : Constants.TRAINS_FILE), snapshot);
+            failed = false;
+        } finally {
+            SNAPSHOT_TIMER.record(start, failed);
+        }
+    }
+
+    /**
+     * Makes catalog changes under {@code lock}, so no booking is half done on a train being
+     * replaced, and hands their snapshots to {@code writer}, which returns false if it can no
+     * longer write them.
+     */
+    void writeSnapshotsWith(Lock lock, BooleanSupplier writer) {
+        catalogLock = lock;
+        snapshotWriter = writer;
     }
 
     private void saveTrainListToFile() {
+        // A booking service writes the seats along with the bookings that claimed them, so
+        // the snapshot never holds a seat whose journal entry may still fail
+        BooleanSupplier writer = snapshotWriter;
+        if (writer != null && writer.getAsBoolean()) {
+            return;
+        }
         try {
             // Always save to backup path for development
-            objectMapper.writeValue(new File(BACKUP_TRAIN_DB_PATH), trainList);
+            writeSnapshot(snapshotBytes());
         } catch (IOException e) {
             System.err.println("Failed to save train list to file: " + e.getMessage());
         }
     }
 
     public void updateTrain(Train updatedTrain) {
-        OptionalInt index = IntStream.range(0, trainList.size())
-                .filter(i -> trainList.get(i).getTrainId().equalsIgnoreCase(updatedTrain.getTrainId()))
-                .findFirst();
-
-        if (index.isPresent()) {
-            trainList.set(index.getAsInt(), updatedTrain);
-            saveTrainListToFile();
-        } else {
-            addTrain(updatedTrain);
-        }
+        addTrain(updatedTrain);
     }
     
-    private boolean validTrain(Train train, String source, String destination) {
-        List<String> stationList = train.getStations();
-        int sourceIndex = stationList.indexOf(source);
-        int destinationIndex = stationList.indexOf(destination);
+    public boolean bookTickets(Train train, int row, int seat) {
+        return bookTickets(train, LocalDate.now(), row, seat, 0, train.getSeats().legs());
+    }
 
+    /**
+     * Books the seat on the given travel date for the legs between stations[fromLeg] and
+     * stations[toLeg]. The date's seat map is copied from the template on its first booking.
+     * Only changes memory; {@link UserBookingService} records the booking in its journal.
+     */
+    public boolean bookTickets(Train train, LocalDate dateOfTravel, int row, int seat, int fromLeg, int toLeg) {
         try{
-            return  sourceIndex != -1
-                    && destinationIndex != -1
-                    && sourceIndex < destinationIndex;
+            if (!isWithinBookingWindow(dateOfTravel)
+                    || !train.seatsOn(dateOfTravel.toString()).isFree(row, seat, fromLeg, toLeg)) {
+                return false;
+            }
+            evictExpiredDates();
+            SeatMap shard = train.getDatedSeats()
+                    .computeIfAbsent(dateOfTravel.toString(), date -> train.getSeats().copy());
+            if (!shard.book(row, seat, fromLeg, toLeg)) {
+                return false;
+            }
+            bumpVersion(train.getTrainId());
+            return true;
         }catch (Exception e){
-            System.out.println("Error in validTrain: " + e.getMessage());
+            System.out.println("Error in bookTickets: " + e.getMessage());
             return false;
         }
     }
 
-    public boolean bookTickets(Train train, int row, int seat) {
-        List<List<Integer>> seats = train.getSeats();
+    public boolean releaseTickets(Train train, LocalDate dateOfTravel, int row, int seat, int fromLeg, int toLeg) {
         try{
-            if (row >= 0 && row < seats.size() && seat >= 0 && seat < seats.get(row).size()) {
-                if (seats.get(row).get(seat) == 0) {
-                    seats.get(row).set(seat, 1);
-                    train.setSeats(seats);
-                    addTrain(train);
-                    return true;
-                }
+            SeatMap shard = train.getDatedSeats().get(dateOfTravel.toString());
+            if (shard == null || !shard.release(row, seat, fromLeg, toLeg)) {
+                return false;
             }
-            return false;
+            bumpVersion(train.getTrainId());
+            return true;
         }catch (Exception e){
-            System.out.println("Error in bookTickets: " + e.getMessage());
+            System.out.println("Error in releaseTickets: " + e.getMessage());
             return false;
         }
     }
 
+    /**
+     * Number of seats on the train that are free on the given date for the whole
+     * source to destination segment.
+     */
+    public int availableSeats(Train train, String source, String destination, LocalDate dateOfTravel) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(destination);
+        if (fromLeg == -1 || toLeg == -1 || train.getSeats() == null || !isWithinBookingWindow(dateOfTravel)) {
+            return 0;
+        }
+        return train.seatsOn(dateOfTravel.toString()).freeCount(fromLeg, toLeg);
+    }
+
+    /**
+     * The seat layout for a segment and date as rows of 0 (free for the whole segment) and 1,
+     * or null if the train does not run between the stations.
+     */
+    public List<int[]> seatMatrix(Train train, String source, String destination, LocalDate dateOfTravel) {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(destination);
+        if (fromLeg == -1 || toLeg == -1 || fromLeg >= toLeg || train.getSeats() == null) {
+            return null;
+        }
+        SeatMap seats = train.seatsOn(dateOfTravel.toString());
+        List<int[]> matrix = new ArrayList<>(seats.rows());
+        for (int row = 0; row < seats.rows(); row++) {
+            int[] cells = new int[seats.rowLength(row)];
+            for (int col = 0; col < cells.length; col++) {
+                cells[col] = seats.isFree(row, col, fromLeg, toLeg) ? 0 : 1;
+            }
+            matrix.add(cells);
+        }
+        return matrix;
+    }
+
+    public boolean isWithinBookingWindow(LocalDate dateOfTravel) {
+        LocalDate today = LocalDate.now();
+        return !dateOfTravel.isBefore(today)
+                && dateOfTravel.isBefore(today.plusDays(Constants.ADVANCE_BOOKING_DAYS));
+    }
+
+    /**
+     * Drops the seat maps and hold counts of travel dates that have passed. Runs at most once a day, on the
+     * first booking after midnight, so memory only holds dates that can still be sold.
+     */
+    public int evictExpiredDates() {
+        LocalDate today = LocalDate.now();
+        LocalDate previous = lastEviction.get();
+        if (today.equals(previous) || !lastEviction.compareAndSet(previous, today)) {
+            return 0;
+        }
+        int evicted = 0;
+        for (Train train : catalog.trains) {
+            Map<String, SeatMap> expired = train.getDatedSeats().headMap(today.toString());
+            evicted += expired.size();
+            expired.clear();
+        }
+        holds.evictBefore(today);
+        return evicted;
+    }
+
+    /**
+     * Holds the seats ({row, col} pairs) for the legs until {@code ttlMillis} from now, all or
+     * none. Returns null if any of them is taken.
+     */
+    SeatHolds.Hold holdSeats(String userId, Train train, LocalDate dateOfTravel, int fromLeg, int toLeg,
+                             List<int[]> seats, long ttlMillis) {
+        if (!isWithinBookingWindow(dateOfTravel)) {
+            return null;
+        }
+        return holds.hold(userId, train, dateOfTravel, fromLeg, toLeg, seats, ttlMillis);
+    }
+
+    /** Ends the user's hold, leaving its seats claimed for a booking. Null if it is not active. */
+    SeatHolds.Hold takeHold(String holdId, String userId) {
+        return holds.take(holdId, userId);
+    }
+
+    /** Ends the user's hold and frees its seats. */
+    boolean releaseHold(String holdId, String userId) {
+        return holds.release(holdId, userId);
+    }
+
+    /**
+     * Runs {@code join} unless a seat is free or held on the train for the whole segment on that
+     * date, keeping holds from starting or ending until it returns, and returns its result; null
+     * if seats are free or held. Freed hold seats are never offered to the waitlist, so nobody
+     * may queue while a hold could still lapse and free a seat for them.
+     */
+    <T> T ifSoldOut(Train train, LocalDate dateOfTravel, int fromLeg, int toLeg, Supplier<T> join) {
+        return holds.whileUnchanged(train.getTrainId(), dateOfTravel, () -> {
+            if (train.seatsOn(dateOfTravel.toString()).freeCount(fromLeg, toLeg) > 0
+                    || holds.covers(train.getTrainId(), dateOfTravel, fromLeg, toLeg)) {
+                return null;
+            }
+            return join.get();
+        });
+    }
+
+    /**
+     * Runs {@code release} unless {@code nextWaiting} finds someone to hand the seat to, with
+     * waitlist joins for the train and date kept out in between, so nobody can queue for a seat
+     * being freed behind them. Returns whom {@code nextWaiting} found, or null once the seat is
+     * released.
+     */
+    <T> T releaseUnlessWaiting(String trainId, LocalDate dateOfTravel, Supplier<T> nextWaiting, Runnable release) {
+        return holds.whileUnchanged(trainId, dateOfTravel, () -> {
+            T waiting = nextWaiting.get();
+            if (waiting == null) {
+                release.run();
+            }
+            return waiting;
+        });
+    }
+
+    public int activeHolds() {
+        return holds.activeCount();
+    }
+
+    /** Stops expiring seat holds. Bookings and searches keep working; new holds are refused. */
+    @Override
+    public void close() {
+        holds.close();
+    }
+
     public Train getTrainById(String trainId) {
-        return trainList.stream()
-                .filter(train -> train.getTrainId().equals(trainId))
-                .findFirst()
-                .orElse(null);
+        return trainId == null ? null : catalog.byId.get(trainId);
     }
 }
\ No newline at end of file
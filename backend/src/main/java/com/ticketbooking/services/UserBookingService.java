@@ -3,79 +3,377 @@ package com.ticketbooking.services;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ticketbooking.entities.JournalEntry;
+import com.ticketbooking.entities.SeatMap;
 import com.ticketbooking.entities.Ticket;
 import com.ticketbooking.entities.Train;
 import com.ticketbooking.entities.User;
+import com.ticketbooking.utils.Constants;
+import com.ticketbooking.utils.Metrics;
 import com.ticketbooking.utils.UserServiceUtil;
 
+import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class UserBookingService {
+public class UserBookingService implements Closeable {
 
     private User user;
     private List<User> userList;
+    // Lookup indexes over userList; maintained by the mutation paths, read without locking
+    private final Map<String, User> usersById = new ConcurrentHashMap<>();
+    private final Map<String, User> usersByName = new ConcurrentHashMap<>();
+    private final Map<String, Ticket> ticketsById = new ConcurrentHashMap<>();
+    // Users of a binary snapshot not yet looked up; they join userList and the indexes on first use
+    private SnapshotUsers snapshotUsers;
     private final ObjectMapper objectMapper;
-    private static final String USERS_PATH = "data/users.json";
-    private static final String BACKUP_USERS_PATH = "src/main/resources/data/users.json";
+    private final TrainService trainService;
+    private final Path dataDir;
+    private final BookingJournal journal;
+    private final ScheduledExecutorService compactor;
+    private final AtomicBoolean compactionPending = new AtomicBoolean();
+    // Sign-ups, bookings and cancellations hold the shared side from their first change until
+    // it is durable, so they run in parallel; compaction takes the exclusive side so its
+    // snapshot never sees a change whose journal entry it is about to drop.
+    private final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private final Waitlists waitlists = new Waitlists(Constants.WAITLIST_CAPACITY);
+    private static final Metrics.Timer JOURNAL_WAIT_TIMER = Metrics.DEFAULT.persistenceTimer("journal_wait");
+    private static final Metrics.Timer COMPACTION_TIMER = Metrics.DEFAULT.persistenceTimer("compaction");
     
     private String sanitizePath(String path) {
         return path.replaceAll("\\.\\.", "").replaceAll("[^a-zA-Z0-9/._-]", "");
     }
 
     public UserBookingService() throws IOException{
+        this(new TrainService());
+    }
+
+    /**
+     * Books against the given train service, which should be the one the rest of the process
+     * searches, so that searches see the seats this service sells.
+     */
+    public UserBookingService(TrainService trainService) throws IOException{
+        this(trainService, Paths.get(Constants.DATA_DIR));
+    }
+
+    /** Keeps users and the journal in the given directory instead of {@link Constants#DATA_DIR}. */
+    UserBookingService(TrainService trainService, Path dataDir) throws IOException{
+        this.dataDir = dataDir;
         objectMapper = new ObjectMapper();
         objectMapper.enable(SerializationFeature.INDENT_OUTPUT);
+        this.trainService = trainService;
         loadUsers();
+        for (User loaded : userList) {
+            index(loaded);
+        }
+
+        journal = new BookingJournal(dataDir.resolve(Constants.JOURNAL_FILE),
+                BookingJournal.fsyncPolicyFromConfig(System.getProperty(Constants.JOURNAL_FSYNC_PROPERTY)),
+                Integer.getInteger(Constants.JOURNAL_BATCH_SIZE_PROPERTY, Constants.JOURNAL_BATCH_SIZE),
+                TimeUnit.MILLISECONDS.toNanos(Integer.getInteger(Constants.JOURNAL_BATCH_DELAY_PROPERTY, Constants.JOURNAL_BATCH_DELAY_MS)));
+        journal.replay(this::apply);
+
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(() -> {
+            if (journal.entriesSinceRotation() > 0) {
+                requestCompaction();
+            }
+        }, Constants.JOURNAL_COMPACT_INTERVAL_SECONDS, Constants.JOURNAL_COMPACT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+        trainService.writeSnapshotsWith(stateLock.writeLock(), this::compactAfterCatalogChange);
     }
     
     private void loadUsers() throws IOException{
         try {
-            // Try to load from classpath first (for packaged JAR)
-            var resource = getClass().getClassLoader().getResourceAsStream(USERS_PATH);
-            if (resource != null) {
-                userList = objectMapper.readValue(resource, new TypeReference<List<User>>() {});
+            // Snapshots are written to the file system, so a snapshot there always wins;
+            // the classpath copy only seeds a packaged JAR that has never saved anything
+            Path binary = dataDir.resolve(Constants.USERS_SNAPSHOT_FILE);
+            if (BinarySnapshot.enabled() && Files.exists(binary)) {
+                snapshotUsers = new SnapshotUsers(BinarySnapshot.open(binary), trainService::getTrainById,
+                        UserBookingService::normalizeUsername);
+                userList = new ArrayList<>();
+                return;
+            }
+            File snapshot = dataDir.resolve(Constants.USERS_FILE).toFile();
+            var resource = getClass().getClassLoader().getResourceAsStream(Constants.USERS_DATA_PATH);
+            if (snapshot.exists() || resource == null) {
+                userList = objectMapper.readValue(snapshot, new TypeReference<List<User>>() {});
             } else {
-                // Fallback to file system (for development)
-                userList = objectMapper.readValue(new File(BACKUP_USERS_PATH), new TypeReference<List<User>>() {});
+                userList = objectMapper.readValue(resource, new TypeReference<List<User>>() {});
             }
         } catch (Exception e) {
             throw new IOException("Failed to load users data", e);
         }
     }
 
+    // Replays one journal entry on top of the snapshot. Entries may already be reflected in the
+    // snapshot if a compaction was interrupted, so every step tolerates having been applied.
+    private void apply(JournalEntry entry) {
+        switch (entry.getType()) {
+            case SIGNUP:
+                if (!nameTaken(normalizeUsername(entry.getUser().getUsername()))) {
+                    userList.add(entry.getUser());
+                    index(entry.getUser());
+                }
+                break;
+            case BOOK:
+                applyBooking(entry.getUserId(), entry.getTicket());
+                break;
+            case BOOK_GROUP:
+                for (Ticket booked : entry.getTickets()) {
+                    applyBooking(entry.getUserId(), booked);
+                }
+                break;
+            case CANCEL:
+                applyCancel(entry.getUserId(), entry.getTicketId());
+                break;
+            case PROMOTE:
+                if (applyCancel(entry.getUserId(), entry.getTicketId())) {
+                    applyBooking(entry.getTicket().getUserId(), entry.getTicket());
+                }
+                break;
+        }
+    }
+
+    private boolean applyCancel(String userId, String ticketId) {
+        User holder = findUser(userId);
+        Ticket cancelled = findTicket(ticketId);
+        if (holder == null || cancelled == null || !holder.getTicketsBooked().remove(cancelled)) {
+            return false;
+        }
+        ticketsById.remove(cancelled.getTicketId());
+        releaseSeat(cancelled);
+        return true;
+    }
+
+    private void applyBooking(String userId, Ticket ticket) {
+        User owner = findUser(userId);
+        Train train = trainService.getTrainById(ticket.getTrain().getTrainId());
+        if (owner == null || findTicket(ticket.getTicketId()) != null) {
+            return;
+        }
+        if (train != null) {
+            ticket.setTrain(train);
+            if (ticket.getRow() != null && ticket.getCol() != null) {
+                trainService.bookTickets(train, LocalDate.parse(ticket.getDateOfTravel()), ticket.getRow(), ticket.getCol(),
+                        train.stationIndex(ticket.getSource()), train.stationIndex(ticket.getDestination()));
+            }
+        }
+        owner.getTicketsBooked().add(ticket);
+        UserServiceUtil.reserveId(ticket.getTicketId());
+        ticketsById.put(ticket.getTicketId(), ticket);
+    }
+
+    private User findUser(String userId) {
+        if (userId == null) {
+            return null;
+        }
+        User found = usersById.get(userId);
+        return found != null || snapshotUsers == null ? found : snapshotUsers.byId(userId, this::adopt);
+    }
+
+    private User findUserByName(String normalizedName) {
+        User found = usersByName.get(normalizedName);
+        return found != null || snapshotUsers == null ? found : snapshotUsers.byName(normalizedName, this::adopt);
+    }
+
+    private Ticket findTicket(String ticketId) {
+        Ticket found = ticketsById.get(ticketId);
+        if (found != null || snapshotUsers == null) {
+            return found;
+        }
+        // Decoding the holder indexes its tickets, unless it was decoded before and this one is gone
+        snapshotUsers.byTicketId(ticketId, this::adopt);
+        return ticketsById.get(ticketId);
+    }
+
+    private boolean nameTaken(String normalizedName) {
+        return usersByName.containsKey(normalizedName) || (snapshotUsers != null && snapshotUsers.hasName(normalizedName));
+    }
+
+    // A snapshot user decoded on first use becomes an ordinary loaded user
+    private void adopt(User loaded) {
+        synchronized (userList) {
+            userList.add(loaded);
+        }
+        index(loaded);
+    }
+
+    private static String normalizeUsername(String username) {
+        return username.trim().toLowerCase();
+    }
+
+    private void index(User user) {
+        UserServiceUtil.reserveId(user.getUserId());
+        usersById.put(user.getUserId(), user);
+        usersByName.put(normalizeUsername(user.getUsername()), user);
+        for (Ticket ticket : user.getTicketsBooked()) {
+            UserServiceUtil.reserveId(ticket.getTicketId());
+            ticketsById.put(ticket.getTicketId(), ticket);
+        }
+    }
+
+    private void unindex(User user) {
+        usersById.remove(user.getUserId(), user);
+        usersByName.remove(normalizeUsername(user.getUsername()), user);
+        for (Ticket ticket : user.getTicketsBooked()) {
+            ticketsById.remove(ticket.getTicketId(), ticket);
+        }
+    }
+
+    // Queues the entry for the next group commit; callers wait on the future before answering
+    private CompletableFuture<Void> appendToJournal(JournalEntry entry) {
+        CompletableFuture<Void> durable = journal.appendAsync(entry);
+        if (journal.entriesSinceRotation() >= Constants.JOURNAL_COMPACT_THRESHOLD) {
+            requestCompaction();
+        }
+        return durable;
+    }
+
+    // Time a change waits for its group commit is what the caller sees of the journal
+    private static void awaitDurable(CompletableFuture<Void> durable) throws IOException {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            BookingJournal.await(durable);
+            failed = false;
+        } finally {
+            JOURNAL_WAIT_TIMER.record(start, failed);
+        }
+    }
+
+    /**
+     * Stops scheduling compactions and closes the journal once every entry appended so far is
+     * written. The train service belongs to whoever created it and stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        // A compaction already under way still rotates the journal, so it finishes first
+        compactor.shutdown();
+        try {
+            if (!compactor.awaitTermination(30, TimeUnit.SECONDS)) {
+                System.err.println("Journal compaction still running, closing the journal under it");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for journal compaction");
+        }
+        journal.close();
+    }
+
+    public BookingJournal.Stats getJournalStats() {
+        return journal.getStats();
+    }
+
+    private void requestCompaction() {
+        if (compactionPending.compareAndSet(false, true)) {
+            try {
+                compactor.execute(this::compactJournal);
+            } catch (RejectedExecutionException e) {
+                // Closed; the journal refuses the entry anyway
+                compactionPending.set(false);
+            }
+        }
+    }
+
+    // Queued even when a compaction is pending, since that one may have serialized the trains
+    // before the change
+    private boolean compactAfterCatalogChange() {
+        try {
+            compactor.execute(this::compactJournal);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites the user and train snapshots (JSON or .bin) from memory and drops the journal entries they now
+     * cover. Only the in-memory serialization holds the lock; the disk writes happen after it.
+     */
+    void compactJournal() {
+        long start = System.nanoTime();
+        boolean failed = true;
+        try {
+            byte[] users;
+            byte[] trains;
+            stateLock.writeLock().lock();
+            try {
+                List<User> all = snapshotUsers == null ? userList : snapshotUsers.withUnused(userList);
+                users = BinarySnapshot.enabled() ? BinarySnapshot.encodeUsers(all) : objectMapper.writeValueAsBytes(all);
+                trains = trainService.snapshotBytes();
+                journal.rotate();
+            } finally {
+                stateLock.writeLock().unlock();
+            }
+            trainService.writeSnapshot(trains);
+            BookingJournal.writeAtomically(dataDir.resolve(BinarySnapshot.enabled() ? Constants.USERS_SNAPSHOT_FILE : Constants.USERS_FILE), users);
+            journal.finishCompaction();
+            failed = false;
+        } catch (IOException e) {
+            System.err.println("Journal compaction failed: " + e.getMessage());
+        } finally {
+            COMPACTION_TIMER.record(start, failed);
+            compactionPending.set(false);
+        }
+    }
+
     public boolean signUp(User user) throws IOException{
         if (user == null || user.getUsername() == null || user.getUsername().trim().isEmpty()) {
             System.out.println("Invalid user data!");
             return false;
         }
         
+        stateLock.readLock().lock();
         try{
-            Optional<User> foundUser = userList.stream()
-                    .filter(existingUser -> existingUser.getUsername().equalsIgnoreCase(user.getUsername().trim()))
-                    .findFirst();
-
-            if (foundUser.isPresent()) {
+            // Claiming the name in the index is what makes it unique
+            String name = normalizeUsername(user.getUsername());
+            if ((snapshotUsers != null && snapshotUsers.hasName(name)) || usersByName.putIfAbsent(name, user) != null) {
                 System.out.println("Username already taken!");
                 return false;
             }
-
-            userList.add(user);
-            saveUserListToFile();
-        }catch (Exception ex){
-            System.err.println("Saving user list to file failed");
-            return false;
+            usersById.put(user.getUserId(), user);
+            synchronized (userList) {
+                userList.add(user);
+            }
+            try{
+                awaitDurable(appendToJournal(JournalEntry.signup(user)));
+            }catch (IOException ex){
+                System.err.println("Saving user list to file failed");
+                synchronized (userList) {
+                    userList.remove(user);
+                }
+                unindex(user);
+                return false;
+            }
+            return true;
+        } finally {
+            stateLock.readLock().unlock();
         }
-        return true;
-    }
-
-    private void saveUserListToFile() throws IOException{
-        // Always save to backup path for development
-        File usersFile = new File(BACKUP_USERS_PATH);
-        objectMapper.writeValue(usersFile, userList);
     }
 
     public void fetchBookings(){
@@ -84,7 +382,11 @@ public class UserBookingService {
     }
 
     public Optional<User> getUserByUsername(String username){
-        return userList.stream().filter(user -> user.getUsername().equals(username)).findFirst();
+        if (username == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(findUserByName(normalizeUsername(username)))
+                .filter(user -> user.getUsername().equals(username));
     }
 
     public void setUser(User user){
@@ -92,6 +394,10 @@ public class UserBookingService {
     }
 
     public boolean cancelBooking(String ticketId) throws IOException{
+        return cancelBooking(this.user, ticketId);
+    }
+
+    private boolean cancelBooking(User user, String ticketId) throws IOException{
         if (user == null) {
             System.out.println("No user logged in!");
             return false;
@@ -102,20 +408,150 @@ public class UserBookingService {
             return false;
         }
         
-        boolean isRemoved = user.getTicketsBooked().removeIf(ticket -> ticket.getTicketId().equals(ticketId.trim()));
-        if(isRemoved) {
-            saveUserListToFile();
-            System.out.println("Ticket with ID " + ticketId + " has been canceled.");
-            return true;
-        }else{
+        Ticket ticket = findTicket(ticketId.trim());
+        boolean owned;
+        synchronized (user) {
+            owned = ticket != null && user.getTicketsBooked().contains(ticket);
+        }
+        if (!owned) {
             System.out.println("No ticket found with ID " + ticketId);
             return false;
         }
+
+        stateLock.readLock().lock();
+        try{
+            // The freed seat goes to the longest-waiting user whose segment it covers, recorded
+            // in the same journal line as the cancellation
+            Waitlists.Entry waiting = nextWaiting(ticket);
+            Ticket promoted = null;
+            if (waiting != null) {
+                Train train = trainService.getTrainById(waiting.trainId);
+                promoted = newTicket(waiting.userId, train, ticket.getRow(), ticket.getCol(),
+                        waiting.fromLeg, waiting.toLeg, waiting.dateOfTravel);
+            }
+            try{
+                // The seat stays taken until the cancellation is durable, so a failed write needs no undo
+                awaitDurable(appendToJournal(promoted == null
+                        ? JournalEntry.cancel(user.getUserId(), ticket.getTicketId())
+                        : JournalEntry.promote(user.getUserId(), ticket.getTicketId(), promoted)));
+            }catch (IOException ex){
+                restoreWaiting(waiting);
+                throw ex;
+            }
+            synchronized (user) {
+                if (!user.getTicketsBooked().remove(ticket)) {
+                    // Replay skips the promotion too, since the cancellation finds nothing
+                    restoreWaiting(waiting);
+                    System.out.println("Ticket with ID " + ticketId + " was already canceled.");
+                    return false;
+                }
+            }
+            ticketsById.remove(ticket.getTicketId());
+            if (promoted == null) {
+                // Someone may have joined while the cancellation was written, when the seat
+                // still looked taken; they get it rather than it going free behind them
+                Waitlists.Entry late = ticket.getTrain() == null ? null : trainService.releaseUnlessWaiting(
+                        ticket.getTrain().getTrainId(), LocalDate.parse(ticket.getDateOfTravel()),
+                        () -> nextWaiting(ticket), () -> releaseSeat(ticket));
+                if (late != null) {
+                    promoteLate(ticket, late);
+                }
+            } else {
+                issuePromoted(ticket, promoted);
+            }
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        System.out.println("Ticket with ID " + ticketId + " has been canceled.");
+        return true;
+    }
+
+    // Only segments inside the cancelled one qualify: their seat is still held by the cancelled
+    // ticket, so it can change hands without ever being free for someone else to grab
+    private Waitlists.Entry nextWaiting(Ticket ticket) {
+        if (ticket.getRow() == null || ticket.getCol() == null || ticket.getTrain() == null) {
+            return null;
+        }
+        Train train = trainService.getTrainById(ticket.getTrain().getTrainId());
+        if (train == null) {
+            return null;
+        }
+        int fromLeg = train.stationIndex(ticket.getSource());
+        int toLeg = train.stationIndex(ticket.getDestination());
+        if (fromLeg == -1 || toLeg == -1) {
+            return null;
+        }
+        return waitlists.poll(train.getTrainId(), LocalDate.parse(ticket.getDateOfTravel()), fromLeg, toLeg);
+    }
+
+    // The seat is still claimed, so it changes hands without going free. The cancellation is
+    // already durable, so the new ticket is journaled as a booking of its own.
+    private void promoteLate(Ticket cancelled, Waitlists.Entry waiting) {
+        Train train = trainService.getTrainById(waiting.trainId);
+        Ticket promoted = newTicket(waiting.userId, train, cancelled.getRow(), cancelled.getCol(),
+                waiting.fromLeg, waiting.toLeg, waiting.dateOfTravel);
+        try{
+            awaitDurable(appendToJournal(JournalEntry.book(promoted)));
+        }catch (IOException ex){
+            System.err.println("Could not issue a ticket to waitlisted user " + waiting.userId + ": " + ex.getMessage());
+            restoreWaiting(waiting);
+            releaseSeat(cancelled);
+            return;
+        }
+        issuePromoted(cancelled, promoted);
+    }
+
+    private void issuePromoted(Ticket cancelled, Ticket promoted) {
+        handOverSeat(cancelled, promoted);
+        User promotedUser = findUser(promoted.getUserId());
+        synchronized (promotedUser) {
+            promotedUser.getTicketsBooked().add(promoted);
+        }
+        ticketsById.put(promoted.getTicketId(), promoted);
+        System.out.println("Ticket " + promoted.getTicketId() + " issued to waitlisted user " + promoted.getUserId());
+    }
+
+    private void restoreWaiting(Waitlists.Entry waiting) {
+        if (waiting != null && !waitlists.restore(waiting)) {
+            System.out.println("Waitlist is full, could not restore user " + waiting.userId);
+        }
+    }
+
+    // Frees the legs of the cancelled ticket the promoted one does not use
+    private void handOverSeat(Ticket cancelled, Ticket promoted) {
+        Train train = promoted.getTrain();
+        LocalDate dateOfTravel = LocalDate.parse(promoted.getDateOfTravel());
+        int fromLeg = train.stationIndex(cancelled.getSource());
+        int toLeg = train.stationIndex(cancelled.getDestination());
+        int keptFrom = train.stationIndex(promoted.getSource());
+        int keptTo = train.stationIndex(promoted.getDestination());
+        if (fromLeg < keptFrom) {
+            trainService.releaseTickets(train, dateOfTravel, promoted.getRow(), promoted.getCol(), fromLeg, keptFrom);
+        }
+        if (keptTo < toLeg) {
+            trainService.releaseTickets(train, dateOfTravel, promoted.getRow(), promoted.getCol(), keptTo, toLeg);
+        }
+    }
+
+    // Tickets booked before seats were recorded on them have nothing to release
+    private void releaseSeat(Ticket ticket) {
+        if (ticket.getRow() == null || ticket.getCol() == null || ticket.getTrain() == null) {
+            return;
+        }
+        Train train = trainService.getTrainById(ticket.getTrain().getTrainId());
+        if (train == null) {
+            return;
+        }
+        int fromLeg = train.stationIndex(ticket.getSource());
+        int toLeg = train.stationIndex(ticket.getDestination());
+        LocalDate dateOfTravel = LocalDate.parse(ticket.getDateOfTravel());
+        if (!trainService.releaseTickets(train, dateOfTravel, ticket.getRow(), ticket.getCol(), fromLeg, toLeg)) {
+            System.out.println("Seat for ticket " + ticket.getTicketId() + " was already free");
+        }
     }
 
     public List<Train> getTrains (String source, String destination) throws IOException {
         try{
-            TrainService trainService = new TrainService();
             return trainService.searchTrains(source,destination);
         }catch (Exception ex){
             System.out.println("There is something wrong!");
@@ -123,58 +559,123 @@ public class UserBookingService {
         }
     }
 
-    public List<List<Integer>> fetchSeats(Train train){
-        return train.getSeats();
+    public SeatMap fetchSeats(Train train){
+        return train.seatsOn(LocalDate.now().toString());
     }
 
     public Boolean bookTrainSeat(Train train, int row, int seat) {
-        try{
-            TrainService trainService = new TrainService();
-            List<List<Integer>> seats = train.getSeats();
-            if (row >= 0 && row < seats.size() && seat >= 0 && seat < seats.get(row).size()) {
-                if (seats.get(row).get(seat) == 0) {
-                    seats.get(row).set(seat, 1);
-
-                    train.setSeats(seats);
-                    trainService.addTrain(train);
+        List<String> stations = train.getStations();
+        return bookTrainSeat(train, row, seat, stations.get(0), stations.get(stations.size() - 1), LocalDate.now());
+    }
 
-                    Ticket ticket = new Ticket();
+    /**
+     * Books the seat on the given date, only for the legs between source and destination,
+     * so the same seat can be sold again for a segment that does not overlap.
+     */
+    public Boolean bookTrainSeat(Train train, int row, int seat, String source, String destination,
+                                 LocalDate dateOfTravel) {
+        try{
+            return bookTrainSeat(this.user, train, row, seat, source, destination, dateOfTravel);
+        }catch (IOException ex){
+            System.out.println("Booking could not be saved, please try again: " + ex.getMessage());
+            return false;
+        }
+    }
 
-                    ticket.setSource(train.getStations().get(0));
-                    ticket.setDestination(train.getStations().get(train.getStations().size() - 1));
-                    ticket.setTrain(train);
-                    ticket.setUserId(user.getUserId());
-                    ticket.setDateOfTravel(java.time.LocalDate.now().toString());
-                    ticket.setTicketId(UserServiceUtil.generateTicketId());
+    private Boolean bookTrainSeat(User user, Train train, int row, int seat, String source, String destination,
+                                  LocalDate dateOfTravel) throws IOException {
+        int fromLeg = train.stationIndex(source);
+        int toLeg = train.stationIndex(destination);
+        if (fromLeg == -1 || toLeg == -1 || fromLeg >= toLeg) {
+            System.out.println("This train does not run from " + source + " to " + destination);
+            return false;
+        }
+        List<Ticket> tickets = bookTrainSeats(user, train, List.of(new int[]{row, seat}), fromLeg, toLeg, dateOfTravel);
+        if (tickets.isEmpty()) {
+            return false;
+        }
 
-                    user.getTicketsBooked().add(ticket);
+        System.out.println("Seat booked successfully  !  ");
+        System.out.println(tickets.get(0).getTicketInfo());
 
-                    System.out.println("Seat booked successfully  !  ");
-                    System.out.println(ticket.getTicketInfo());
+        return true;
+    }
 
-                    saveUserListToFile();
-                    return true;
-                } else {
-                    return false;
+    // Claims every seat for the legs or none of them, then records all the tickets with a single
+    // journal append. Each claim is a lock-free compare-and-set in the train's SeatMap, so
+    // concurrent bookings only contend when they want the same seat of the same train and date.
+    // Returns the tickets, or an empty list if a seat was taken; throws if the journal write failed.
+    private List<Ticket> bookTrainSeats(User user, Train train, List<int[]> seats, int fromLeg, int toLeg,
+                                        LocalDate dateOfTravel) throws IOException {
+        stateLock.readLock().lock();
+        try{
+            for (int i = 0; i < seats.size(); i++) {
+                if (!trainService.bookTickets(train, dateOfTravel, seats.get(i)[0], seats.get(i)[1], fromLeg, toLeg)) {
+                    releaseSeats(train, dateOfTravel, i, seats, fromLeg, toLeg);
+                    return Collections.emptyList();
                 }
-            } else {
-                return false;
             }
+            return recordTickets(user, train, seats, fromLeg, toLeg, dateOfTravel);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    // Issues tickets for seats the caller has already claimed and holds the state lock for. If
+    // the journal write fails the seats are released again and the failure is thrown.
+    private List<Ticket> recordTickets(User user, Train train, List<int[]> seats, int fromLeg, int toLeg,
+                                       LocalDate dateOfTravel) throws IOException {
+        List<Ticket> tickets = new ArrayList<>(seats.size());
+        for (int[] seat : seats) {
+            tickets.add(newTicket(user.getUserId(), train, seat[0], seat[1], fromLeg, toLeg, dateOfTravel));
+        }
+
+        try{
+            // Only answer once the batch holding this booking is on disk
+            awaitDurable(appendToJournal(tickets.size() == 1
+                    ? JournalEntry.book(tickets.get(0))
+                    : JournalEntry.bookGroup(user.getUserId(), tickets)));
         }catch (IOException ex){
-            return Boolean.FALSE;
+            // Not durable, so it never happened. Nobody could have cancelled the tickets yet,
+            // since they are only published below, so the seats are still this booking's to free.
+            releaseSeats(train, dateOfTravel, seats.size(), seats, fromLeg, toLeg);
+            throw ex;
+        }
+        // Published after the booking line is durable, so any cancellation is journaled behind it
+        synchronized (user) {
+            user.getTicketsBooked().addAll(tickets);
+        }
+        for (Ticket ticket : tickets) {
+            ticketsById.put(ticket.getTicketId(), ticket);
+        }
+        return tickets;
+    }
+
+    private static Ticket newTicket(String userId, Train train, int row, int col, int fromLeg, int toLeg,
+                                    LocalDate dateOfTravel) {
+        Ticket ticket = new Ticket();
+        ticket.setSource(train.getStations().get(fromLeg));
+        ticket.setDestination(train.getStations().get(toLeg));
+        ticket.setTrain(train);
+        ticket.setRow(row);
+        ticket.setCol(col);
+        ticket.setUserId(userId);
+        ticket.setDateOfTravel(dateOfTravel.toString());
+        ticket.setTicketId(UserServiceUtil.generateTicketId());
+        return ticket;
+    }
+
+    private void releaseSeats(Train train, LocalDate dateOfTravel, int claimed, List<int[]> seats, int fromLeg, int toLeg) {
+        for (int i = 0; i < claimed; i++) {
+            trainService.releaseTickets(train, dateOfTravel, seats.get(i)[0], seats.get(i)[1], fromLeg, toLeg);
         }
     }
 
     // HTTP API Methods
     public User authenticateUser(String username, String password) {
-        return userList.stream()
-                .filter(u -> {
-                    boolean usernameMatch = u.getUsername().equals(username);
-                    boolean passwordMatch = u.getPassword().equals(password) || 
-                                          (u.getPassword().equals("<demo_password>") && password.equals("demo123"));
-                    return usernameMatch && passwordMatch;
-                })
-                .findFirst()
+        return getUserByUsername(username)
+                .filter(u -> u.getPassword().equals(password) ||
+                        (u.getPassword().equals("<demo_password>") && password.equals("demo123")))
                 .orElse(null);
     }
 
@@ -190,34 +691,303 @@ public class UserBookingService {
         }
     }
 
-    public java.util.Map<String, Object> bookSeat(String trainId, String userId, int row, int col) {
+    // What a booking request comes down to: the train, user, travel date and legs, or the answer
+    // refusing it
+    private static final class Trip {
+        final Train train;
+        final User user;
+        final LocalDate dateOfTravel;
+        final int fromLeg;
+        final int toLeg;
+        final java.util.Map<String, Object> refusal;
+
+        Trip(Train train, User user, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+            this.train = train;
+            this.user = user;
+            this.dateOfTravel = dateOfTravel;
+            this.fromLeg = fromLeg;
+            this.toLeg = toLeg;
+            this.refusal = null;
+        }
+
+        Trip(String message) {
+            this.train = null;
+            this.user = null;
+            this.dateOfTravel = null;
+            this.fromLeg = -1;
+            this.toLeg = -1;
+            this.refusal = java.util.Map.of("success", false, "message", message);
+        }
+    }
+
+    // Null source, destination or date mean the train's first or last station and today
+    private Trip resolveTrip(String trainId, String userId, String source, String destination, String dateOfTravel) {
+        LocalDate travelDate;
         try {
-            TrainService trainService = new TrainService();
-            Train train = trainService.getTrainById(trainId);
-            User user = userList.stream().filter(u -> u.getUserId().equals(userId)).findFirst().orElse(null);
-            
-            if (train == null || user == null) {
-                return java.util.Map.of("success", false, "message", "Train or user not found");
+            travelDate = dateOfTravel != null ? LocalDate.parse(dateOfTravel) : LocalDate.now();
+        } catch (DateTimeParseException e) {
+            return new Trip("Invalid travel date");
+        }
+
+        Train train = trainService.getTrainById(trainId);
+        User user = findUser(userId);
+        if (train == null || user == null) {
+            return new Trip("Train or user not found");
+        }
+        if (!trainService.isWithinBookingWindow(travelDate)) {
+            return new Trip("Travel date must be within the next " + Constants.ADVANCE_BOOKING_DAYS + " days");
+        }
+        List<String> stations = train.getStations();
+        int fromLeg = train.stationIndex(source != null ? source : stations.get(0));
+        int toLeg = train.stationIndex(destination != null ? destination : stations.get(stations.size() - 1));
+        if (fromLeg == -1 || toLeg == -1 || fromLeg >= toLeg) {
+            return new Trip("This train does not run between those stations");
+        }
+        return new Trip(train, user, travelDate, fromLeg, toLeg);
+    }
+
+    // The answer refusing a list of {row, col} pairs that names a seat twice, or null
+    private static java.util.Map<String, Object> duplicateSeat(List<int[]> seats) {
+        Set<String> distinct = new HashSet<>();
+        for (int[] seat : seats) {
+            if (!distinct.add(seat[0] + "," + seat[1])) {
+                return java.util.Map.of("success", false, "message", "Seat " + seat[0] + "," + seat[1] + " requested twice");
             }
-            
-            this.user = user;
-            boolean success = bookTrainSeat(train, row, col);
-            
-            if (success) {
-                return java.util.Map.of("success", true, "message", "Seat booked successfully");
-            } else {
-                return java.util.Map.of("success", false, "message", "Seat already booked");
+        }
+        return null;
+    }
+
+    public java.util.Map<String, Object> bookSeat(String trainId, String userId, int row, int col) throws IOException {
+        return bookSeat(trainId, userId, row, col, null, null, null);
+    }
+
+    /**
+     * Books a seat for the given segment and travel date (yyyy-MM-dd); a null source or
+     * destination means the train's first or last station, a null date means today.
+     */
+    public java.util.Map<String, Object> bookSeat(String trainId, String userId, int row, int col,
+                                                  String source, String destination, String dateOfTravel) throws IOException {
+        Trip trip = resolveTrip(trainId, userId, source, destination, dateOfTravel);
+        if (trip.refusal != null) {
+            return trip.refusal;
+        }
+        boolean success = !bookTrainSeats(trip.user, trip.train, List.of(new int[]{row, col}),
+                trip.fromLeg, trip.toLeg, trip.dateOfTravel).isEmpty();
+        if (success) {
+            return java.util.Map.of("success", true, "message", "Seat booked successfully");
+        } else {
+            return java.util.Map.of("success", false, "message", "Seat already booked");
+        }
+    }
+
+    /**
+     * Books several seats ({row, col} pairs) on one train for the same segment and date, all or
+     * none, with one ticket per seat. Null source, destination or date default as in
+     * {@link #bookSeat(String, String, int, int, String, String, String)}.
+     */
+    public java.util.Map<String, Object> bookGroup(String trainId, String userId, List<int[]> seats,
+                                                   String source, String destination, String dateOfTravel) throws IOException {
+        if (seats == null || seats.isEmpty() || seats.size() > Constants.MAX_GROUP_SEATS) {
+            return java.util.Map.of("success", false, "message",
+                    "A group booking needs between 1 and " + Constants.MAX_GROUP_SEATS + " seats");
+        }
+        java.util.Map<String, Object> duplicate = duplicateSeat(seats);
+        if (duplicate != null) {
+            return duplicate;
+        }
+        Trip trip = resolveTrip(trainId, userId, source, destination, dateOfTravel);
+        if (trip.refusal != null) {
+            return trip.refusal;
+        }
+
+        List<Ticket> tickets = bookTrainSeats(trip.user, trip.train, seats, trip.fromLeg, trip.toLeg, trip.dateOfTravel);
+        if (tickets.isEmpty()) {
+            return java.util.Map.of("success", false, "message", "One or more seats are already booked");
+        }
+        List<String> ticketIds = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            ticketIds.add(ticket.getTicketId());
+        }
+        return java.util.Map.of("success", true, "message", tickets.size() + " seats booked successfully",
+                "ticketIds", ticketIds);
+    }
+
+    /**
+     * Picks and books the best free seats for a party (see {@link SeatAllocator}). Position is
+     * "window", "aisle" or null for no preference; {@code adjacent} asks for one block of seats,
+     * {@code sameRow} for one row. If another booking takes a chosen seat first, the choice is
+     * made again on the updated seat map.
+     */
+    public java.util.Map<String, Object> autoBook(String trainId, String userId, int partySize, String position,
+                                                  boolean adjacent, boolean sameRow,
+                                                  String source, String destination, String dateOfTravel) throws IOException {
+        if (partySize < 1 || partySize > Constants.MAX_GROUP_SEATS) {
+            return java.util.Map.of("success", false, "message",
+                    "A party must have between 1 and " + Constants.MAX_GROUP_SEATS + " passengers");
+        }
+        SeatAllocator.Position preference;
+        try {
+            preference = position == null ? SeatAllocator.Position.ANY : SeatAllocator.Position.valueOf(position.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return java.util.Map.of("success", false, "message", "Seat position must be window or aisle");
+        }
+        Trip trip = resolveTrip(trainId, userId, source, destination, dateOfTravel);
+        if (trip.refusal != null) {
+            return trip.refusal;
+        }
+
+        for (int attempt = 0; attempt < Constants.AUTO_BOOK_ATTEMPTS; attempt++) {
+            int[][] picked = SeatAllocator.allocate(trip.train.seatsOn(trip.dateOfTravel.toString()), trip.fromLeg, trip.toLeg,
+                    partySize, preference, adjacent, sameRow);
+            if (picked == null) {
+                return java.util.Map.of("success", false, "message", "Not enough free seats together for " + partySize);
+            }
+            List<Ticket> tickets = bookTrainSeats(trip.user, trip.train, java.util.Arrays.asList(picked),
+                    trip.fromLeg, trip.toLeg, trip.dateOfTravel);
+            if (!tickets.isEmpty()) {
+                List<java.util.Map<String, Object>> seats = new ArrayList<>(tickets.size());
+                for (Ticket ticket : tickets) {
+                    seats.add(java.util.Map.of("ticketId", ticket.getTicketId(), "row", ticket.getRow(), "col", ticket.getCol()));
+                }
+                return java.util.Map.of("success", true, "message", tickets.size() + " seats booked successfully",
+                        "seats", seats);
+            }
+        }
+        return java.util.Map.of("success", false, "message", "Seats are selling fast, please try again");
+    }
+
+    /**
+     * Holds seats ({row, col} pairs) for the user for {@code ttlSeconds} (0 for the default) so
+     * they can check out without losing them; {@link #confirmHold} turns the hold into tickets.
+     * Nothing is journaled until then, and seats of a hold that lapses are free again.
+     */
+    public java.util.Map<String, Object> holdSeats(String trainId, String userId, List<int[]> seats,
+                                                   String source, String destination, String dateOfTravel,
+                                                   int ttlSeconds) {
+        try {
+            if (seats == null || seats.isEmpty() || seats.size() > Constants.MAX_GROUP_SEATS) {
+                return java.util.Map.of("success", false, "message",
+                        "A hold needs between 1 and " + Constants.MAX_GROUP_SEATS + " seats");
+            }
+            if (ttlSeconds < 0 || ttlSeconds > Constants.MAX_HOLD_TTL_SECONDS) {
+                return java.util.Map.of("success", false, "message",
+                        "A hold can last at most " + Constants.MAX_HOLD_TTL_SECONDS + " seconds");
+            }
+            java.util.Map<String, Object> duplicate = duplicateSeat(seats);
+            if (duplicate != null) {
+                return duplicate;
+            }
+            Trip trip = resolveTrip(trainId, userId, source, destination, dateOfTravel);
+            if (trip.refusal != null) {
+                return trip.refusal;
+            }
+
+            int ttl = ttlSeconds == 0 ? Constants.HOLD_TTL_SECONDS : ttlSeconds;
+            SeatHolds.Hold hold = trainService.holdSeats(trip.user.getUserId(), trip.train, trip.dateOfTravel,
+                    trip.fromLeg, trip.toLeg, seats, TimeUnit.SECONDS.toMillis(ttl));
+            if (hold == null) {
+                return java.util.Map.of("success", false, "message", "One or more seats are already booked");
+            }
+            return java.util.Map.of("success", true, "message", seats.size() + " seats held for " + ttl + " seconds",
+                    "holdId", hold.holdId, "expiresAt", hold.expiresAtMillis);
+        } catch (Exception e) {
+            return java.util.Map.of("success", false, "message", "Hold failed");
+        }
+    }
+
+    /** Books the seats of the user's hold, one ticket per seat. */
+    public java.util.Map<String, Object> confirmHold(String holdId, String userId) throws IOException {
+        User user = findUser(userId);
+        if (user == null) {
+            return java.util.Map.of("success", false, "message", "User not found");
+        }
+        List<Ticket> tickets;
+        stateLock.readLock().lock();
+        try{
+            // Taken under the lock so a compaction never snapshots the seats as free while
+            // they are neither held nor journaled
+            SeatHolds.Hold hold = trainService.takeHold(holdId, user.getUserId());
+            if (hold == null) {
+                return java.util.Map.of("success", false, "message", "Hold not found or expired");
+            }
+            tickets = recordTickets(user, hold.train, hold.seats, hold.fromLeg, hold.toLeg, hold.dateOfTravel);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+        List<String> ticketIds = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            ticketIds.add(ticket.getTicketId());
+        }
+        return java.util.Map.of("success", true, "message", tickets.size() + " seats booked successfully",
+                "ticketIds", ticketIds);
+    }
+
+    /** Gives up the user's hold so its seats can be sold to someone else. */
+    public java.util.Map<String, Object> releaseHold(String holdId, String userId) {
+        if (!trainService.releaseHold(holdId, userId)) {
+            return java.util.Map.of("success", false, "message", "Hold not found or expired");
+        }
+        return java.util.Map.of("success", true, "message", "Hold released");
+    }
+
+    /**
+     * Puts the user on the waitlist for the train, segment and date; when a cancellation frees
+     * a seat covering it, the first user waiting is issued a ticket for it automatically. Only
+     * possible while no seat is free or held for the segment. Null source, destination or date default
+     * as in {@link #bookSeat(String, String, int, int, String, String, String)}.
+     */
+    public java.util.Map<String, Object> joinWaitlist(String trainId, String userId, String source, String destination,
+                                                      String dateOfTravel) {
+        try {
+            Trip trip = resolveTrip(trainId, userId, source, destination, dateOfTravel);
+            if (trip.refusal != null) {
+                return trip.refusal;
+            }
+            Integer position = trainService.ifSoldOut(trip.train, trip.dateOfTravel, trip.fromLeg, trip.toLeg,
+                    () -> waitlists.join(trip.user.getUserId(), trip.train.getTrainId(), trip.dateOfTravel, trip.fromLeg, trip.toLeg));
+            if (position == null) {
+                return java.util.Map.of("success", false, "message",
+                        "Seats are still available or held for checkout, try booking one directly");
             }
+            if (position == 0) {
+                return java.util.Map.of("success", false, "message", "The waitlist is full");
+            }
+            return java.util.Map.of("success", true, "message", "You are number " + position + " on the waitlist",
+                    "position", position);
+        } catch (Exception e) {
+            return java.util.Map.of("success", false, "message", "Could not join the waitlist");
+        }
+    }
+
+    /** The user's place on a waitlist (1 is next), and how many are waiting; 0 if not on it. */
+    public java.util.Map<String, Object> waitlistPosition(String trainId, String userId, String source, String destination,
+                                                          String dateOfTravel) {
+        try {
+            LocalDate travelDate = dateOfTravel != null ? LocalDate.parse(dateOfTravel) : LocalDate.now();
+            Train train = trainService.getTrainById(trainId);
+            if (train == null) {
+                return java.util.Map.of("success", false, "message", "Train not found");
+            }
+            List<String> stations = train.getStations();
+            int fromLeg = train.stationIndex(source != null ? source : stations.get(0));
+            int toLeg = train.stationIndex(destination != null ? destination : stations.get(stations.size() - 1));
+            return java.util.Map.of("success", true,
+                    "position", waitlists.position(userId, train.getTrainId(), travelDate, fromLeg, toLeg),
+                    "waiting", waitlists.size(train.getTrainId(), travelDate, fromLeg, toLeg));
         } catch (Exception e) {
-            return java.util.Map.of("success", false, "message", "Booking failed");
+            return java.util.Map.of("success", false, "message", "Invalid waitlist query");
         }
     }
 
     public java.util.List<java.util.Map<String, Object>> getUserBookings(String userId) {
-        User user = userList.stream().filter(u -> u.getUserId().equals(userId)).findFirst().orElse(null);
+        User user = findUser(userId);
         if (user == null) return java.util.Collections.emptyList();
         
-        return user.getTicketsBooked().stream()
+        List<Ticket> tickets;
+        synchronized (user) {
+            tickets = new java.util.ArrayList<>(user.getTicketsBooked());
+        }
+        return tickets.stream()
                 .map(ticket -> {
                     java.util.Map<String, Object> ticketMap = new java.util.HashMap<>();
                     ticketMap.put("ticketId", ticket.getTicketId());
@@ -225,20 +995,19 @@ public class UserBookingService {
                     ticketMap.put("destination", ticket.getDestination());
                     ticketMap.put("dateOfTravel", ticket.getDateOfTravel());
                     ticketMap.put("trainName", ticket.getTrain().getTrainName());
+                    ticketMap.put("trainId", ticket.getTrain().getTrainId());
+                    ticketMap.put("row", ticket.getRow());
+                    ticketMap.put("col", ticket.getCol());
                     return ticketMap;
                 })
                 .collect(java.util.stream.Collectors.toList());
     }
 
-    public boolean cancelBooking(String ticketId, String userId) {
-        try {
-            User user = userList.stream().filter(u -> u.getUserId().equals(userId)).findFirst().orElse(null);
-            if (user == null) return false;
-            
-            this.user = user;
-            return cancelBooking(ticketId);
-        } catch (IOException e) {
-            return false;
-        }
+    /** False if the user or ticket is unknown; throws if the cancellation could not be journaled. */
+    public boolean cancelBooking(String ticketId, String userId) throws IOException {
+        User user = findUser(userId);
+        if (user == null) return false;
+        
+        return cancelBooking(user, ticketId);
     }
 }
\ No newline at end of file
@@ -0,0 +1,234 @@
+package com.ticketbooking.services;
+
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Users waiting for a seat on a train, date and segment, first come first served.
+ *
+ * Each train, date and segment has its own queue: a fixed-size ring buffer, so joining and
+ * promoting are O(1) and a queue never holds more than its capacity. Entries carry their
+ * sequence number in the queue, which makes a user's position the distance from the head
+ * without walking the queue. Empty queues are dropped, and so are queues for dates that have
+ * passed, in a sweep run by the first join or promotion of each day.
+ *
+ * When a seat is freed for some legs, {@link #poll} looks at the queues for every segment
+ * inside those legs and takes whichever head joined first. Only heads are compared, so a
+ * promotion costs one lookup per segment whatever the queue lengths.
+ */
+final class Waitlists {
+
+    static final class Entry {
+        final String userId;
+        final String trainId;
+        final LocalDate dateOfTravel;
+        final int fromLeg;
+        final int toLeg;
+        // Order of joining across all queues, so a freed seat goes to the longest wait
+        final long joined;
+        // Position counter within the queue; guarded by the queue
+        private long seq;
+
+        Entry(String userId, String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg, long joined) {
+            this.userId = userId;
+            this.trainId = trainId;
+            this.dateOfTravel = dateOfTravel;
+            this.fromLeg = fromLeg;
+            this.toLeg = toLeg;
+            this.joined = joined;
+        }
+    }
+
+    private static final class Queue {
+        final LocalDate dateOfTravel;
+        final Entry[] slots;
+        final Map<String, Entry> byUser = new HashMap<>();
+        long head;
+        long tail;
+        // Set once the queue is removed from the map; joiners then start a new one
+        boolean retired;
+
+        Queue(LocalDate dateOfTravel, int capacity) {
+            this.dateOfTravel = dateOfTravel;
+            slots = new Entry[capacity];
+            // Starting one lap in keeps head non-negative however many entries are restored
+            head = capacity;
+            tail = capacity;
+        }
+
+        int size() {
+            return (int) (tail - head);
+        }
+
+        Entry peek() {
+            return head == tail ? null : slots[(int) (head % slots.length)];
+        }
+    }
+
+    private final int capacity;
+    private final Map<String, Queue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong joinOrder = new AtomicLong();
+    // Day of the last sweep of past dates; claimed by compare-and-set so it runs once a day
+    private final AtomicReference<LocalDate> lastEviction = new AtomicReference<>();
+
+    Waitlists(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds the user to the end of the queue and returns their position (1 is next), or the
+     * position they already hold. Returns 0 if the queue is full.
+     */
+    int join(String userId, String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        evictExpiredDates();
+        String key = key(trainId, dateOfTravel, fromLeg, toLeg);
+        while (true) {
+            Queue queue = queues.computeIfAbsent(key, k -> new Queue(dateOfTravel, capacity));
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                Entry existing = queue.byUser.get(userId);
+                if (existing != null) {
+                    return (int) (existing.seq - queue.head + 1);
+                }
+                if (queue.size() == queue.slots.length) {
+                    return 0;
+                }
+                Entry entry = new Entry(userId, trainId, dateOfTravel, fromLeg, toLeg, joinOrder.incrementAndGet());
+                entry.seq = queue.tail++;
+                queue.slots[(int) (entry.seq % queue.slots.length)] = entry;
+                queue.byUser.put(userId, entry);
+                return (int) (entry.seq - queue.head + 1);
+            }
+        }
+    }
+
+    /** The user's position in the queue (1 is next), or 0 if they are not waiting on it. */
+    int position(String userId, String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        Queue queue = queues.get(key(trainId, dateOfTravel, fromLeg, toLeg));
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            Entry entry = queue.byUser.get(userId);
+            return entry == null ? 0 : (int) (entry.seq - queue.head + 1);
+        }
+    }
+
+    int size(String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        Queue queue = queues.get(key(trainId, dateOfTravel, fromLeg, toLeg));
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    /**
+     * Removes and returns the longest-waiting user whose segment lies within legs
+     * fromLeg..toLeg-1, or null if nobody is waiting for any of them.
+     */
+    Entry poll(String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        evictExpiredDates();
+        while (true) {
+            Queue best = null;
+            Entry bestHead = null;
+            for (int from = fromLeg; from < toLeg; from++) {
+                for (int to = from + 1; to <= toLeg; to++) {
+                    Queue queue = queues.get(key(trainId, dateOfTravel, from, to));
+                    if (queue == null) {
+                        continue;
+                    }
+                    Entry head;
+                    synchronized (queue) {
+                        head = queue.peek();
+                    }
+                    if (head != null && (bestHead == null || head.joined < bestHead.joined)) {
+                        best = queue;
+                        bestHead = head;
+                    }
+                }
+            }
+            if (best == null) {
+                return null;
+            }
+            synchronized (best) {
+                // Another cancellation may have promoted it meanwhile; look again
+                if (best.peek() != bestHead) {
+                    continue;
+                }
+                best.slots[(int) (best.head % best.slots.length)] = null;
+                best.head++;
+                best.byUser.remove(bestHead.userId);
+                if (best.size() == 0) {
+                    best.retired = true;
+                    queues.remove(key(trainId, dateOfTravel, bestHead.fromLeg, bestHead.toLeg), best);
+                }
+                return bestHead;
+            }
+        }
+    }
+
+    /**
+     * Puts a polled entry back at the head of its queue, for a promotion that did not go
+     * through. Returns false if the queue has filled up in the meantime.
+     */
+    boolean restore(Entry entry) {
+        String key = key(entry.trainId, entry.dateOfTravel, entry.fromLeg, entry.toLeg);
+        while (true) {
+            Queue queue = queues.computeIfAbsent(key, k -> new Queue(entry.dateOfTravel, capacity));
+            synchronized (queue) {
+                if (queue.retired) {
+                    continue;
+                }
+                if (queue.size() == queue.slots.length || queue.byUser.containsKey(entry.userId)) {
+                    return false;
+                }
+                entry.seq = --queue.head;
+                queue.slots[(int) (entry.seq % queue.slots.length)] = entry;
+                queue.byUser.put(entry.userId, entry);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Drops the queues of travel dates that have passed, with everyone still waiting on them.
+     * Runs at most once a day; returns how many queues went.
+     */
+    int evictExpiredDates() {
+        LocalDate today = LocalDate.now();
+        LocalDate previous = lastEviction.get();
+        if (today.equals(previous) || !lastEviction.compareAndSet(previous, today)) {
+            return 0;
+        }
+        return evictBefore(today);
+    }
+
+    int evictBefore(LocalDate today) {
+        int evicted = 0;
+        for (Map.Entry<String, Queue> entry : queues.entrySet()) {
+            Queue queue = entry.getValue();
+            if (!queue.dateOfTravel.isBefore(today)) {
+                continue;
+            }
+            synchronized (queue) {
+                queue.retired = true;
+            }
+            if (queues.remove(entry.getKey(), queue)) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private static String key(String trainId, LocalDate dateOfTravel, int fromLeg, int toLeg) {
+        return trainId + '|' + dateOfTravel + '|' + fromLeg + '|' + toLeg;
+    }
+}
@@ -2,17 +2,65 @@ package com.ticketbooking.utils;
 
 public final class Constants {
     
-    // File paths
+    // File paths; snapshots and the journal live in -Ddata.dir=<dir> (default src/main/resources/data),
+    // the classpath copies under data/ only seed a directory that has none yet
     public static final String USERS_DATA_PATH = "data/users.json";
     public static final String TRAINS_DATA_PATH = "data/trains.json";
-    public static final String BACKUP_USERS_PATH = "src/main/resources/data/users.json";
-    public static final String BACKUP_TRAINS_PATH = "src/main/resources/data/trains.json";
+    public static final String DATA_DIR_PROPERTY = "data.dir";
+    public static final String DATA_DIR = System.getProperty(DATA_DIR_PROPERTY, "src/main/resources/data");
+    public static final String USERS_FILE = "users.json";
+    public static final String TRAINS_FILE = "trains.json";
+    public static final String JOURNAL_FILE = "bookings.journal";
+    public static final String TRAINS_SNAPSHOT_FILE = "trains.bin";
+    public static final String USERS_SNAPSHOT_FILE = "users.bin";
+    public static final String BACKUP_USERS_PATH = DATA_DIR + "/" + USERS_FILE;
+    public static final String BACKUP_TRAINS_PATH = DATA_DIR + "/" + TRAINS_FILE;
+    public static final String JOURNAL_PATH = DATA_DIR + "/" + JOURNAL_FILE;
+    public static final String TRAINS_SNAPSHOT_PATH = DATA_DIR + "/" + TRAINS_SNAPSHOT_FILE;
+    public static final String USERS_SNAPSHOT_PATH = DATA_DIR + "/" + USERS_SNAPSHOT_FILE;
+    
+    // Snapshot format, -Dsnapshot.format=json (default) or binary
+    public static final String SNAPSHOT_FORMAT_PROPERTY = "snapshot.format";
+    
+    // Journal settings, overridable with -Djournal.fsync=ALWAYS|INTERVAL|NEVER,
+    // -Djournal.batch.size=<entries> and -Djournal.batch.delayMs=<millis>
+    public static final String JOURNAL_FSYNC_PROPERTY = "journal.fsync";
+    public static final String JOURNAL_BATCH_SIZE_PROPERTY = "journal.batch.size";
+    public static final String JOURNAL_BATCH_DELAY_PROPERTY = "journal.batch.delayMs";
+    public static final int JOURNAL_BATCH_SIZE = 256;
+    public static final int JOURNAL_BATCH_DELAY_MS = 2;
+    public static final int JOURNAL_COMPACT_THRESHOLD = 10_000;
+    public static final int JOURNAL_COMPACT_INTERVAL_SECONDS = 300;
+    
+    // HTTP server, -Dserver.executor=pool (default), workstealing, virtual or dispatcher,
+    // -Dserver.threads=<workers> and -Dserver.queue=<pending requests>;
+    // -Dserver.transport=jdk (default) or nio, with -Dserver.ioThreads=<selector threads>
+    public static final String SERVER_EXECUTOR_PROPERTY = "server.executor";
+    public static final String SERVER_TRANSPORT_PROPERTY = "server.transport";
+    public static final String SERVER_IO_THREADS_PROPERTY = "server.ioThreads";
+    public static final String SERVER_THREADS_PROPERTY = "server.threads";
+    public static final String SERVER_QUEUE_PROPERTY = "server.queue";
+    public static final int SERVER_THREADS = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+    public static final int SERVER_QUEUE_LIMIT = 1024;
+    public static final int SERVER_IO_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+    public static final int SERVER_IDLE_TIMEOUT_SECONDS = 30;
     
     // Validation constants
     public static final int MIN_USERNAME_LENGTH = 3;
     public static final int MIN_PASSWORD_LENGTH = 6;
     public static final int SEAT_AVAILABLE = 0;
     public static final int SEAT_BOOKED = 1;
+    public static final int ADVANCE_BOOKING_DAYS = 120;
+    public static final int MIN_CONNECTION_MINUTES = 30;
+    public static final int MAX_CHANGES = 2;
+    public static final int MAX_GROUP_SEATS = 6;
+    public static final int AUTO_BOOK_ATTEMPTS = 3;
+    public static final int HOLD_TTL_SECONDS = 600;
+    public static final int MAX_HOLD_TTL_SECONDS = 1800;
+    public static final int WAITLIST_CAPACITY = 200;
+    public static final int IDEMPOTENCY_MAX_KEYS = 10_000;
+    public static final int IDEMPOTENCY_TTL_SECONDS = 3600;
+    public static final int SEARCH_CACHE_SIZE = 1024;
     
     // Messages
     public static final String USERNAME_TAKEN = "Username already taken!";
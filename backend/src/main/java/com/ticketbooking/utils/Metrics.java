@@ -0,0 +1,141 @@
+package com.ticketbooking.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Request counts, error counts and latency histograms, rendered in the Prometheus text format
+ * for {@code /api/metrics}.
+ *
+ * Timers are looked up once, when a handler or service is set up, and kept in a field; the
+ * hot path only calls {@link Timer#record}, which neither locks nor allocates. Each family is
+ * exported as a summary ({@code <family>_duration_seconds} with p50, p99 and p999, its
+ * {@code _sum} and {@code _count}) plus an {@code <family>_errors_total} counter.
+ */
+public final class Metrics {
+
+    public static final Metrics DEFAULT = new Metrics("ticketbooking");
+
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+
+    public static final class Timer {
+        final String labelValue;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+
+        Timer(String labelValue) {
+            this.labelValue = labelValue;
+        }
+
+        /** Records one call that started at {@code startNanos}, from {@link System#nanoTime()}. */
+        public void record(long startNanos, boolean failed) {
+            latency.record(System.nanoTime() - startNanos);
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+    }
+
+    private static final class Family {
+        final String name;
+        final String label;
+        final String help;
+        final Map<String, Timer> timers = new LinkedHashMap<>();
+
+        Family(String name, String label, String help) {
+            this.name = name;
+            this.label = label;
+            this.help = help;
+        }
+    }
+
+    private final String namespace;
+    private final Map<String, Family> families = new LinkedHashMap<>();
+
+    public Metrics(String namespace) {
+        this.namespace = namespace;
+    }
+
+    /**
+     * The timer for one label value of a family, created on first use. {@code help} describes
+     * the family and is taken from its first registration.
+     */
+    public synchronized Timer timer(String family, String label, String labelValue, String help) {
+        Family f = families.computeIfAbsent(family, name -> new Family(name, label, help));
+        return f.timers.computeIfAbsent(labelValue, Timer::new);
+    }
+
+    /** Handler time per HTTP route. */
+    public Timer httpTimer(String endpoint) {
+        return timer("http_requests", "endpoint", endpoint, "Time to handle a request, by route");
+    }
+
+    /** Time of a journal or snapshot write, per kind of write. */
+    public Timer persistenceTimer(String operation) {
+        return timer("persistence", "operation", operation, "Time spent writing the journal and snapshots, by operation");
+    }
+
+    public String prometheus() {
+        List<Family> snapshot;
+        synchronized (this) {
+            snapshot = new ArrayList<>(families.values());
+        }
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : snapshot) {
+            List<Timer> timers;
+            synchronized (this) {
+                timers = new ArrayList<>(family.timers.values());
+            }
+            String base = namespace + "_" + family.name;
+
+            String duration = base + "_duration_seconds";
+            out.append("# HELP ").append(duration).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(duration).append(" summary\n");
+            for (Timer timer : timers) {
+                LatencyHistogram latency = timer.latency;
+                long count = latency.getCount();
+                for (double quantile : QUANTILES) {
+                    // Prometheus reports the quantiles of an empty summary as NaN
+                    out.append(duration).append('{').append(family.label).append("=\"").append(escape(timer.labelValue))
+                            .append("\",quantile=\"").append(quantile).append("\"} ")
+                            .append(count == 0 ? "NaN" : seconds(latency.valueAtQuantile(quantile))).append('\n');
+                }
+                sample(out, duration + "_sum", family.label, timer.labelValue, seconds(latency.getSumNanos()));
+                sample(out, duration + "_count", family.label, timer.labelValue, Long.toString(count));
+            }
+
+            String errors = base + "_errors_total";
+            out.append("# HELP ").append(errors).append(" Failed calls counted in ").append(duration).append('\n');
+            out.append("# TYPE ").append(errors).append(" counter\n");
+            for (Timer timer : timers) {
+                sample(out, errors, family.label, timer.labelValue, Long.toString(timer.getErrors()));
+            }
+        }
+        return out.toString();
+    }
+
+    private static void sample(StringBuilder out, String name, String label, String labelValue, String value) {
+        out.append(name).append('{').append(label).append("=\"").append(escape(labelValue)).append("\"} ")
+                .append(value).append('\n');
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1e9);
+    }
+
+    private static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
@@ -2,7 +2,19 @@ package com.ticketbooking.utils;
 
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
 public class UserServiceUtil {
+    // Ids are millisecond timestamps bumped past the last one handed out, and past every id
+    // loaded from disk (see reserveId), so they stay unique across restarts; the services index
+    // users and tickets by id. The suffix tells apart processes sharing the data files, such as
+    // the CLI next to the server, whose counters know nothing of each other.
+    private static final AtomicLong lastTicketId = new AtomicLong();
+    private static final AtomicLong lastUserId = new AtomicLong();
+    private static final AtomicLong lastHoldId = new AtomicLong();
+    private static final String PROCESS_SUFFIX = String.format("-%04x", new SecureRandom().nextInt(1 << 16));
+
     public static String hashPassword(String plainPassword) {
         return BCrypt.hashpw(plainPassword, BCrypt.gensalt());
     }
@@ -12,10 +24,46 @@ public class UserServiceUtil {
     }
 
     public static String generateTicketId() {
-        return "" + System.currentTimeMillis();
+        return nextId(lastTicketId) + PROCESS_SUFFIX;
     }
     
     public static String generateUserId() {
-        return "USER_" + System.currentTimeMillis();
+        return "USER_" + nextId(lastUserId) + PROCESS_SUFFIX;
+    }
+
+    public static String generateHoldId() {
+        return "HOLD_" + nextId(lastHoldId) + PROCESS_SUFFIX;
+    }
+
+    /**
+     * Moves the generators past an id loaded from a snapshot or the journal. Ids that do not
+     * look generated, such as those in the seed data, are ignored.
+     */
+    public static void reserveId(String id) {
+        if (id == null) {
+            return;
+        }
+        AtomicLong last = lastTicketId;
+        String counter = id;
+        if (id.startsWith("USER_")) {
+            last = lastUserId;
+            counter = id.substring("USER_".length());
+        }
+        int suffix = counter.indexOf('-');
+        if (suffix != -1) {
+            counter = counter.substring(0, suffix);
+        }
+        long value;
+        try {
+            value = Long.parseLong(counter);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        last.accumulateAndGet(value, Math::max);
+    }
+
+    private static long nextId(AtomicLong last) {
+        long now = System.currentTimeMillis();
+        return last.updateAndGet(previous -> Math.max(now, previous + 1));
     }
 }
\ No newline at end of file
@@ -0,0 +1,137 @@
+package com.ticketbooking.entities;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapConcurrencyTest {
+
+    private static final int THREADS = 2000;
+
+    // Starts every task on its own thread at the same moment and waits for all of them
+    private static void race(int threads, Runnable task) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> started = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                task.run();
+            });
+            thread.start();
+            started.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : started) {
+            thread.join();
+        }
+    }
+
+    @Test
+    void testSameSeatIsSoldOnce() throws Exception {
+        SeatMap seats = new SeatMap(4, 4, 3);
+        AtomicInteger winners = new AtomicInteger();
+
+        race(THREADS, () -> {
+            if (seats.book(2, 1)) {
+                winners.incrementAndGet();
+            }
+        });
+
+        assertEquals(1, winners.get());
+        assertEquals(1, seats.bookedCount());
+        assertEquals(10, seats.nextFreeSeat(9, 0, 1));
+    }
+
+    @Test
+    void testOverlappingSegmentsNeverShareALeg() throws Exception {
+        checkSegments(new SeatMap(1, 1, 40));
+        checkSegments(new SeatMap(1, 1, 100));
+    }
+
+    private void checkSegments(SeatMap seats) throws Exception {
+        int legs = seats.legs();
+        ConcurrentLinkedQueue<int[]> sold = new ConcurrentLinkedQueue<>();
+        AtomicInteger seed = new AtomicInteger();
+
+        race(THREADS, () -> {
+            Random random = new Random(seed.incrementAndGet());
+            int from = random.nextInt(legs);
+            int to = from + 1 + random.nextInt(Math.min(4, legs - from));
+            if (seats.book(0, 0, from, to)) {
+                sold.add(new int[]{from, to});
+            }
+        });
+
+        boolean[] taken = new boolean[legs];
+        for (int[] segment : sold) {
+            for (int leg = segment[0]; leg < segment[1]; leg++) {
+                assertFalse(taken[leg], "leg " + leg + " sold twice");
+                taken[leg] = true;
+            }
+        }
+        LongBuffer words = seats.legMaskWords();
+        for (int leg = 0; leg < legs; leg++) {
+            boolean set = (words.get(leg >>> 6) & (1L << leg)) != 0;
+            assertEquals(taken[leg], set, "leg " + leg);
+        }
+    }
+
+    @Test
+    void testBookReleaseChurnKeepsOneHolder() throws Exception {
+        SeatMap seats = new SeatMap(1, 2, 2);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+
+        race(THREADS, () -> {
+            for (int i = 0; i < 50; i++) {
+                if (seats.book(0, 1)) {
+                    if (holders.incrementAndGet() > 1) {
+                        overlaps.incrementAndGet();
+                    }
+                    holders.decrementAndGet();
+                    assertTrue(seats.release(0, 1));
+                }
+            }
+        });
+
+        assertEquals(0, overlaps.get());
+        assertEquals(0, seats.bookedCount());
+        assertEquals(2, seats.freeCount(0, 2));
+    }
+
+    @Test
+    void testSegmentCountersSettleOnTheMasks() throws Exception {
+        SeatMap seats = new SeatMap(2, 2, 8);
+        AtomicInteger seed = new AtomicInteger();
+
+        race(200, () -> {
+            Random random = new Random(seed.incrementAndGet());
+            for (int i = 0; i < 200; i++) {
+                int from = random.nextInt(8);
+                int to = from + 1 + random.nextInt(8 - from);
+                if (seats.book(random.nextInt(2), random.nextInt(2), from, to) && random.nextBoolean()) {
+                    seats.release(random.nextInt(2), random.nextInt(2), from, to);
+                }
+            }
+        });
+
+        SeatMap recounted = seats.copy();
+        for (int from = 0; from < 8; from++) {
+            for (int to = from + 1; to <= 8; to++) {
+                assertEquals(recounted.freeCount(from, to), seats.freeCount(from, to), "segment " + from + "-" + to);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.ticketbooking.entities;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatMapTest {
+
+    @Test
+    void testBookAndRelease() {
+        SeatMap seats = new SeatMap(8, 6);
+
+        assertEquals(48, seats.freeCount());
+        assertTrue(seats.book(3, 4));
+        assertFalse(seats.book(3, 4));
+        assertTrue(seats.isBooked(3, 4));
+        assertEquals(47, seats.freeCount());
+        assertEquals(5, seats.freeCount(3));
+
+        assertTrue(seats.release(3, 4));
+        assertFalse(seats.release(3, 4));
+        assertEquals(48, seats.freeCount());
+    }
+
+    @Test
+    void testInvalidSeatsAreRejected() {
+        SeatMap seats = new SeatMap(2, 3);
+
+        assertFalse(seats.book(-1, 0));
+        assertFalse(seats.book(2, 0));
+        assertFalse(seats.book(0, 3));
+        assertFalse(seats.release(0, 3));
+    }
+
+    @Test
+    void testNextFreeSeatCrossesWordBoundaries() {
+        SeatMap seats = new SeatMap(20, 10);
+        for (int i = 0; i < 130; i++) {
+            assertTrue(seats.book(i / 10, i % 10));
+        }
+
+        int next = seats.nextFreeSeat(0);
+        assertEquals(130, next);
+        assertEquals(13, seats.rowOf(next));
+        assertEquals(0, seats.colOf(next));
+
+        for (int i = 130; i < 200; i++) {
+            seats.book(i / 10, i % 10);
+        }
+        assertEquals(-1, seats.nextFreeSeat(0));
+    }
+
+    @Test
+    void testNonOverlappingSegmentsShareASeat() {
+        SeatMap seats = new SeatMap(2, 2, 4);
+
+        assertTrue(seats.book(0, 0, 0, 2));
+        assertFalse(seats.book(0, 0, 1, 3));
+        assertTrue(seats.book(0, 0, 2, 4));
+        assertFalse(seats.isFree(0, 0, 3, 4));
+
+        assertEquals(3, seats.freeCount());
+        assertEquals(3, seats.freeCount(0, 4));
+        assertEquals(1, seats.nextFreeSeat(0, 0, 1));
+
+        assertTrue(seats.release(0, 0, 0, 2));
+        assertFalse(seats.release(0, 0, 0, 2));
+        assertTrue(seats.isFree(0, 0, 0, 2));
+        assertEquals(0, seats.nextFreeSeat(0, 0, 2));
+        assertTrue(seats.release(0, 0, 2, 4));
+        assertEquals(4, seats.freeCount());
+    }
+
+    @Test
+    void testSegmentCountersFollowBookingsAndReleases() {
+        SeatMap seats = new SeatMap(3, 4, 6);
+        Random random = new Random(7);
+        for (int step = 0; step < 2000; step++) {
+            int row = random.nextInt(3);
+            int col = random.nextInt(4);
+            int from = random.nextInt(6);
+            int to = from + 1 + random.nextInt(6 - from);
+            if (random.nextBoolean()) {
+                seats.book(row, col, from, to);
+            } else {
+                seats.release(row, col, from, to);
+            }
+            if (step % 50 == 0) {
+                assertCountsMatchSeats(seats);
+                assertCountsMatchSeats(seats.copy());
+            }
+        }
+        assertCountsMatchSeats(seats);
+    }
+
+    private static void assertCountsMatchSeats(SeatMap seats) {
+        for (int from = 0; from < seats.legs(); from++) {
+            for (int to = from + 1; to <= seats.legs(); to++) {
+                int free = 0;
+                for (int row = 0; row < seats.rows(); row++) {
+                    for (int col = 0; col < seats.rowLength(row); col++) {
+                        if (seats.isFree(row, col, from, to)) {
+                            free++;
+                        }
+                    }
+                }
+                assertEquals(free, seats.freeCount(from, to), "segment " + from + "-" + to);
+            }
+        }
+    }
+
+    @Test
+    void testLongRoutesUseTwoWordsPerSeat() throws Exception {
+        SeatMap seats = new SeatMap(1, 3, 100);
+
+        assertTrue(seats.book(0, 1, 60, 70));
+        assertFalse(seats.book(0, 1, 63, 64));
+        assertFalse(seats.book(0, 1, 64, 65));
+        assertTrue(seats.book(0, 1, 70, 100));
+        assertFalse(seats.book(0, 1, 0, 101));
+
+        ObjectMapper mapper = new ObjectMapper();
+        SeatMap copy = mapper.readValue(mapper.writeValueAsString(seats), SeatMap.class);
+        copy.setLegs(100);
+        assertEquals(seats.toMatrix(), copy.toMatrix());
+        assertTrue(copy.isFree(0, 1, 0, 60));
+        assertFalse(copy.isFree(0, 1, 99, 100));
+    }
+
+    @Test
+    void testJsonRoundTripKeepsRaggedRows() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        String json = "[[0,1,0],[1],[],[0,0,1,1]]";
+
+        SeatMap seats = mapper.readValue(json, SeatMap.class);
+
+        assertEquals(4, seats.rows());
+        assertEquals(0, seats.rowLength(2));
+        assertEquals(8, seats.capacity());
+        assertEquals(4, seats.freeCount());
+        assertEquals(3, seats.rowOf(seats.nextFreeSeat(4)));
+        assertEquals(json.replace(" ", ""), mapper.writeValueAsString(seats));
+    }
+
+    @Test
+    void testTrainsJsonStillLoads() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Train> trains = mapper.readValue(getClass().getClassLoader().getResourceAsStream("data/trains.json"),
+                new TypeReference<List<Train>>() {});
+
+        Train train = trains.get(0);
+        assertEquals("T001", train.getTrainId());
+        assertEquals(8, train.getSeats().rows());
+        assertTrue(train.getSeats().isBooked(0, 1));
+        assertFalse(train.getSeats().isBooked(0, 0));
+
+        Train copy = mapper.readValue(mapper.writeValueAsString(train), Train.class);
+        assertEquals(train.getSeats().toMatrix(), copy.getSeats().toMatrix());
+    }
+}
@@ -0,0 +1,63 @@
+package com.ticketbooking.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyCacheTest {
+
+    @Test
+    void testRepeatedKeyReturnsTheFirstResponseWithoutRunningAgain() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        AtomicInteger runs = new AtomicInteger();
+        Map<String, Object> request = Map.of("ticketId", "1");
+
+        IdempotencyCache.Response first = cache.execute("/api/cancel", "k1", request,
+                () -> new IdempotencyCache.Response(200, Map.of("run", runs.incrementAndGet())));
+        IdempotencyCache.Response retry = cache.execute("/api/cancel", "k1", Map.of("ticketId", "1"),
+                () -> new IdempotencyCache.Response(200, Map.of("run", runs.incrementAndGet())));
+
+        assertSame(first, retry);
+        assertEquals(1, runs.get());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // Same key on another endpoint, and no key at all, both run
+        cache.execute("/api/book", "k1", request, () -> new IdempotencyCache.Response(200, runs.incrementAndGet()));
+        cache.execute("/api/cancel", null, request, () -> new IdempotencyCache.Response(200, runs.incrementAndGet()));
+        assertEquals(3, runs.get());
+    }
+
+    @Test
+    void testKeyReusedForADifferentRequestIsRefused() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(10, 60_000);
+        cache.execute("/api/book", "k", Map.of("row", 1), () -> new IdempotencyCache.Response(200, "booked"));
+
+        IdempotencyCache.Response response = cache.execute("/api/book", "k", Map.of("row", 2),
+                () -> new IdempotencyCache.Response(200, "booked again"));
+
+        assertEquals(422, response.status);
+    }
+
+    @Test
+    void testFailuresAreNotStoredAndOldKeysAreEvicted() throws Exception {
+        IdempotencyCache cache = new IdempotencyCache(2, 60_000);
+        assertThrows(IOException.class, () -> cache.execute("/api/book", "k", "r", () -> {
+            throw new IOException("disk full");
+        }));
+        assertEquals("ok", cache.execute("/api/book", "k", "r", () -> new IdempotencyCache.Response(200, "ok")).body);
+
+        cache.execute("/api/book", "k2", "r", () -> new IdempotencyCache.Response(200, "second"));
+        cache.execute("/api/book", "k3", "r", () -> new IdempotencyCache.Response(200, "third"));
+        assertEquals(2, cache.size());
+        assertEquals("again", cache.execute("/api/book", "k", "r", () -> new IdempotencyCache.Response(200, "again")).body);
+
+        IdempotencyCache expiring = new IdempotencyCache(10, 0);
+        expiring.execute("/api/book", "k", "r", () -> new IdempotencyCache.Response(200, "first"));
+        assertEquals("second", expiring.execute("/api/book", "k", "r", () -> new IdempotencyCache.Response(200, "second")).body);
+    }
+}
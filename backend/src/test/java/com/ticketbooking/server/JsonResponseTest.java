@@ -0,0 +1,57 @@
+package com.ticketbooking.server;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.Headers;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonResponseTest {
+
+    private final ObjectMapper mapper = JsonResponse.configure(new ObjectMapper());
+
+    private static NioExchange exchange() {
+        return new NioExchange("GET", URI.create("/api/test"), "HTTP/1.1", new Headers(), new byte[0], null, null);
+    }
+
+    private static String body(NioExchange exchange) {
+        String response = new String(exchange.response(true), StandardCharsets.UTF_8);
+        return response.substring(response.indexOf("\r\n\r\n") + 4);
+    }
+
+    @Test
+    void testLengthCountsBytesNotChars() throws Exception {
+        NioExchange exchange = exchange();
+        Map<String, Object> value = Map.of("station", "Zürich Hbf – Gleis 7");
+
+        JsonResponse.send(exchange, 200, value, mapper);
+
+        String response = new String(exchange.response(true), StandardCharsets.UTF_8);
+        int bytes = mapper.writeValueAsBytes(value).length;
+        assertTrue(response.contains("Content-Length: " + bytes + "\r\n"));
+        assertEquals(mapper.writeValueAsString(value), body(exchange));
+        assertEquals("application/json; charset=utf-8", exchange.getResponseHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void testLargeResponseStreamsPastTheBuffer() throws Exception {
+        List<Map<String, Object>> trains = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            trains.add(Map.of("trainId", "T" + i, "name", "Express " + i));
+        }
+        Map<String, Object> value = Map.of("success", true, "trains", trains);
+        NioExchange exchange = exchange();
+
+        JsonResponse.send(exchange, 200, value, mapper);
+
+        assertTrue(mapper.writeValueAsBytes(value).length > JsonResponse.BUFFER_LIMIT);
+        assertEquals(200, exchange.getResponseCode());
+        assertEquals(mapper.writeValueAsString(value), body(exchange));
+    }
+}
@@ -0,0 +1,210 @@
+package com.ticketbooking.server;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NioHttpServerTest {
+
+    private ExecutorService executor;
+    private NioHttpServer server;
+    private Socket socket;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        executor = Executors.newFixedThreadPool(4);
+        server = start(executor);
+        socket = connect(server);
+    }
+
+    // Answers with the query, or the body for a POST; ?sleep=<ms> delays the answer
+    private static NioHttpServer start(Executor executor) throws IOException {
+        NioHttpServer server = new NioHttpServer(new InetSocketAddress("127.0.0.1", 0), 1, executor, 30);
+        server.createContext("/echo", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            if (query != null && query.startsWith("sleep=")) {
+                try {
+                    Thread.sleep(Long.parseLong(query.substring("sleep=".length())));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "POST".equals(exchange.getRequestMethod())
+                    ? exchange.getRequestBody().readAllBytes()
+                    : String.valueOf(query).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        return server;
+    }
+
+    private static Socket connect(NioHttpServer server) throws IOException {
+        Socket socket = new Socket("127.0.0.1", server.getAddress().getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        socket.close();
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void testPipelinedRequestsAreAnsweredInOrder() throws Exception {
+        // The first one takes longest, so answering in completion order would reorder them
+        send("GET /echo?sleep=200 HTTP/1.1\r\nHost: test\r\n\r\n"
+                + "GET /echo?sleep=50 HTTP/1.1\r\nHost: test\r\n\r\n"
+                + "GET /echo?last HTTP/1.1\r\nHost: test\r\n\r\n");
+
+        assertEquals("sleep=200", readResponse().body);
+        assertEquals("sleep=50", readResponse().body);
+        assertEquals("last", readResponse().body);
+    }
+
+    @Test
+    void testBodySplitAcrossReadsIsReassembled() throws Exception {
+        send("POST /echo HTTP/1.1\r\nHost: test\r\nContent-Length: 11\r\n\r\nhello");
+        Thread.sleep(100);
+        send(" world");
+
+        Response response = readResponse();
+        assertEquals(200, response.status);
+        assertEquals("hello world", response.body);
+    }
+
+    @Test
+    void testConnectionCloseEndsTheConnectionAfterTheResponse() throws Exception {
+        send("GET /echo?a HTTP/1.1\r\nHost: test\r\nConnection: close\r\n\r\n");
+
+        Response response = readResponse();
+        assertEquals("a", response.body);
+        assertTrue(response.head.contains("Connection: close\r\n"));
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void testHttp10ClosesUnlessAskedToKeepAlive() throws Exception {
+        send("GET /echo?first HTTP/1.0\r\nConnection: keep-alive\r\n\r\n");
+        Response kept = readResponse();
+        assertEquals("first", kept.body);
+        assertTrue(kept.head.contains("Connection: keep-alive\r\n"));
+
+        send("GET /echo?second HTTP/1.0\r\n\r\n");
+        Response closed = readResponse();
+        assertEquals("second", closed.body);
+        assertTrue(closed.head.contains("Connection: close\r\n"));
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void testOversizedHeadersAreRejectedWith431() throws Exception {
+        send("GET /echo HTTP/1.1\r\nX-Padding: " + "a".repeat(20 * 1024));
+
+        assertEquals(431, readResponse().status);
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void testOversizedBodyIsRejectedWith413BeforeItArrives() throws Exception {
+        send("POST /echo HTTP/1.1\r\nHost: test\r\nContent-Length: " + (2 * 1024 * 1024) + "\r\n\r\n");
+
+        assertEquals(413, readResponse().status);
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void testChunkedRequestIsRejectedWith501() throws Exception {
+        send("POST /echo HTTP/1.1\r\nHost: test\r\nTransfer-Encoding: chunked\r\n\r\n5\r\nhello\r\n0\r\n\r\n");
+
+        assertEquals(501, readResponse().status);
+        assertEquals(-1, socket.getInputStream().read());
+    }
+
+    @Test
+    void testFullQueueAnswers503InsteadOfRunningOnTheSelector() throws Exception {
+        ServerExecutor pool = ServerExecutor.create(ServerExecutor.POOL, 1, 1, true);
+        NioHttpServer shedding = start(pool);
+        try (Socket busy = connect(shedding); Socket queued = connect(shedding); Socket refused = connect(shedding)) {
+            send(busy, "GET /echo?sleep=500 HTTP/1.1\r\nHost: test\r\n\r\n");
+            Thread.sleep(100);
+            send(queued, "GET /echo?queued HTTP/1.1\r\nHost: test\r\n\r\n");
+            Thread.sleep(100);
+            send(refused, "GET /echo?refused HTTP/1.1\r\nHost: test\r\n\r\n");
+
+            assertEquals(503, readResponse(refused).status);
+            assertEquals("sleep=500", readResponse(busy).body);
+            assertEquals("queued", readResponse(queued).body);
+            assertEquals(1, pool.getOverflowed());
+        } finally {
+            shedding.stop();
+            pool.shutdown();
+        }
+    }
+
+    private void send(String data) throws IOException {
+        send(socket, data);
+    }
+
+    private static void send(Socket socket, String data) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(data.getBytes(StandardCharsets.ISO_8859_1));
+        out.flush();
+    }
+
+    private static final class Response {
+        final int status;
+        final String head;
+        final String body;
+
+        Response(int status, String head, String body) {
+            this.status = status;
+            this.head = head;
+            this.body = body;
+        }
+    }
+
+    // Reads exactly one response, so whatever follows stays in the stream for the next call
+    private Response readResponse() throws IOException {
+        return readResponse(socket);
+    }
+
+    private static Response readResponse(Socket socket) throws IOException {
+        InputStream in = socket.getInputStream();
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        while (!head.toString(StandardCharsets.ISO_8859_1).endsWith("\r\n\r\n")) {
+            int b = in.read();
+            if (b == -1) {
+                fail("Connection closed before the response headers ended");
+            }
+            head.write(b);
+        }
+        String headers = head.toString(StandardCharsets.ISO_8859_1);
+        int status = Integer.parseInt(headers.split(" ")[1]);
+        int length = 0;
+        for (String line : headers.split("\r\n")) {
+            if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                length = Integer.parseInt(line.substring(15).trim());
+            }
+        }
+        byte[] body = in.readNBytes(length);
+        assertEquals(length, body.length);
+        return new Response(status, headers, new String(body, StandardCharsets.UTF_8));
+    }
+}
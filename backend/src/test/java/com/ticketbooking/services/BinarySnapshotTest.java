@@ -0,0 +1,103 @@
+package com.ticketbooking.services;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Ticket;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.entities.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySnapshotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTrainsRoundTripWithDatedInventory() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        List<Train> trains = mapper.readValue(getClass().getClassLoader().getResourceAsStream("data/trains.json"),
+                new TypeReference<List<Train>>() {});
+        Train first = trains.get(0);
+        SeatMap shard = first.getSeats().copy();
+        shard.book(2, 3, 0, 1);
+        first.getDatedSeats().put("2030-01-15", shard);
+
+        Path file = tempDir.resolve("trains.bin");
+        Files.write(file, BinarySnapshot.encodeTrains(trains));
+        BinarySnapshot.Reader reader = BinarySnapshot.open(file);
+
+        assertEquals(BinarySnapshot.KIND_TRAINS, reader.kind());
+        assertEquals(trains.size(), reader.size());
+        List<Train> loaded = reader.trains();
+        for (int i = 0; i < trains.size(); i++) {
+            assertEquals(mapper.writeValueAsString(trains.get(i)), mapper.writeValueAsString(loaded.get(i)));
+        }
+        Train copy = loaded.get(0);
+        assertFalse(copy.seatsOn("2030-01-15").isFree(2, 3, 0, 1));
+        assertEquals(shard.freeCount(), copy.seatsOn("2030-01-15").freeCount());
+        assertSame(copy.getStations().get(0), reader.train(0).getStations().get(0));
+    }
+
+    @Test
+    void testUsersRoundTripLinksTicketsToLiveTrains() throws Exception {
+        Train train = new Train("T9", "909", new SeatMap(2, 2), null, List.of("a", "b"));
+        Ticket ticket = new Ticket("tk1", "u1", "a", "b", "2030-01-15", train);
+        ticket.setRow(1);
+        ticket.setCol(0);
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(ticket);
+        List<User> users = List.of(
+                new User("alice", null, "$2a$hash", tickets, "u1"),
+                new User("bob", null, "$2a$hash", new ArrayList<>(), "u2"));
+
+        Path file = tempDir.resolve("users.bin");
+        Files.write(file, BinarySnapshot.encodeUsers(users));
+        List<User> loaded = BinarySnapshot.open(file).users(id -> id.equals("T9") ? train : null);
+
+        assertEquals(2, loaded.size());
+        assertEquals("alice", loaded.get(0).getUsername());
+        assertNull(loaded.get(0).getPassword());
+        Ticket copy = loaded.get(0).getTicketsBooked().get(0);
+        assertEquals("tk1", copy.getTicketId());
+        assertEquals(Integer.valueOf(1), copy.getRow());
+        assertSame(train, copy.getTrain());
+        assertTrue(loaded.get(1).getTicketsBooked().isEmpty());
+    }
+
+    @Test
+    void testReadsUserKeysWithoutDecodingTickets() throws Exception {
+        Train train = new Train("T9", "909", new SeatMap(2, 2), null, List.of("a", "b"));
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(new Ticket("tk1", "u1", "a", "b", "2030-01-15", train));
+        tickets.add(new Ticket("tk2", "u1", "a", "b", "2030-01-16", train));
+        List<User> users = List.of(
+                new User("bob", null, "$2a$hash", new ArrayList<>(), "u2"),
+                new User("alice", null, "$2a$hash", tickets, "u1"));
+
+        Path file = tempDir.resolve("users.bin");
+        Files.write(file, BinarySnapshot.encodeUsers(users));
+        BinarySnapshot.Reader reader = BinarySnapshot.open(file);
+
+        assertEquals("alice", reader.username(1));
+        assertEquals("u1", reader.userId(1));
+        assertEquals(List.of("tk1", "tk2"), reader.ticketIds(1));
+        assertEquals(List.of(), reader.ticketIds(0));
+    }
+
+    @Test
+    void testRejectsFilesThatAreNotSnapshots() throws Exception {
+        Path file = tempDir.resolve("users.bin");
+        Files.write(file, "[{\"username\":\"alice\"}]".getBytes());
+
+        assertThrows(java.io.IOException.class, () -> BinarySnapshot.open(file));
+    }
+}
@@ -0,0 +1,320 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.JournalEntry;
+import com.ticketbooking.entities.User;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BookingJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testReplayReturnsEntriesInOrder() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.signup(new User("alice", "pw", null, new ArrayList<>(), "u1")));
+            journal.append(JournalEntry.cancel("u1", "t1"));
+            assertEquals(2, journal.entriesSinceRotation());
+        }
+
+        List<JournalEntry> replayed = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(replayed::add);
+            assertEquals(2, journal.entriesSinceRotation());
+        }
+
+        assertEquals(JournalEntry.Type.SIGNUP, replayed.get(0).getType());
+        assertEquals("alice", replayed.get(0).getUser().getUsername());
+        assertEquals(JournalEntry.Type.CANCEL, replayed.get(1).getType());
+        assertEquals("t1", replayed.get(1).getTicketId());
+    }
+
+    @Test
+    void testTornLastEntryIsSkippedAndDoesNotSwallowTheNextOne() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+        }
+        Files.write(file, "{\"type\":\"CANC".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t2"));
+        }
+
+        List<JournalEntry> replayed = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(replayed::add);
+        }
+        assertEquals(2, replayed.size());
+        assertEquals("t2", replayed.get(1).getTicketId());
+    }
+
+    @Test
+    void testUnreadableEntryBeforeTheLastFailsReplay() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+        }
+        Files.write(file, "{\"type\":\"CANC\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t2"));
+        }
+
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            assertThrows(IOException.class, () -> journal.replay(entry -> {}));
+        }
+    }
+
+    @Test
+    void testTornEndOfARotatedFileIsSkipped() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+            journal.rotate();
+        }
+        Files.write(tempDir.resolve("bookings.journal.compacting"), "{\"type\":\"CANC".getBytes(StandardCharsets.UTF_8),
+                StandardOpenOption.APPEND);
+
+        List<String> ticketIds = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(entry -> ticketIds.add(entry.getTicketId()));
+        }
+        assertEquals(List.of("t1"), ticketIds);
+    }
+
+    @Test
+    void testUnfinishedCompactionIsReplayedFirst() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS)) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+            journal.rotate();
+            journal.append(JournalEntry.cancel("u1", "t2"));
+            journal.rotate();
+            journal.append(JournalEntry.cancel("u1", "t3"));
+            assertEquals(1, journal.entriesSinceRotation());
+        }
+
+        List<String> ticketIds = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(entry -> ticketIds.add(entry.getTicketId()));
+            assertEquals(List.of("t1", "t2", "t3"), ticketIds);
+
+            journal.finishCompaction();
+            ticketIds.clear();
+            journal.replay(entry -> ticketIds.add(entry.getTicketId()));
+            assertEquals(List.of("t3"), ticketIds);
+        }
+    }
+
+    @Test
+    void testConcurrentAppendsShareACommit() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS,
+                64, TimeUnit.MILLISECONDS.toNanos(50))) {
+            for (int i = 0; i < 100; i++) {
+                pending.add(journal.appendAsync(JournalEntry.cancel("u1", "t" + i)));
+            }
+            for (CompletableFuture<Void> durable : pending) {
+                BookingJournal.await(durable);
+            }
+
+            BookingJournal.Stats stats = journal.getStats();
+            assertEquals(100, stats.getEntries());
+            assertTrue(stats.getBatches() < 100);
+            assertTrue(stats.getMaxBatchSize() <= 64);
+        }
+
+        List<String> ticketIds = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(entry -> ticketIds.add(entry.getTicketId()));
+        }
+        assertEquals(100, ticketIds.size());
+        assertEquals("t0", ticketIds.get(0));
+        assertEquals("t99", ticketIds.get(99));
+    }
+
+    @Test
+    void testFailedBatchIsCutBackOffTheFile() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        FaultyChannel[] opened = new FaultyChannel[1];
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS, 16, 0,
+                path -> opened[0] = new FaultyChannel(path))) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+            opened[0].failForce = true;
+            assertThrows(IOException.class, () -> journal.append(JournalEntry.cancel("u1", "t2")));
+            opened[0].failForce = false;
+            journal.append(JournalEntry.cancel("u1", "t3"));
+        }
+
+        List<String> ticketIds = new ArrayList<>();
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.NEVER)) {
+            journal.replay(entry -> ticketIds.add(entry.getTicketId()));
+        }
+        assertEquals(List.of("t1", "t3"), ticketIds);
+    }
+
+    @Test
+    void testJournalStopsAppendingWhenAFailedBatchCannotBeRemoved() throws Exception {
+        Path file = tempDir.resolve("bookings.journal");
+        FaultyChannel[] opened = new FaultyChannel[1];
+        try (BookingJournal journal = new BookingJournal(file, BookingJournal.FsyncPolicy.ALWAYS, 16, 0,
+                path -> opened[0] = new FaultyChannel(path))) {
+            journal.append(JournalEntry.cancel("u1", "t1"));
+            opened[0].failForce = true;
+            opened[0].failTruncate = true;
+            assertThrows(IOException.class, () -> journal.append(JournalEntry.cancel("u1", "t2")));
+
+            opened[0].failForce = false;
+            opened[0].failTruncate = false;
+            assertThrows(IOException.class, () -> journal.append(JournalEntry.cancel("u1", "t3")));
+            assertEquals(1, journal.entriesSinceRotation());
+        }
+    }
+
+    @Test
+    void testCallsAfterCloseFailInsteadOfWaitingForever() throws Exception {
+        BookingJournal journal = new BookingJournal(tempDir.resolve("bookings.journal"), BookingJournal.FsyncPolicy.ALWAYS);
+        journal.append(JournalEntry.cancel("u1", "t1"));
+        journal.close();
+
+        CompletableFuture<Void> appended = journal.appendAsync(JournalEntry.cancel("u1", "t2"));
+        assertTrue(appended.isCompletedExceptionally());
+        CompletableFuture<Void> rotated = CompletableFuture.runAsync(() -> {
+            try {
+                journal.rotate();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> rotated.get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause() instanceof IOException);
+        journal.close();
+    }
+
+    // Passes everything through to a real channel, failing force or truncate on request
+    private static final class FaultyChannel extends FileChannel {
+        private final FileChannel delegate;
+        volatile boolean failForce;
+        volatile boolean failTruncate;
+
+        FaultyChannel(Path file) throws IOException {
+            delegate = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return delegate.write(src);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (failTruncate) {
+                throw new IOException("truncate failed");
+            }
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            if (failForce) {
+                throw new IOException("fsync failed");
+            }
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Train;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JourneyPlannerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2030, 1, 15);
+
+    // train("T1", "a", "08:00", "b", "10:00") runs a -> b
+    private static Train train(String id, String... stopsAndTimes) {
+        Map<String, String> times = new LinkedHashMap<>();
+        String[] stations = new String[stopsAndTimes.length / 2];
+        for (int i = 0; i < stations.length; i++) {
+            stations[i] = stopsAndTimes[2 * i];
+            times.put(stations[i], stopsAndTimes[2 * i + 1]);
+        }
+        return new Train(id, id, new SeatMap(1, 1), times, List.of(stations));
+    }
+
+    @Test
+    void testOneChangeRespectsMinimumConnection() {
+        JourneyPlanner planner = new JourneyPlanner(List.of(
+                train("T1", "a", "08:00", "b", "10:00"),
+                train("T2", "b", "10:15", "c", "11:00"),
+                train("T3", "b", "10:45", "c", "12:00")));
+
+        List<List<JourneyPlanner.Leg>> journeys = planner.plan("a", "c", DAY.atStartOfDay(), 3, 30);
+
+        assertEquals(1, journeys.size());
+        List<JourneyPlanner.Leg> legs = journeys.get(0);
+        assertEquals(2, legs.size());
+        assertEquals("T1", legs.get(0).train.getTrainId());
+        assertEquals("T3", legs.get(1).train.getTrainId());
+        assertEquals("b", legs.get(1).from);
+        assertEquals(DAY.atTime(12, 0), legs.get(1).arrival);
+
+        assertEquals("T2", planner.plan("a", "c", DAY.atStartOfDay(), 3, 10).get(0).get(1).train.getTrainId());
+    }
+
+    @Test
+    void testDirectAndFasterConnectionAreBothListed() {
+        JourneyPlanner planner = new JourneyPlanner(List.of(
+                train("SLOW", "a", "07:00", "x", "09:00", "c", "20:00"),
+                train("T1", "a", "08:00", "b", "09:00"),
+                train("T2", "b", "10:00", "c", "12:00")));
+
+        List<List<JourneyPlanner.Leg>> journeys = planner.plan("a", "c", DAY.atStartOfDay(), 3, 30);
+
+        assertEquals(2, journeys.size());
+        assertEquals(1, journeys.get(0).size());
+        assertEquals("SLOW", journeys.get(0).get(0).train.getTrainId());
+        assertEquals(2, journeys.get(1).size());
+        assertTrue(planner.plan("a", "c", DAY.atStartOfDay(), 1, 30).stream().allMatch(j -> j.size() == 1));
+    }
+
+    @Test
+    void testOvernightTrainAndNextDayConnection() {
+        JourneyPlanner planner = new JourneyPlanner(List.of(
+                train("NIGHT", "a", "22:00", "b", "02:00", "c", "06:00"),
+                train("T2", "c", "05:00", "d", "07:00"),
+                train("EARLY", "x", "01:00", "y", "02:00")));
+
+        List<List<JourneyPlanner.Leg>> journeys = planner.plan("a", "d", DAY.atTime(12, 0), 3, 30);
+
+        assertEquals(1, journeys.size());
+        List<JourneyPlanner.Leg> legs = journeys.get(0);
+        assertEquals(DAY.atTime(22, 0), legs.get(0).departure);
+        assertEquals(DAY.plusDays(1).atTime(6, 0), legs.get(0).arrival);
+        assertEquals(DAY, legs.get(0).dateOfTravel);
+        // The 05:00 is gone by then, so the next one runs the day after
+        assertEquals(DAY.plusDays(2).atTime(5, 0), legs.get(1).departure);
+        assertEquals(DAY.plusDays(2), legs.get(1).dateOfTravel);
+    }
+
+    @Test
+    void testTwoChangesAndUnknownStations() {
+        JourneyPlanner planner = new JourneyPlanner(List.of(
+                train("T1", "a", "08:00", "b", "09:00"),
+                train("T2", "b", "09:30", "c", "10:00"),
+                train("T3", "c", "10:30", "d", "11:00")));
+
+        List<List<JourneyPlanner.Leg>> journeys = planner.plan("A", "d ", LocalDateTime.of(DAY, java.time.LocalTime.of(7, 0)), 3, 30);
+        assertEquals(1, journeys.size());
+        assertEquals(3, journeys.get(0).size());
+        assertTrue(planner.plan("a", "d", DAY.atStartOfDay(), 2, 30).isEmpty());
+        assertTrue(planner.plan("a", "nowhere", DAY.atStartOfDay(), 3, 30).isEmpty());
+    }
+}
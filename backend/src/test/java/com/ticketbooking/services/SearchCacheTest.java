@@ -0,0 +1,67 @@
+package com.ticketbooking.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SearchCacheTest {
+
+    private final Map<String, Long> versions = new HashMap<>();
+
+    private long version(String trainId) {
+        return versions.getOrDefault(trainId, 0L);
+    }
+
+    private static SearchCache.Entry<String> entry(String source, String destination, String value, String... trainIds) {
+        return new SearchCache.Entry<>(SearchCache.key(source, destination, "2030-01-01"), source, destination, value,
+                trainIds, new long[trainIds.length]);
+    }
+
+    @Test
+    void testChangeToATrainOnlyInvalidatesEntriesHoldingIt() {
+        SearchCache<String> cache = new SearchCache<>(4);
+        cache.put(entry("a", "b", "ab", "T1", "T2"));
+        cache.put(entry("c", "d", "cd", "T3"));
+
+        versions.put("T2", 1L);
+
+        assertNull(cache.get(SearchCache.key("a", "b", "2030-01-01"), this::version));
+        assertEquals("cd", cache.get(SearchCache.key("c", "d", "2030-01-01"), this::version));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getInvalidations());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void testClockEvictsEntriesNotUsedSinceTheLastSweep() {
+        SearchCache<String> cache = new SearchCache<>(2);
+        cache.put(entry("a", "b", "ab", "T1"));
+        cache.put(entry("c", "d", "cd", "T1"));
+        cache.get(SearchCache.key("a", "b", "2030-01-01"), this::version);
+
+        cache.put(entry("e", "f", "ef", "T1"));
+
+        assertEquals("ab", cache.get(SearchCache.key("a", "b", "2030-01-01"), this::version));
+        assertNull(cache.get(SearchCache.key("c", "d", "2030-01-01"), this::version));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testInvalidateIfDropsMatchingRoutes() {
+        SearchCache<String> cache = new SearchCache<>(4);
+        cache.put(entry("a", "b", "ab", "T1"));
+        cache.put(entry("a", "c", "ac", "T1"));
+
+        cache.invalidateIf(entry -> entry.destination.equals("c"));
+
+        assertEquals("ab", cache.get(SearchCache.key("a", "b", "2030-01-01"), this::version));
+        assertNull(cache.get(SearchCache.key("a", "c", "2030-01-01"), this::version));
+        cache.put(entry("a", "c", "ac2", "T1"));
+        assertEquals("ac2", cache.get(SearchCache.key("a", "c", "2030-01-01"), this::version));
+    }
+}
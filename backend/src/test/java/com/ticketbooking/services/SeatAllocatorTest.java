@@ -0,0 +1,84 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SeatAllocatorTest {
+
+    private static SeatMap coach(String... rows) {
+        SeatMap seats = new SeatMap(rows.length, rows[0].length(), 2);
+        for (int row = 0; row < rows.length; row++) {
+            for (int col = 0; col < rows[row].length(); col++) {
+                if (rows[row].charAt(col) == 'x') {
+                    seats.book(row, col);
+                }
+            }
+        }
+        return seats;
+    }
+
+    @Test
+    void testPrefersBlockThatFillsAGapExactly() {
+        SeatMap seats = coach(
+                "......",
+                "x..x..");
+
+        int[][] picked = SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.ANY, true, true);
+
+        assertArrayEquals(new int[][]{{1, 1}, {1, 2}}, picked);
+    }
+
+    @Test
+    void testAvoidsStraddlingTheAisle() {
+        SeatMap seats = coach(
+                "x.x..x",
+                "xx..x.");
+
+        int[][] picked = SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.ANY, true, true);
+
+        assertArrayEquals(new int[][]{{0, 3}, {0, 4}}, picked);
+    }
+
+    @Test
+    void testHonoursWindowAndAislePreferences() {
+        SeatMap seats = coach("......", "......");
+
+        assertArrayEquals(new int[][]{{0, 0}, {0, 1}},
+                SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.WINDOW, true, true));
+        assertArrayEquals(new int[][]{{0, 1}, {0, 2}},
+                SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.AISLE, true, true));
+    }
+
+    @Test
+    void testOnlyCountsSeatsFreeForTheSegment() {
+        SeatMap seats = new SeatMap(1, 4, 3);
+        seats.book(0, 0, 0, 1);
+        seats.book(0, 1, 0, 1);
+        seats.book(0, 2, 2, 3);
+        seats.book(0, 3, 2, 3);
+
+        assertArrayEquals(new int[][]{{0, 0}, {0, 1}},
+                SeatAllocator.allocate(seats, 1, 3, 2, SeatAllocator.Position.ANY, true, true));
+        assertArrayEquals(new int[][]{{0, 2}, {0, 3}},
+                SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.ANY, true, true));
+        assertNull(SeatAllocator.allocate(seats, 0, 3, 1, SeatAllocator.Position.ANY, true, true));
+    }
+
+    @Test
+    void testRelaxedConstraintsSplitTheParty() {
+        SeatMap seats = coach(
+                "x.x.xx",
+                ".xx.x.");
+
+        assertNull(SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.ANY, true, true));
+        assertArrayEquals(new int[][]{{0, 1}, {0, 3}},
+                SeatAllocator.allocate(seats, 0, 2, 2, SeatAllocator.Position.ANY, false, true));
+        assertArrayEquals(new int[][]{{1, 0}, {1, 3}, {1, 5}},
+                SeatAllocator.allocate(seats, 0, 2, 3, SeatAllocator.Position.ANY, false, true));
+        assertArrayEquals(new int[][]{{0, 1}, {0, 3}, {1, 0}},
+                SeatAllocator.allocate(seats, 0, 2, 3, SeatAllocator.Position.ANY, false, false));
+        assertNull(SeatAllocator.allocate(seats, 0, 2, 6, SeatAllocator.Position.ANY, false, false));
+    }
+}
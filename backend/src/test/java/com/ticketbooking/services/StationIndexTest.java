@@ -0,0 +1,70 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Train;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationIndexTest {
+
+    private static Train train(String id, String... stations) {
+        return new Train(id, id, new SeatMap(1, 1), null, List.of(stations));
+    }
+
+    @Test
+    void testSearchRespectsDirection() {
+        List<Train> trains = new ArrayList<>(List.of(
+                train("T0", "a", "b", "c"),
+                train("T1", "c", "b", "a"),
+                train("T2", "b", "d"),
+                train("T3", "x", "a", "y", "c")));
+        StationIndex index = StationIndex.build(trains);
+
+        assertArrayEquals(new int[]{0, 3}, index.search("a", "c"));
+        assertArrayEquals(new int[]{1}, index.search("c", "a"));
+        assertArrayEquals(new int[]{2}, index.search("b", "d"));
+        assertArrayEquals(new int[0], index.search("a", "d"));
+        assertArrayEquals(new int[0], index.search("a", "nowhere"));
+        assertEquals(3, index.trainCount("a"));
+    }
+
+    @Test
+    void testAddAndRemoveKeepPostingsInOrder() {
+        List<Train> trains = new ArrayList<>(List.of(train("T0", "a", "b"), train("T1", "b", "c")));
+        StationIndex index = StationIndex.build(trains);
+
+        index.add(2, train("T2", "a", "c"));
+        assertArrayEquals(new int[]{2}, index.search("a", "c"));
+
+        index.remove(0, trains.get(0));
+        index.add(0, train("T0", "A ", "c"));
+        assertArrayEquals(new int[]{0, 2}, index.search("a", "c"));
+        assertArrayEquals(new int[0], index.search("a", "b"));
+        assertEquals(1, index.trainCount("b"));
+    }
+
+    @Test
+    void testCopyIsIndependentOfOriginal() {
+        List<Train> trains = new ArrayList<>(List.of(train("T0", "a", "b")));
+        StationIndex index = StationIndex.build(trains);
+        StationIndex copy = index.copy();
+
+        copy.remove(0, trains.get(0));
+        copy.add(1, train("T1", "a", "b"));
+
+        assertArrayEquals(new int[]{0}, index.search("a", "b"));
+        assertArrayEquals(new int[]{1}, copy.search("a", "b"));
+    }
+
+    @Test
+    void testRepeatedStationUsesFirstStop() {
+        StationIndex index = StationIndex.build(List.of(train("T0", "a", "b", "a", "c")));
+
+        assertArrayEquals(new int[]{0}, index.search("a", "b"));
+        assertArrayEquals(new int[0], index.search("b", "a"));
+    }
+}
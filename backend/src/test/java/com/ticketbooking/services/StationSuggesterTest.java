@@ -0,0 +1,41 @@
+package com.ticketbooking.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StationSuggesterTest {
+
+    @Test
+    void testRanksByTrainCountThenName() {
+        Map<String, Integer> counts = new HashMap<>(Map.of(
+                "mumbai central", 5, "mumbai cst", 2, "madgaon", 2, "chennai central", 3));
+        StationSuggester suggester = new StationSuggester(station -> counts.getOrDefault(station, 0));
+        suggester.addStations(List.of("Mumbai Central", "mumbai cst", "Madgaon", "chennai central"));
+
+        assertEquals(List.of("mumbai central", "madgaon", "mumbai cst"), suggester.suggest("M", 5));
+        assertEquals(List.of("mumbai central", "madgaon"), suggester.suggest("m", 2));
+        assertEquals(List.of("mumbai central", "chennai central"), suggester.suggest("cen", 5));
+        assertEquals(List.of("mumbai central", "chennai central", "mumbai cst"), suggester.suggest("c", 3));
+        assertEquals(List.of(), suggester.suggest("x", 5));
+        assertEquals(List.of(), suggester.suggest(" ", 5));
+    }
+
+    @Test
+    void testAddedStationsAreMergedIn() {
+        Map<String, Integer> counts = new HashMap<>(Map.of("pune junction", 1));
+        StationSuggester suggester = new StationSuggester(station -> counts.getOrDefault(station, 0));
+        suggester.addStations(List.of("pune junction"));
+
+        counts.put("patna junction", 4);
+        suggester.addStations(List.of("Patna Junction", "pune junction"));
+        assertEquals(List.of("patna junction", "pune junction"), suggester.suggest("junc", 5));
+
+        counts.remove("pune junction");
+        assertEquals(List.of("patna junction"), suggester.suggest("p", 5));
+    }
+}
@@ -0,0 +1,60 @@
+package com.ticketbooking.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    void testExpiresItemsAtTheirTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("a", 250);
+        wheel.schedule("b", 300);
+        wheel.schedule("c", 301);
+
+        wheel.advance(299, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(300, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+
+        wheel.advance(450, expired::add);
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void testItemsMoreThanOneRotationAheadWaitForTheirDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(10, 4, 0);
+        List<String> expired = new ArrayList<>();
+        // Shares a bucket with ticks 1, 5 and 9
+        wheel.schedule("late", 130);
+
+        for (long now = 10; now < 130; now += 10) {
+            wheel.advance(now, expired::add);
+        }
+        assertEquals(List.of(), expired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(130, expired::add);
+        assertEquals(List.of("late"), expired);
+    }
+
+    @Test
+    void testOverdueItemsExpireOnTheNextTick() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 1_000);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("past", 500);
+
+        wheel.advance(1_000, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(1_100, expired::add);
+        assertEquals(List.of("past"), expired);
+    }
+}
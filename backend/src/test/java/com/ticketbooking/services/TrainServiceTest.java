@@ -0,0 +1,120 @@
+package com.ticketbooking.services;
+
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Train;
+import com.ticketbooking.utils.Constants;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrainServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private TrainService trainService;
+    private Train train;
+    private int lastLeg;
+    private final LocalDate today = LocalDate.now();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        trainService = new TrainService(dataDir);
+        train = trainService.getTrains().get(0);
+        lastLeg = train.getStations().size() - 1;
+    }
+
+    @AfterEach
+    void tearDown() {
+        trainService.close();
+    }
+
+    @Test
+    void testDateGetsItsOwnSeatMapOnItsFirstBooking() {
+        String date = today.plusDays(3).toString();
+        int[] seat = freeSeat();
+        assertSame(train.getSeats(), train.seatsOn(date));
+        assertFalse(train.getDatedSeats().containsKey(date));
+
+        assertTrue(trainService.bookTickets(train, today.plusDays(3), seat[0], seat[1], 0, lastLeg));
+
+        SeatMap shard = train.getDatedSeats().get(date);
+        assertNotNull(shard);
+        assertSame(shard, train.seatsOn(date));
+        assertFalse(shard.isFree(seat[0], seat[1], 0, lastLeg));
+        assertTrue(train.getSeats().isFree(seat[0], seat[1], 0, lastLeg));
+        assertSame(train.getSeats(), train.seatsOn(today.plusDays(4).toString()));
+    }
+
+    @Test
+    void testOnlyDatesInsideTheBookingWindowCanBeBooked() {
+        int[] seat = freeSeat();
+        LocalDate lastDay = today.plusDays(Constants.ADVANCE_BOOKING_DAYS - 1);
+        LocalDate pastWindow = today.plusDays(Constants.ADVANCE_BOOKING_DAYS);
+
+        assertFalse(trainService.bookTickets(train, today.minusDays(1), seat[0], seat[1], 0, lastLeg));
+        assertFalse(trainService.bookTickets(train, pastWindow, seat[0], seat[1], 0, lastLeg));
+        assertTrue(trainService.bookTickets(train, lastDay, seat[0], seat[1], 0, lastLeg));
+        assertFalse(train.getDatedSeats().containsKey(pastWindow.toString()));
+
+        String first = train.getStations().get(0);
+        String last = train.getStations().get(lastLeg);
+        assertEquals(0, trainService.availableSeats(train, first, last, pastWindow));
+        assertTrue(trainService.availableSeats(train, first, last, today) > 0);
+    }
+
+    @Test
+    void testPastDatesAreEvictedOnceADay() {
+        train.getDatedSeats().put(today.minusDays(2).toString(), train.getSeats().copy());
+        train.getDatedSeats().put(today.minusDays(1).toString(), train.getSeats().copy());
+        train.getDatedSeats().put(today.toString(), train.getSeats().copy());
+
+        assertEquals(2, trainService.evictExpiredDates());
+        assertEquals(1, train.getDatedSeats().size());
+        assertTrue(train.getDatedSeats().containsKey(today.toString()));
+
+        // Already swept today, so a date that has passed waits for tomorrow's sweep
+        train.getDatedSeats().put(today.minusDays(1).toString(), train.getSeats().copy());
+        assertEquals(0, trainService.evictExpiredDates());
+        assertTrue(train.getDatedSeats().containsKey(today.minusDays(1).toString()));
+    }
+
+    @Test
+    void testHeldLegsAreCountedPerTrainAndDate() {
+        SeatHolds holds = new SeatHolds(trainService);
+        try {
+            LocalDate date = today.plusDays(3);
+            SeatHolds.Hold hold = holds.hold("u1", train, date, 0, 1, List.of(freeSeat()), 60_000);
+            assertNotNull(hold);
+
+            assertTrue(holds.covers(train.getTrainId(), date, 0, lastLeg));
+            assertFalse(holds.covers(train.getTrainId(), date, 1, lastLeg));
+            assertFalse(holds.covers(train.getTrainId(), date.plusDays(1), 0, lastLeg));
+            assertTrue(holds.release(hold.holdId, "u1"));
+            assertFalse(holds.covers(train.getTrainId(), date, 0, lastLeg));
+        } finally {
+            holds.close();
+        }
+    }
+
+    private int[] freeSeat() {
+        SeatMap seats = train.getSeats();
+        for (int row = 0; row < seats.rows(); row++) {
+            for (int col = 0; col < seats.rowLength(row); col++) {
+                if (seats.isFree(row, col, 0, lastLeg)) {
+                    return new int[]{row, col};
+                }
+            }
+        }
+        fail("No free seat on " + train.getTrainId());
+        return null;
+    }
+}
@@ -0,0 +1,233 @@
+package com.ticketbooking.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ticketbooking.entities.JournalEntry;
+import com.ticketbooking.entities.SeatMap;
+import com.ticketbooking.entities.Train;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserBookingServiceTest {
+
+    @TempDir
+    Path dataDir;
+
+    private TrainService trainService;
+    private UserBookingService service;
+    private Train train;
+    private int lastLeg;
+    private final String date = LocalDate.now().plusDays(5).toString();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        trainService = new TrainService(dataDir);
+        service = new UserBookingService(trainService, dataDir);
+        train = trainService.getTrains().get(0);
+        lastLeg = train.getStations().size() - 1;
+        assertTrue(service.signUpUser("grouper", "password1"));
+        assertTrue(service.signUpUser("soloist", "password1"));
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        service.close();
+        trainService.close();
+    }
+
+    @Test
+    void testGroupWithATakenSeatLeavesNoSeatClaimed() throws Exception {
+        List<int[]> seats = freeSeats(3);
+        int[] taken = seats.get(2);
+        assertEquals(true, service.bookSeat(train.getTrainId(), userId("soloist"), taken[0], taken[1],
+                null, null, date).get("success"));
+
+        Map<String, Object> result = service.bookGroup(train.getTrainId(), userId("grouper"), seats, null, null, date);
+
+        assertEquals(false, result.get("success"));
+        SeatMap inventory = train.seatsOn(date);
+        assertTrue(inventory.isFree(seats.get(0)[0], seats.get(0)[1], 0, lastLeg));
+        assertTrue(inventory.isFree(seats.get(1)[0], seats.get(1)[1], 0, lastLeg));
+        assertFalse(inventory.isFree(taken[0], taken[1], 0, lastLeg));
+        assertTrue(service.getUserBookings(userId("grouper")).isEmpty());
+        assertEquals(0, countJournaled(JournalEntry.Type.BOOK_GROUP));
+    }
+
+    @Test
+    void testGroupIsJournaledAsOneLine() throws Exception {
+        Map<String, Object> result = service.bookGroup(train.getTrainId(), userId("grouper"), freeSeats(3), null, null, date);
+
+        assertEquals(true, result.get("success"));
+        assertEquals(1, countJournaled(JournalEntry.Type.BOOK_GROUP));
+        assertEquals(0, countJournaled(JournalEntry.Type.BOOK));
+    }
+
+    @Test
+    void testReplayRestoresTheWholeGroup() throws Exception {
+        List<int[]> seats = freeSeats(3);
+        Map<String, Object> result = service.bookGroup(train.getTrainId(), userId("grouper"), seats, null, null, date);
+        assertEquals(true, result.get("success"));
+        service.close();
+        trainService.close();
+
+        trainService = new TrainService(dataDir);
+        service = new UserBookingService(trainService, dataDir);
+
+        List<String> restored = new ArrayList<>();
+        for (Map<String, Object> booking : service.getUserBookings(userId("grouper"))) {
+            restored.add((String) booking.get("ticketId"));
+        }
+        assertEquals(result.get("ticketIds"), restored);
+        SeatMap inventory = trainService.getTrainById(train.getTrainId()).seatsOn(date);
+        for (int[] seat : seats) {
+            assertFalse(inventory.isFree(seat[0], seat[1], 0, lastLeg));
+        }
+    }
+
+    @Test
+    void testBinarySnapshotUsersAreDecodedOnFirstUse() throws Exception {
+        List<int[]> seats = freeSeats(1);
+        Map<String, Object> result = service.bookGroup(train.getTrainId(), userId("grouper"), seats, null, null, date);
+        String ticketId = ((List<?>) result.get("ticketIds")).get(0).toString();
+        String grouper = userId("grouper");
+        String soloist = userId("soloist");
+        System.setProperty("snapshot.format", "binary");
+        try {
+            service.compactJournal();
+            restart();
+
+            // Nobody has been looked up yet, so the cancellation decodes the holder from the snapshot
+            assertTrue(service.cancelBooking(ticketId, grouper));
+            assertFalse(service.signUpUser("Soloist", "password1"));
+            // The soloist is still undecoded here and must survive the next snapshot
+            service.compactJournal();
+            restart();
+
+            assertEquals(soloist, userId("soloist"));
+            assertTrue(service.getUserBookings(grouper).isEmpty());
+            assertTrue(trainService.getTrainById(train.getTrainId()).seatsOn(date).isFree(seats.get(0)[0], seats.get(0)[1], 0, lastLeg));
+        } finally {
+            System.clearProperty("snapshot.format");
+        }
+    }
+
+    @Test
+    void testJoiningWhileACancellationIsWrittenStillGetsTheSeat() throws Exception {
+        String grouper = userId("grouper");
+        String soloist = userId("soloist");
+        List<String> sold = sellOut(grouper);
+        // A slow group commit keeps the cancellation in flight long enough to join behind it
+        System.setProperty("journal.batch.delayMs", "500");
+        try {
+            restart();
+        } finally {
+            System.clearProperty("journal.batch.delayMs");
+        }
+        Train live = trainService.getTrainById(train.getTrainId());
+
+        CompletableFuture<Boolean> cancelled = CompletableFuture.supplyAsync(() -> {
+            try {
+                return service.cancelBooking(sold.get(0), grouper);
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        Thread.sleep(100);
+        Map<String, Object> joined = service.joinWaitlist(train.getTrainId(), soloist, null, null, date);
+
+        assertEquals(true, joined.get("success"));
+        assertTrue(cancelled.get());
+        assertEquals(1, service.getUserBookings(soloist).size());
+        assertEquals(0, live.seatsOn(date).freeCount(0, lastLeg));
+        assertEquals(0, service.waitlistPosition(train.getTrainId(), soloist, null, null, date).get("position"));
+    }
+
+    @Test
+    void testUpdatingATrainKeepsItsSoldSeats() throws Exception {
+        assertEquals(true, service.bookSeat(train.getTrainId(), userId("soloist"), 0, 0, null, null, date).get("success"));
+
+        trainService.updateTrain(new Train(train.getTrainId(), "renumbered", train.getSeats().copy(),
+                train.getStationTimes(), train.getStations()));
+
+        assertFalse(trainService.getTrainById(train.getTrainId()).seatsOn(date).isFree(0, 0, 0, lastLeg));
+        restart();
+        Train updated = trainService.getTrainById(train.getTrainId());
+        assertEquals("renumbered", updated.getTrainNo());
+        assertFalse(updated.seatsOn(date).isFree(0, 0, 0, lastLeg));
+        String soloist = userId("soloist");
+        assertTrue(service.cancelBooking(service.getUserBookings(soloist).get(0).get("ticketId").toString(), soloist));
+        assertTrue(updated.seatsOn(date).isFree(0, 0, 0, lastLeg));
+    }
+
+    @Test
+    void testChangingTheLayoutOfASoldTrainIsRefused() throws Exception {
+        assertEquals(true, service.bookSeat(train.getTrainId(), userId("soloist"), 0, 0, null, null, date).get("success"));
+
+        assertThrows(IllegalArgumentException.class, () -> trainService.updateTrain(new Train(train.getTrainId(),
+                train.getTrainNo(), new SeatMap(1, 1), train.getStationTimes(), train.getStations())));
+        assertSame(train, trainService.getTrainById(train.getTrainId()));
+    }
+
+    private void restart() throws IOException {
+        service.close();
+        trainService.close();
+        trainService = new TrainService(dataDir);
+        service = new UserBookingService(trainService, dataDir);
+    }
+
+    private String userId(String username) {
+        return service.getUserByUsername(username).orElseThrow().getUserId();
+    }
+
+    private List<String> sellOut(String userId) throws IOException {
+        List<String> ticketIds = new ArrayList<>();
+        int free;
+        while ((free = train.seatsOn(date).freeCount(0, lastLeg)) > 0) {
+            Map<String, Object> result = service.bookGroup(train.getTrainId(), userId, freeSeats(Math.min(free, 6)),
+                    null, null, date);
+            assertEquals(true, result.get("success"));
+            for (Object ticketId : (List<?>) result.get("ticketIds")) {
+                ticketIds.add(ticketId.toString());
+            }
+        }
+        return ticketIds;
+    }
+
+    private List<int[]> freeSeats(int count) {
+        SeatMap inventory = train.seatsOn(date);
+        List<int[]> seats = new ArrayList<>();
+        for (int row = 0; row < inventory.rows() && seats.size() < count; row++) {
+            for (int col = 0; col < inventory.rowLength(row) && seats.size() < count; col++) {
+                if (inventory.isFree(row, col, 0, lastLeg)) {
+                    seats.add(new int[]{row, col});
+                }
+            }
+        }
+        assertEquals(count, seats.size());
+        return seats;
+    }
+
+    private long countJournaled(JournalEntry.Type type) throws IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        long count = 0;
+        for (String line : Files.readAllLines(dataDir.resolve("bookings.journal"))) {
+            if (!line.isBlank() && mapper.readValue(line, JournalEntry.class).getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
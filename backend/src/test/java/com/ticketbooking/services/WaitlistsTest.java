@@ -0,0 +1,71 @@
+package com.ticketbooking.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistsTest {
+
+    private static final LocalDate DATE = LocalDate.of(2030, 1, 1);
+
+    @Test
+    void testPositionsFollowJoinOrderAndAdvanceOnPromotion() {
+        Waitlists waitlists = new Waitlists(10);
+        assertEquals(1, waitlists.join("a", "T1", DATE, 0, 2));
+        assertEquals(2, waitlists.join("b", "T1", DATE, 0, 2));
+        assertEquals(2, waitlists.join("b", "T1", DATE, 0, 2));
+        assertEquals(1, waitlists.join("c", "T1", DATE.plusDays(1), 0, 2));
+
+        assertEquals("a", waitlists.poll("T1", DATE, 0, 2).userId);
+        assertEquals(1, waitlists.position("b", "T1", DATE, 0, 2));
+        assertEquals(0, waitlists.position("a", "T1", DATE, 0, 2));
+        assertEquals(1, waitlists.size("T1", DATE, 0, 2));
+    }
+
+    @Test
+    void testPromotesLongestWaitAmongSegmentsInsideTheFreedLegs() {
+        Waitlists waitlists = new Waitlists(10);
+        waitlists.join("outside", "T1", DATE, 0, 3);
+        waitlists.join("first", "T1", DATE, 1, 2);
+        waitlists.join("second", "T1", DATE, 0, 2);
+
+        assertEquals("first", waitlists.poll("T1", DATE, 0, 2).userId);
+        assertEquals("second", waitlists.poll("T1", DATE, 0, 2).userId);
+        assertNull(waitlists.poll("T1", DATE, 0, 2));
+        assertEquals(1, waitlists.position("outside", "T1", DATE, 0, 3));
+    }
+
+    @Test
+    void testBoundedAndRestoresToTheHead() {
+        Waitlists waitlists = new Waitlists(2);
+        waitlists.join("a", "T1", DATE, 0, 1);
+        waitlists.join("b", "T1", DATE, 0, 1);
+        assertEquals(0, waitlists.join("c", "T1", DATE, 0, 1));
+
+        Waitlists.Entry head = waitlists.poll("T1", DATE, 0, 1);
+        assertTrue(waitlists.restore(head));
+        assertEquals(1, waitlists.position("a", "T1", DATE, 0, 1));
+        assertEquals(2, waitlists.position("b", "T1", DATE, 0, 1));
+
+        // Emptied queues are dropped; restoring into a fresh one still works
+        waitlists.poll("T1", DATE, 0, 1);
+        Waitlists.Entry last = waitlists.poll("T1", DATE, 0, 1);
+        assertEquals(0, waitlists.size("T1", DATE, 0, 1));
+        assertTrue(waitlists.restore(last));
+        assertEquals(1, waitlists.position("b", "T1", DATE, 0, 1));
+    }
+
+    @Test
+    void testQueuesForPastDatesAreEvictedWithTheirUsers() {
+        Waitlists waitlists = new Waitlists(10);
+        waitlists.join("a", "T1", DATE, 0, 2);
+        waitlists.join("b", "T1", DATE.plusDays(1), 0, 2);
+
+        assertEquals(1, waitlists.evictBefore(DATE.plusDays(1)));
+        assertEquals(0, waitlists.position("a", "T1", DATE, 0, 2));
+        assertEquals(1, waitlists.position("b", "T1", DATE.plusDays(1), 0, 2));
+        assertEquals(1, waitlists.join("c", "T1", DATE, 0, 2));
+    }
+}
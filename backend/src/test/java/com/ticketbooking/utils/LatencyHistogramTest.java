@@ -0,0 +1,53 @@
+package com.ticketbooking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testBucketsCoverEveryValueWithinThreePercent() {
+        Random random = new Random(7);
+        for (int i = 0; i < 100_000; i++) {
+            long value = random.nextLong() & LatencyHistogram.MAX_VALUE >>> random.nextInt(40);
+            int bucket = LatencyHistogram.bucketOf(value);
+            long highest = LatencyHistogram.highestValueIn(bucket);
+            assertTrue(highest >= value, "value " + value);
+            assertTrue(highest - value <= value / 32, "value " + value);
+            assertTrue(bucket == 0 || LatencyHistogram.highestValueIn(bucket - 1) < value, "value " + value);
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestValueIn(LatencyHistogram.bucketOf(LatencyHistogram.MAX_VALUE)));
+    }
+
+    @Test
+    void testQuantilesOfAKnownDistribution() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.valueAtQuantile(0.5));
+        for (long micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_500_000L, histogram.getSumNanos());
+        assertEquals(1_000_000, histogram.getMaxNanos());
+        assertEquals(500_000, histogram.valueAtQuantile(0.5), 500_000 / 32.0);
+        assertEquals(990_000, histogram.valueAtQuantile(0.99), 990_000 / 32.0);
+        assertEquals(1_000_000, histogram.valueAtQuantile(0.999), 1_000_000 / 32.0);
+        assertEquals(1_000_000, histogram.valueAtQuantile(1.0));
+    }
+
+    @Test
+    void testOutOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.valueAtQuantile(0.5));
+        assertEquals(LatencyHistogram.MAX_VALUE, histogram.valueAtQuantile(1.0));
+    }
+}
@@ -0,0 +1,37 @@
+package com.ticketbooking.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsTest {
+
+    @Test
+    void testRendersSummariesAndErrorCountsPerLabel() {
+        Metrics metrics = new Metrics("app");
+        Metrics.Timer book = metrics.httpTimer("/api/book");
+        assertSame(book, metrics.httpTimer("/api/book"));
+        long now = System.nanoTime();
+        book.record(now, false);
+        book.record(now, true);
+        metrics.persistenceTimer("journal_commit").record(now, false);
+
+        String text = metrics.prometheus();
+
+        assertTrue(text.contains("# TYPE app_http_requests_duration_seconds summary\n"), text);
+        assertTrue(text.contains("app_http_requests_duration_seconds{endpoint=\"/api/book\",quantile=\"0.99\"} "), text);
+        assertTrue(text.contains("app_http_requests_duration_seconds_count{endpoint=\"/api/book\"} 2\n"), text);
+        assertTrue(text.contains("# TYPE app_http_requests_errors_total counter\n"), text);
+        assertTrue(text.contains("app_http_requests_errors_total{endpoint=\"/api/book\"} 1\n"), text);
+        assertTrue(text.contains("app_persistence_duration_seconds_count{operation=\"journal_commit\"} 1\n"), text);
+        assertTrue(text.contains("app_persistence_errors_total{operation=\"journal_commit\"} 0\n"), text);
+    }
+
+    @Test
+    void testEscapesLabelValues() {
+        Metrics metrics = new Metrics("app");
+        metrics.persistenceTimer("a\"b\\c").record(System.nanoTime(), false);
+
+        assertTrue(metrics.prometheus().contains("{operation=\"a\\\"b\\\\c\"}"));
+    }
+}
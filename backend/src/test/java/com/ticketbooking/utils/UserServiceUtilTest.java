@@ -33,4 +33,28 @@ class UserServiceUtilTest {
         assertNotNull(ticketId2);
         assertNotEquals(ticketId1, ticketId2);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testGeneratedIdsAreUnique() {
+        java.util.Set<String> ids = new java.util.HashSet<>();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(ids.add(UserServiceUtil.generateTicketId()));
+            assertTrue(ids.add(UserServiceUtil.generateUserId()));
+        }
+    }
+
+    @Test
+    void testReservedIdsAreNotHandedOutAgain() {
+        // A burst before a restart can run ahead of the clock the next process starts with
+        long ahead = System.currentTimeMillis() + 60_000;
+        UserServiceUtil.reserveId(ahead + "-00ff");
+        UserServiceUtil.reserveId("USER_" + ahead);
+        UserServiceUtil.reserveId("seed-ticket");
+
+        String ticketId = UserServiceUtil.generateTicketId();
+        String userId = UserServiceUtil.generateUserId();
+
+        assertTrue(Long.parseLong(ticketId.substring(0, ticketId.indexOf('-'))) > ahead);
+        assertTrue(Long.parseLong(userId.substring("USER_".length(), userId.indexOf('-'))) > ahead);
+    }
+}
@@ -1,4 +1,5 @@
 import React, { useState, useEffect } from 'react';
+import { suggestStations } from '../services/realApi';
 
 const MAJOR_STATIONS = [
   { code: 'NDLS', name: 'New Delhi', city: 'Delhi' },
@@ -29,13 +30,24 @@ const StationSuggestions = ({ value, onChange, placeholder }) => {
 
   useEffect(() => {
     if (value.length > 1) {
-      const filtered = MAJOR_STATIONS.filter(station =>
-        station.name.toLowerCase().includes(value.toLowerCase()) ||
-        station.city.toLowerCase().includes(value.toLowerCase()) ||
-        station.code.toLowerCase().includes(value.toLowerCase())
-      ).slice(0, 5);
-      setSuggestions(filtered);
-      setShowSuggestions(true);
+      let cancelled = false;
+      suggestStations(value).then(result => {
+        if (cancelled) return;
+        if (result.success && result.stations.length > 0) {
+          // Backend stations are the ones trains actually serve
+          setSuggestions(result.stations.map(station => ({
+            code: station.name, name: station.name, city: `${station.trains} trains`, value: station.name
+          })));
+        } else {
+          setSuggestions(MAJOR_STATIONS.filter(station =>
+            station.name.toLowerCase().includes(value.toLowerCase()) ||
+            station.city.toLowerCase().includes(value.toLowerCase()) ||
+            station.code.toLowerCase().includes(value.toLowerCase())
+          ).slice(0, 5));
+        }
+        setShowSuggestions(true);
+      });
+      return () => { cancelled = true; };
     } else {
       setSuggestions([]);
       setShowSuggestions(false);
@@ -43,7 +55,7 @@ const StationSuggestions = ({ value, onChange, placeholder }) => {
   }, [value]);
 
   const handleSuggestionClick = (station) => {
-    onChange(station.city);
+    onChange(station.value || station.city);
     setShowSuggestions(false);
   };
 
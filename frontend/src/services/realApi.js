@@ -71,6 +71,16 @@ export const searchTrains = async (source, destination) => {
   }
 };
 
+// Station autocomplete from the backend; no artificial delay, this runs on every keystroke
+export const suggestStations = async (query, limit = 5) => {
+  try {
+    const response = await fetch(`${BACKEND_API_BASE}/stations/suggest?q=${encodeURIComponent(query)}&limit=${limit}`);
+    return await response.json();
+  } catch (error) {
+    return { success: false, stations: [] };
+  }
+};
+
 // Mock booking functions for frontend
 export const login = async (username, password) => {
   await delay(500);